@@ -123,6 +123,24 @@ public class Blockette implements java.io.Serializable {
 		return true;
 	}
 
+	/**
+	 * Adds a single, already parsed, value to a field. Used when the
+	 * blockette is decoded directly from a binary volume (see
+	 * DatalessReader) instead of from rdseed text lines.
+	 *
+	 * @param fieldID the field id
+	 * @param description the field description
+	 * @param value the field value
+	 */
+	public void addFieldValue(int fieldID, String description, String value) {
+		Field field = fields.get(fieldID);
+		if (field == null) {
+			field = new Field(fieldID, description);
+			fields.put(fieldID, field);
+		}
+		field.addValue(value);
+	}
+
 	/**
 	 * Gets the field value.
 	 *
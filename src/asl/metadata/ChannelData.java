@@ -2,6 +2,7 @@ package asl.metadata;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Hashtable;
 
@@ -17,6 +18,8 @@ public class ChannelData {
 
 	private Hashtable<Calendar, Blockette> comments;
 	private Hashtable<Calendar, EpochData> epochs;
+	// Sorted index of epochs (built on first use) -> epochs key
+	private volatile EpochIndex<Calendar> epochIndex = null;
 	private String location = null;
 	private String name = null;
 
@@ -86,6 +89,7 @@ public class ChannelData {
 					.parseTimestamp(timestampString);
 			EpochData data = new EpochData(blockette);
 			epochs.put(timestamp, data);
+			epochIndex = null;
 			return timestamp;
 		} catch (TimestampFormatException e) {
 			throw e;
@@ -100,83 +104,61 @@ public class ChannelData {
 		return epochs.get(timestamp);
 	}
 
+	Collection<EpochData> getEpochs() {
+		return epochs.values();
+	}
+
 	// containsEpoch - search through epochs of current channeldata
-	// return true if epochTime is contained.
-	/**
-	 * Epoch index ----------- ONLY THIS EPOCH! 0 newest startTimestamp - newest
-	 * endTimestamp (may be "null") 1 ... - ... 2 ... - ... . ... - ... n-1
-	 * oldest startTimestamp - oldest endTimestamp
-	 **/
-	// public boolean containsEpoch(Calendar epochTime)
+	// return the epoch start timestamp (= epochs key) if epochTime is
+	// contained, else null.
 	Calendar containsEpoch(Calendar epochTime) {
-		boolean containsEpochTime = false;
+		return containsEpoch(epochTime.getTimeInMillis());
+	}
 
-		ArrayList<Calendar> epochtimes = new ArrayList<Calendar>();
-		epochtimes.addAll(epochs.keySet());
-		Collections.sort(epochtimes);
-		Collections.reverse(epochtimes);
-		int nEpochs = epochtimes.size();
-
-		Calendar startTimeStamp = null;
-		Calendar endTimeStamp = null;
-		Calendar timestamp = null;
-		EpochData epoch = null;
-
-		// epochs keys(=timestamps) are now sorted with the newest first
-		// most likely the first (=newest) epoch will be the one we want
-		// So check the first epoch for the epochTime and if it's not
-		// found (and nEpochs > 1), check the older epochs
-
-		timestamp = epochtimes.get(0);
-		epoch = epochs.get(timestamp);
-		startTimeStamp = epoch.getStartTime();
-		endTimeStamp = epoch.getEndTime();
-		if (endTimeStamp == null) { // The first Epoch is open
-			if (epochTime.getTimeInMillis() >= startTimeStamp.getTimeInMillis()) {
-				containsEpochTime = true;
-			}
-		} // The first Epoch is closed
-		else if (epochTime.getTimeInMillis() >= startTimeStamp
-				.getTimeInMillis()
-				&& epochTime.getTimeInMillis() <= endTimeStamp
-						.getTimeInMillis()) {
-			containsEpochTime = true;
-		}
+	Calendar containsEpoch(long epochTime) {
+		return getEpochIndex().get(epochTime);
+	}
 
-		if (!containsEpochTime && nEpochs > 1) { // Search the older epochs if
-													// necessary
-			for (int i = 1; i < nEpochs; i++) {
-				timestamp = epochtimes.get(i);
-				epoch = epochs.get(timestamp);
-				startTimeStamp = epoch.getStartTime();
-				endTimeStamp = epoch.getEndTime();
-				if (endTimeStamp == null) { // This Epoch is open - we don't
-											// allow that here!
-					logger.error("Older Epoch has Open End Time (=null)");
-					// if (epochTime.getTimeInMillis() >=
-					// startTimeStamp.getTimeInMillis() ) {
-					// containsEpochTime = true;
-					// }
-					break;
-				} else if (epochTime.getTimeInMillis() >= startTimeStamp
-						.getTimeInMillis()
-						&& epochTime.getTimeInMillis() <= endTimeStamp
-								.getTimeInMillis()) {
-					containsEpochTime = true;
-					break;
-				}
-			}
-		}
+	/**
+	 * @return The epoch containing epochTime (millis) or null
+	 */
+	EpochData getEpoch(long epochTime) {
+		Calendar timestamp = containsEpoch(epochTime);
+		return (timestamp == null) ? null : epochs.get(timestamp);
+	}
 
-		if (containsEpochTime) {
-			// System.out.format("----ChannelData %s-%s Epoch: [%s - %s] contains EpochTime=%s\n",getLocation(),
-			// getName(), startDateString,endDateString,epochDateString);
-			return startTimeStamp;
-		} else {
-			// System.out.format("----ChannelData EpochTime=%s was NOT FOUND!!\n",epochDateString);
-			return null;
+	/**
+	 * Epoch index: binary search over the epoch start/end millis instead of
+	 * sorting and comparing the Calendar keys on every call
+	 */
+	EpochIndex<Calendar> getEpochIndex() {
+		EpochIndex<Calendar> index = epochIndex;
+		if (index == null) {
+			index = buildEpochIndex();
 		}
+		return index;
+	}
 
+	private synchronized EpochIndex<Calendar> buildEpochIndex() {
+		if (epochIndex != null) {
+			return epochIndex;
+		}
+		int n = epochs.size();
+		long[] starts = new long[n];
+		Long[] ends = new Long[n];
+		Calendar[] keys = new Calendar[n];
+		int i = 0;
+		for (Calendar timestamp : epochs.keySet()) {
+			EpochData epoch = epochs.get(timestamp);
+			starts[i] = epoch.getStartTime().getTimeInMillis();
+			ends[i] = (epoch.getEndTime() == null) ? null : epoch.getEndTime()
+					.getTimeInMillis();
+			keys[i] = timestamp;
+			i++;
+		}
+		epochIndex = new EpochIndex<Calendar>(starts, ends, keys,
+				StationData.DAY_BREAK_MILLIS);
+		return epochIndex;
 	}
 
 	void printEpochs() {
@@ -84,6 +84,9 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -111,6 +114,15 @@ public class Dataless {
 		complete = false;
 	}
 
+	/**
+	 * Assemble a volume from blockettes that were already decoded (e.g., by
+	 * DatalessReader from a binary dataless file) - there is nothing to parse.
+	 */
+	public Dataless(List<Blockette> blockettes) {
+		this.blockettes = new ArrayList<Blockette>(blockettes);
+		complete = false;
+	}
+
 	// This should be the one we use until station/network masks are implemented
 	public void processVolume() throws DatalessParseException {
 		processVolume("now", "is the time");
@@ -424,4 +436,66 @@ public class Dataless {
 	public SeedVolume getVolume() {
 		return volume;
 	}
+
+	/**
+	 * @return The parsed blockettes the volume was assembled from
+	 */
+	public ArrayList<Blockette> getBlockettes() {
+		return blockettes;
+	}
+
+	/**
+	 * @return A checksum of the blockettes of each station (all epochs), to
+	 *         tell which stations changed between two versions of a volume
+	 */
+	public Hashtable<StationKey, Long> getStationChecksums() {
+		return getStationChecksums(blockettes);
+	}
+
+	/**
+	 * @return The checksums of the stations of blockettes (as listed by
+	 *         DatalessReader.read() or rdseed -s), see getStationChecksums()
+	 */
+	static Hashtable<StationKey, Long> getStationChecksums(
+			List<Blockette> blockettes) {
+		Hashtable<StationKey, CRC32> crcs = new Hashtable<StationKey, CRC32>();
+		CRC32 crc = null;
+		for (Blockette blockette : blockettes) {
+			if (blockette.getNumber() == 50) {
+				try {
+					StationKey key = new StationKey(blockette);
+					crc = crcs.get(key);
+					if (crc == null) {
+						crc = new CRC32();
+						crcs.put(key, crc);
+					}
+				} catch (WrongBlocketteException e) {
+					logger.error("WrongBlocketteException:", e);
+				}
+			}
+			if (crc == null) { // Volume and abbreviation headers
+				continue;
+			}
+			update(crc, Integer.toString(blockette.getNumber()));
+			Hashtable<Integer, Field> fields = blockette.getFields();
+			for (Integer fieldID : new TreeSet<Integer>(fields.keySet())) {
+				update(crc, fieldID.toString());
+				for (String value : fields.get(fieldID).getValues()) {
+					update(crc, value);
+				}
+			}
+		}
+		Hashtable<StationKey, Long> checksums = new Hashtable<StationKey, Long>();
+		for (StationKey key : crcs.keySet()) {
+			checksums.put(key, crcs.get(key).getValue());
+		}
+		return checksums;
+	}
+
+	private static void update(CRC32 crc, String value) {
+		if (value != null) {
+			crc.update(value.getBytes());
+		}
+		crc.update(0);
+	}
 }
@@ -0,0 +1,760 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Hashtable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DatalessReader - Decodes a binary dataless SEED volume (e.g., IU.dataless)
+ * directly into the Blockettes that Dataless assembles into a SeedVolume, so
+ * we no longer need to fork rdseed -s and parse its text output.
+ *
+ * The file is memory mapped and read in one sequential pass over the logical
+ * records: the volume (V) and abbreviation (A) control headers always come
+ * before the station (S) headers, so the dictionary lookups (B030, B033,
+ * B034) can be resolved as the station blockettes are read.
+ *
+ * The field values are the ones rdseed -s prints (trimmed, empty end times =
+ * "(null)", lookup codes expanded with their dictionary text, B030 format
+ * blockette repeated after each B052, ...) so the resulting SeedVolume is the
+ * same as the one built from the rdseed output.
+ *
+ * Decoded: B010, B011, B030, B033, B034, B050, B051, B052, B053, B054, B057,
+ * B058, B059, B061, B062. Other blockettes are skipped.
+ *
+ * index() is the lazy alternative to read(): it only locates the station
+ * headers, and each station is decoded when it is first requested.
+ */
+public class DatalessReader implements StationSource {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.metadata.DatalessReader.class);
+
+	private static final int RECORD_HEADER_LENGTH = 8;
+	private static final int BLOCKETTE_HEADER_LENGTH = 7;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private final File file;
+
+	private MappedByteBuffer buffer;
+	private int recordLength;
+	private int position;
+
+	private Hashtable<Integer, Blockette> formats;
+	private Hashtable<Integer, String> abbreviations;
+	private Hashtable<Integer, String> units;
+
+	// Stop at the first station record (index())
+	private boolean headersOnly = false;
+	// Stop at the next station header after this offset (readStation())
+	private int sectionStart = -1;
+	// The station header offsets of an indexed volume
+	private Hashtable<StationKey, ArrayList<Integer>> stationOffsets;
+	// The checksums of the stations of an indexed volume computed so far
+	private Hashtable<StationKey, Long> stationChecksums;
+
+	public DatalessReader(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Read the volume
+	 *
+	 * @return the blockettes in the order rdseed -s lists them
+	 * @throws IOException
+	 *             the file could not be read
+	 * @throws DatalessParseException
+	 *             the file is not a dataless SEED volume or is truncated
+	 */
+	public ArrayList<Blockette> read() throws IOException,
+			DatalessParseException {
+		map();
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>();
+		try {
+			recordLength = readRecordLength();
+			position = 0;
+			readBlockettes(blockettes);
+		} finally {
+			buffer = null;
+		}
+		return blockettes;
+	}
+
+	/**
+	 * Index the volume for lazy loading: only the volume and abbreviation
+	 * headers and each station header's B050 are decoded. The stations are
+	 * registered with the returned volume and read (see readStation()) the
+	 * first time they are requested. The file stays mapped until then.
+	 *
+	 * @return the volume (B010, B011) with its stations still unread
+	 * @throws IOException
+	 *             the file could not be read
+	 * @throws DatalessParseException
+	 *             the file is not a dataless SEED volume or is truncated
+	 */
+	public synchronized SeedVolume index() throws IOException,
+			DatalessParseException {
+		map();
+		recordLength = readRecordLength();
+
+		// The dictionaries (B030, B033, B034) are in the abbreviation headers
+		ArrayList<Blockette> headers = new ArrayList<Blockette>();
+		position = 0;
+		headersOnly = true;
+		try {
+			readBlockettes(headers);
+		} finally {
+			headersOnly = false;
+		}
+		if (headers.isEmpty() || headers.get(0).getNumber() != 10) {
+			throw new DatalessParseException(String.format(
+					"file=[%s] has no B010 volume header", file));
+		}
+		SeedVolume volume = new SeedVolume(headers.get(0));
+		for (int i = 1; i < headers.size(); i++) {
+			if (headers.get(i).getNumber() == 11) {
+				volume.addStationLocator(headers.get(i));
+			}
+		}
+
+		// Every station epoch starts a new (non continuation) station record
+		// with its B050
+		stationOffsets = new Hashtable<StationKey, ArrayList<Integer>>();
+		stationChecksums = new Hashtable<StationKey, Long>();
+		for (int offset = 0; offset + RECORD_HEADER_LENGTH <= buffer.limit(); offset += recordLength) {
+			if (!isStationStart(offset)) {
+				continue;
+			}
+			ArrayList<Blockette> station = new ArrayList<Blockette>();
+			readStationBlockettes(offset, station, true);
+			if (station.isEmpty() || station.get(0).getNumber() != 50) {
+				logger.warn("file=[{}]: station record at byte=[{}] doesn't start with a B050",
+						file, offset);
+				continue;
+			}
+			StationKey key = null;
+			try {
+				key = new StationKey(station.get(0));
+			} catch (WrongBlocketteException e) {
+				logger.error("WrongBlocketteException:", e);
+				continue;
+			}
+			ArrayList<Integer> offsets = stationOffsets.get(key);
+			if (offsets == null) {
+				offsets = new ArrayList<Integer>();
+				stationOffsets.put(key, offsets);
+			}
+			offsets.add(offset);
+		}
+		for (StationKey key : stationOffsets.keySet()) {
+			volume.addLazyStation(key, this, stationOffsets.get(key).get(0));
+		}
+		return volume;
+	}
+
+	/**
+	 * Read and assemble one station of an indexed volume (all of its station
+	 * epochs)
+	 *
+	 * @return the station or null if it could not be read
+	 */
+	public synchronized StationData readStation(Blockette volumeInfo,
+			StationKey key, long offset) {
+		ArrayList<Integer> offsets = (stationOffsets == null) ? null
+				: stationOffsets.get(key);
+		if (offsets == null || buffer == null) {
+			return null;
+		}
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>();
+		blockettes.add(volumeInfo);
+		try {
+			for (int stationOffset : offsets) {
+				readStationBlockettes(stationOffset, blockettes, false);
+			}
+			// For a reload of the volume, which may no longer be readable
+			// from the file then
+			Long checksum = Dataless.getStationChecksums(blockettes).get(key);
+			if (checksum != null) {
+				stationChecksums.put(key, checksum);
+			}
+			Dataless dataless = new Dataless(blockettes);
+			dataless.processVolume();
+			return dataless.getVolume().getStation(key);
+		} catch (DatalessParseException e) {
+			logger.error(String.format(
+					"Could not read station=[%s] from file=[%s]", key, file), e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return The checksum of one station of an indexed volume (see
+	 *         Dataless.getStationChecksums()), its blockettes are read but not
+	 *         assembled
+	 */
+	public synchronized Long getStationChecksum(StationKey key, long offset) {
+		Long checksum = (stationChecksums == null) ? null : stationChecksums
+				.get(key);
+		if (checksum != null) {
+			return checksum;
+		}
+		ArrayList<Integer> offsets = (stationOffsets == null) ? null
+				: stationOffsets.get(key);
+		if (offsets == null || buffer == null) {
+			return null;
+		}
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>();
+		try {
+			for (int stationOffset : offsets) {
+				readStationBlockettes(stationOffset, blockettes, false);
+			}
+		} catch (DatalessParseException e) {
+			logger.error(String.format(
+					"Could not read station=[%s] from file=[%s]", key, file), e);
+			return null;
+		}
+		checksum = Dataless.getStationChecksums(blockettes).get(key);
+		if (checksum != null) {
+			stationChecksums.put(key, checksum);
+		}
+		return checksum;
+	}
+
+	private void map() throws IOException {
+		formats = new Hashtable<Integer, Blockette>();
+		abbreviations = new Hashtable<Integer, String>();
+		units = new Hashtable<Integer, String>();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Read the blockettes of the station record(s) starting at offset, up to
+	 * the next station header (only its B050 if firstOnly)
+	 */
+	private void readStationBlockettes(int offset,
+			ArrayList<Blockette> blockettes, boolean firstOnly)
+			throws DatalessParseException {
+		sectionStart = offset;
+		position = offset;
+		try {
+			if (firstOnly) {
+				byte[] body = nextBlockette();
+				Blockette blockette = (body == null) ? null : decode(body);
+				if (blockette != null) {
+					blockettes.add(blockette);
+				}
+			} else {
+				readBlockettes(blockettes);
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw truncated();
+		} catch (NumberFormatException e) {
+			throw badNumber(e);
+		} finally {
+			sectionStart = -1;
+		}
+	}
+
+	/**
+	 * Read blockettes from position on until skipRecordHeaders() says stop
+	 */
+	private void readBlockettes(ArrayList<Blockette> blockettes)
+			throws DatalessParseException {
+		try {
+			byte[] body;
+			while ((body = nextBlockette()) != null) {
+				Blockette blockette = decode(body);
+				if (blockette == null) {
+					continue;
+				}
+				blockettes.add(blockette);
+				if (blockette.getNumber() == 52) {
+					// rdseed lists the referenced format after each channel
+					Blockette format = formats.get(parseInt(blockette
+							.getFieldValue(16, 0)));
+					if (format != null) {
+						blockettes.add(format);
+					}
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw truncated();
+		} catch (NumberFormatException e) {
+			throw badNumber(e);
+		}
+	}
+
+	private DatalessParseException truncated() {
+		return new DatalessParseException(String.format(
+				"Truncated blockette in file=[%s] at byte=[%d]", file, position));
+	}
+
+	private DatalessParseException badNumber(NumberFormatException e) {
+		return new DatalessParseException(String.format(
+				"Bad numeric field in file=[%s] near byte=[%d]: %s", file,
+				position, e.getMessage()));
+	}
+
+	/**
+	 * @return true if the record at offset starts a station header (a
+	 *         station record that isn't a continuation)
+	 */
+	private boolean isStationStart(int offset) {
+		return buffer.get(offset + 6) == 'S' && buffer.get(offset + 7) != '*';
+	}
+
+	/**
+	 * The first record must start with the volume identifier blockette
+	 * (B010), whose field 4 holds log2 of the logical record length
+	 */
+	private int readRecordLength() throws DatalessParseException {
+		int offset = RECORD_HEADER_LENGTH;
+		if (buffer.limit() < offset + 13
+				|| !ascii(offset, 3).equals("010")) {
+			throw new DatalessParseException(String.format(
+					"file=[%s] does not start with a B010 volume header", file));
+		}
+		int exponent = Integer.parseInt(ascii(offset + 11, 2).trim());
+		if (exponent < 8 || exponent > 16) {
+			throw new DatalessParseException(String.format(
+					"file=[%s] has invalid record length=[2^%d]", file,
+					exponent));
+		}
+		return 1 << exponent;
+	}
+
+	private String ascii(int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		return new String(bytes, 0, length, ASCII);
+	}
+
+	/**
+	 * Move position past record headers and non control records
+	 *
+	 * @return false at the end of the file
+	 */
+	private boolean skipRecordHeaders() {
+		while (position < buffer.limit()) {
+			if (position % recordLength != 0) {
+				return true;
+			}
+			if (position + RECORD_HEADER_LENGTH > buffer.limit()) {
+				break;
+			}
+			char type = (char) buffer.get(position + 6);
+			if (headersOnly && type != 'V' && type != 'A') {
+				return false;
+			}
+			if (sectionStart >= 0 && position != sectionStart
+					&& (type != 'S' || isStationStart(position))) {
+				// The end of the station being read
+				return false;
+			}
+			if (type == 'V' || type == 'A' || type == 'S' || type == 'T') {
+				position += RECORD_HEADER_LENGTH;
+			} else {
+				// Data records don't belong in a dataless volume
+				position += recordLength;
+			}
+		}
+		return false;
+	}
+
+	private byte nextByte() {
+		if (!skipRecordHeaders()) {
+			throw new IndexOutOfBoundsException();
+		}
+		return buffer.get(position++);
+	}
+
+	/**
+	 * @return The next blockette (incl. the 7 byte type + length header) with
+	 *         any record headers it spans removed, or null at the end of the
+	 *         file
+	 */
+	private byte[] nextBlockette() {
+		while (skipRecordHeaders()) {
+			// Records are blank padded when the next blockette doesn't fit
+			int left = recordLength - position % recordLength;
+			byte first = buffer.get(position);
+			if (first < '0' || first > '9' || left < 3) {
+				position += left;
+				continue;
+			}
+			byte[] header = new byte[BLOCKETTE_HEADER_LENGTH];
+			for (int i = 0; i < header.length; i++) {
+				header[i] = nextByte();
+			}
+			int length = Integer.parseInt(new String(header, 3, 4, ASCII)
+					.trim());
+			if (length < BLOCKETTE_HEADER_LENGTH) {
+				throw new NumberFormatException(String.format(
+						"blockette length=[%d]", length));
+			}
+			byte[] body = new byte[length];
+			System.arraycopy(header, 0, body, 0, header.length);
+			for (int i = header.length; i < length; i++) {
+				body[i] = nextByte();
+			}
+			return body;
+		}
+		return null;
+	}
+
+	/**
+	 * Decode one blockette. Dictionary blockettes (B030, B033, B034) are
+	 * remembered for the lookups and not returned, as rdseed -s doesn't list
+	 * them either.
+	 */
+	private Blockette decode(byte[] body) {
+		FieldReader in = new FieldReader(body);
+		int number = in.integer(3);
+		in.skip(4);
+
+		Blockette b = new Blockette(number);
+		switch (number) {
+		case 10:
+			b.addFieldValue(3, "SEED Format version", in.fixed(4));
+			b.addFieldValue(4, "Logical record length", in.fixed(2));
+			b.addFieldValue(5, "Beginning of time", in.time());
+			b.addFieldValue(6, "End of time", in.time());
+			if (in.hasMore()) {
+				b.addFieldValue(7, "Volume Time", in.time());
+				b.addFieldValue(8, "Originating Organization", in.variable());
+				b.addFieldValue(9, "Label", in.variable());
+			}
+			return b;
+		case 11:
+			int nstations = in.integer(3);
+			b.addFieldValue(3, "Number of stations", Integer.toString(nstations));
+			for (int i = 0; i < nstations; i++) {
+				b.addFieldValue(4, "Station identifier code", in.fixed(5));
+				b.addFieldValue(5, "Sequence no. of station header",
+						in.fixed(6));
+			}
+			return b;
+		case 30:
+			b.addFieldValue(3, "Format Name", in.variable());
+			int formatCode = in.integer(4);
+			b.addFieldValue(4, "Format Identifier Code",
+					Integer.toString(formatCode));
+			b.addFieldValue(5, "Data family", in.fixed(3));
+			int nkeys = in.integer(2);
+			b.addFieldValue(6, "Number of decoder keys", Integer.toString(nkeys));
+			for (int i = 0; i < nkeys; i++) {
+				b.addFieldValue(7, "Decoder key", in.variable());
+			}
+			formats.put(formatCode, b);
+			return null;
+		case 33:
+			int code = in.integer(3);
+			abbreviations.put(code, in.variable());
+			return null;
+		case 34:
+			int unitCode = in.integer(3);
+			String unitName = in.variable();
+			units.put(unitCode,
+					String.format("%s - %s", unitName, in.variable()));
+			return null;
+		case 50:
+			b.addFieldValue(3, "Station call letters", in.fixed(5));
+			b.addFieldValue(4, "Latitude", in.fixed(10));
+			b.addFieldValue(5, "Longitude", in.fixed(11));
+			b.addFieldValue(6, "Elevation", in.fixed(7));
+			b.addFieldValue(7, "Number of channels", in.fixed(4));
+			b.addFieldValue(8, "Number of station comments", in.fixed(3));
+			b.addFieldValue(9, "Site name", in.variable());
+			b.addFieldValue(10, "Network identifier",
+					lookup(abbreviations, in.integer(3)));
+			b.addFieldValue(11, "32 bit word order", in.fixed(4));
+			b.addFieldValue(12, "16 bit word order", in.fixed(2));
+			b.addFieldValue(13, "Start effective date", in.time());
+			b.addFieldValue(14, "End effective date", in.time());
+			b.addFieldValue(15, "Update flag", in.fixed(1));
+			b.addFieldValue(16, "Network Code", in.fixed(2));
+			return b;
+		case 51:
+		case 59:
+			b.addFieldValue(3, "Beginning of comment", in.time());
+			b.addFieldValue(4, "End of comment", in.time());
+			b.addFieldValue(5, "Comment code key", in.fixed(4));
+			b.addFieldValue(6, "Comment level", in.fixed(6));
+			return b;
+		case 52:
+			b.addFieldValue(3, "Location", in.fixed(2));
+			b.addFieldValue(4, "Channel", in.fixed(3));
+			b.addFieldValue(5, "Subchannel", in.fixed(4));
+			b.addFieldValue(6, "Instrument lookup",
+					lookupWithCode(abbreviations, in.integer(3)));
+			b.addFieldValue(7, "Comment", nullIfEmpty(in.variable()));
+			b.addFieldValue(8, "Signal units lookup",
+					lookupWithCode(units, in.integer(3)));
+			b.addFieldValue(9, "Calibration units lookup",
+					lookupWithCode(units, in.integer(3)));
+			b.addFieldValue(10, "Latitude", in.fixed(10));
+			b.addFieldValue(11, "Longitude", in.fixed(11));
+			b.addFieldValue(12, "Elevation", in.fixed(7));
+			b.addFieldValue(13, "Local depth", in.fixed(5));
+			b.addFieldValue(14, "Azimuth", in.fixed(5));
+			b.addFieldValue(15, "Dip", in.fixed(5));
+			int format = in.integer(4);
+			b.addFieldValue(16, "Format lookup", String.format("%d %s", format,
+					formats.containsKey(format) ? "Format Information Follows"
+							: "No Abbreviation Referenced"));
+			b.addFieldValue(17, "Log2 of Data record length", in.fixed(2));
+			b.addFieldValue(18, "Sample rate", in.fixed(10));
+			b.addFieldValue(19, "Clock tolerance", in.fixed(10));
+			b.addFieldValue(20, "Number of comments", in.fixed(4));
+			b.addFieldValue(21, "Channel flags", in.variable());
+			b.addFieldValue(22, "Start date", in.time());
+			b.addFieldValue(23, "End date", in.time());
+			b.addFieldValue(24, "Update flag", in.fixed(1));
+			return b;
+		case 53:
+			b.addFieldValue(3, "Transfer function type",
+					transferFunctionType(in.fixed(1)));
+			b.addFieldValue(4, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(5, "Response in units lookup",
+					lookup(units, in.integer(3)));
+			b.addFieldValue(6, "Response out units lookup",
+					lookup(units, in.integer(3)));
+			b.addFieldValue(7, "A0 normalization factor", in.fixed(12));
+			b.addFieldValue(8, "Normalization frequency", in.fixed(12));
+			int nzeros = in.integer(3);
+			b.addFieldValue(9, "Number of zeroes", Integer.toString(nzeros));
+			for (int i = 0; i < nzeros; i++) {
+				b.addFieldValue(10, "Real zero", in.fixed(12));
+				b.addFieldValue(11, "Imaginary zero", in.fixed(12));
+				b.addFieldValue(12, "Real zero error", in.fixed(12));
+				b.addFieldValue(13, "Imaginary zero error", in.fixed(12));
+			}
+			int npoles = in.integer(3);
+			b.addFieldValue(14, "Number of poles", Integer.toString(npoles));
+			for (int i = 0; i < npoles; i++) {
+				b.addFieldValue(15, "Real pole", in.fixed(12));
+				b.addFieldValue(16, "Imaginary pole", in.fixed(12));
+				b.addFieldValue(17, "Real pole error", in.fixed(12));
+				b.addFieldValue(18, "Imaginary pole error", in.fixed(12));
+			}
+			return b;
+		case 54:
+			b.addFieldValue(3, "Response type", in.fixed(1));
+			b.addFieldValue(4, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(5, "Response in units lookup",
+					lookup(units, in.integer(3)));
+			b.addFieldValue(6, "Response out units lookup",
+					lookup(units, in.integer(3)));
+			int nnumerators = in.integer(4);
+			b.addFieldValue(7, "Number of numerators",
+					Integer.toString(nnumerators));
+			for (int i = 0; i < nnumerators; i++) {
+				b.addFieldValue(8, "Numerator coefficient", in.fixed(12));
+				b.addFieldValue(9, "Numerator error", in.fixed(12));
+			}
+			int ndenominators = in.integer(4);
+			b.addFieldValue(10, "Number of denominators",
+					Integer.toString(ndenominators));
+			for (int i = 0; i < ndenominators; i++) {
+				b.addFieldValue(11, "Denominator coefficient", in.fixed(12));
+				b.addFieldValue(12, "Denominator error", in.fixed(12));
+			}
+			return b;
+		case 57:
+			b.addFieldValue(3, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(4, "Input sample rate", in.fixed(10));
+			b.addFieldValue(5, "Decimation factor", in.fixed(5));
+			b.addFieldValue(6, "Decimation offset", in.fixed(5));
+			b.addFieldValue(7, "Estimated delay (seconds)", in.fixed(11));
+			b.addFieldValue(8, "Correction applied (seconds)", in.fixed(11));
+			return b;
+		case 58:
+			b.addFieldValue(3, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(4, "Sensitivity", in.fixed(12));
+			b.addFieldValue(5, "Frequency of sensitivity", in.fixed(12)
+					+ " HZ");
+			int nhistory = in.integer(2);
+			b.addFieldValue(6, "Number of calibrations",
+					Integer.toString(nhistory));
+			for (int i = 0; i < nhistory; i++) {
+				b.addFieldValue(7, "Calibration sensitivity", in.fixed(12));
+				b.addFieldValue(8, "Calibration frequency", in.fixed(12));
+				b.addFieldValue(9, "Calibration time", in.time());
+			}
+			return b;
+		case 61:
+			b.addFieldValue(3, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(4, "Response Name", in.variable());
+			b.addFieldValue(5, "Symmetry Code", in.fixed(1));
+			b.addFieldValue(6, "Signal In Units",
+					lookup(units, in.integer(3)));
+			b.addFieldValue(7, "Signal Out Units",
+					lookup(units, in.integer(3)));
+			int ncoefficients = in.integer(4);
+			b.addFieldValue(8, "Number of Coefficients",
+					Integer.toString(ncoefficients));
+			for (int i = 0; i < ncoefficients; i++) {
+				b.addFieldValue(9, "FIR Coefficient", in.fixed(14));
+			}
+			return b;
+		case 62:
+			b.addFieldValue(3, "Transfer function type",
+					transferFunctionType(in.fixed(1)));
+			b.addFieldValue(4, "Stage sequence number", in.fixed(2));
+			b.addFieldValue(5, "Response in units lookup",
+					lookup(units, in.integer(3)));
+			b.addFieldValue(6, "Response out units lookup",
+					lookup(units, in.integer(3)));
+			String approximation = in.fixed(1);
+			b.addFieldValue(7, "Polynomial Approximation Type",
+					approximation.equals("M") ? "M [MacLaurin]" : approximation);
+			b.addFieldValue(8, "Valid Frequency Units", in.fixed(1));
+			b.addFieldValue(9, "Lower Valid Frequency Bound", in.fixed(12));
+			b.addFieldValue(10, "Upper Valid Frequency Bound", in.fixed(12));
+			b.addFieldValue(11, "Lower Bound of Approximation", in.fixed(12));
+			b.addFieldValue(12, "Upper Bound of Approximation", in.fixed(12));
+			b.addFieldValue(13, "Maximum Absolute Error", in.fixed(12));
+			int ncoeffs = in.integer(3);
+			b.addFieldValue(14, "Number of coefficients",
+					Integer.toString(ncoeffs));
+			for (int i = 0; i < ncoeffs; i++) {
+				b.addFieldValue(15, "Polynomial coefficient", in.fixed(12));
+				b.addFieldValue(16, "Polynomial coefficient error",
+						in.fixed(12));
+			}
+			return b;
+		default:
+			logger.debug("Skip blockette B{} ({} bytes) in file=[{}]",
+					String.format("%03d", number), body.length, file);
+			return null;
+		}
+	}
+
+	private static int parseInt(String value) {
+		return Integer.parseInt(value.split("\\s", 2)[0]);
+	}
+
+	private static String nullIfEmpty(String value) {
+		return (value.length() == 0) ? "(null)" : value;
+	}
+
+	/**
+	 * e.g., "M/S - Velocity in Meters Per Second"
+	 */
+	private static String lookup(Hashtable<Integer, String> dictionary,
+			int code) {
+		String value = dictionary.get(code);
+		return (value == null) ? "No Abbreviation Referenced" : value;
+	}
+
+	/**
+	 * e.g., "12 Kinemetrics FBA ES-T EpiSensor Accelerometer"
+	 */
+	private static String lookupWithCode(Hashtable<Integer, String> dictionary,
+			int code) {
+		return String.format("%d %s", code, lookup(dictionary, code));
+	}
+
+	private static String transferFunctionType(String type) {
+		if (type.equals("A")) {
+			return "A [Laplace Transform (Rad/sec)]";
+		} else if (type.equals("B")) {
+			return "B [Analog (Hz)]";
+		} else if (type.equals("C")) {
+			return "C [Composite]";
+		} else if (type.equals("D")) {
+			return "D [Digital (Z-transform)]";
+		} else if (type.equals("P")) {
+			return "P [Polynomial]";
+		}
+		return type;
+	}
+
+	/**
+	 * Reads the fixed (A, D) and variable (V, "~" terminated) length fields
+	 * of one blockette
+	 */
+	private static class FieldReader {
+		private final byte[] body;
+		private int offset;
+
+		FieldReader(byte[] body) {
+			this.body = body;
+			this.offset = 0;
+		}
+
+		boolean hasMore() {
+			return offset < body.length;
+		}
+
+		void skip(int length) {
+			offset += length;
+		}
+
+		String fixed(int length) {
+			if (offset + length > body.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			String value = new String(body, offset, length, ASCII).trim();
+			offset += length;
+			return value;
+		}
+
+		int integer(int length) {
+			return Integer.parseInt(fixed(length));
+		}
+
+		String variable() {
+			int start = offset;
+			while (offset < body.length && body[offset] != '~') {
+				offset++;
+			}
+			String value = new String(body, start, offset - start, ASCII).trim();
+			offset++; // "~"
+			return value;
+		}
+
+		/**
+		 * "YYYY,DDD,HH:MM:SS.FFFF" or "(null)" if the time is empty (= open
+		 * ended epoch)
+		 */
+		String time() {
+			return nullIfEmpty(variable());
+		}
+	}
+}
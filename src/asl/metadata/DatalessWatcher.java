@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.io.File;
+import java.util.Hashtable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DatalessWatcher - Polls the loaded dataless files and has MetaGenerator
+ * reload the ones that changed, so long scans pick up newly published
+ * metadata without a restart.
+ *
+ * A file counts as changed when its modification time or length differs from
+ * the loaded version; it is only reloaded once it has looked the same for a
+ * whole interval, so a file that is still being copied isn't read half
+ * written.
+ */
+public class DatalessWatcher implements Runnable {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.metadata.DatalessWatcher.class);
+
+	public static final long DEFAULT_INTERVAL = 5 * 60 * 1000L;
+
+	private MetaGenerator metaGen;
+	private File dir;
+	private String[] fileNames;
+	private long interval;
+
+	/** The modification time + length of the loaded version of each file */
+	private Hashtable<String, String> loaded;
+	/** The changed version of each file seen at the last check */
+	private Hashtable<String, String> pending;
+
+	public DatalessWatcher(MetaGenerator metaGen, File dir,
+			String[] fileNames, long interval) {
+		this.metaGen = metaGen;
+		this.dir = dir;
+		this.fileNames = fileNames.clone();
+		this.interval = interval;
+		loaded = new Hashtable<String, String>();
+		pending = new Hashtable<String, String>();
+		for (String fileName : fileNames) {
+			loaded.put(fileName, version(fileName));
+		}
+	}
+
+	public void run() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				break;
+			}
+			check();
+		}
+		logger.info("DatalessWatcher stopped");
+	}
+
+	/**
+	 * Reload every file that changed and has been stable since the last check
+	 */
+	void check() {
+		for (String fileName : fileNames) {
+			String version = version(fileName);
+			if (version == null || version.equals(loaded.get(fileName))) {
+				pending.remove(fileName);
+				continue;
+			}
+			if (!version.equals(pending.get(fileName))) {
+				logger.info("Dataless file=[{}] changed, reload it once it is complete",
+						fileName);
+				pending.put(fileName, version);
+				continue;
+			}
+			pending.remove(fileName);
+			if (metaGen.reloadDataless(fileName)) {
+				loaded.put(fileName, version);
+			}
+		}
+	}
+
+	/**
+	 * @return The modification time + length of the file or null if it
+	 *         doesn't exist (e.g., while it is being replaced)
+	 */
+	private String version(String fileName) {
+		File file = new File(dir, fileName);
+		if (!file.exists()) {
+			return null;
+		}
+		return file.lastModified() + ":" + file.length();
+	}
+}
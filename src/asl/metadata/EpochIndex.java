@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * EpochIndex - Sorted index of the epochs of a station or channel.
+ *
+ * The epochs are kept as primitive start/end millis sorted by start time, so
+ * "which epoch contains t" is a binary search and no Calendars are created or
+ * compared. An epoch contains t if start <= t <= end (end == null -> open
+ * epoch); if epochs overlap the newest one containing t wins, as in the old
+ * newest-first scans of StationData and ChannelData.
+ *
+ * The index also answers "when does the answer change" around t: the sorted
+ * boundaries are every start, end + 1 and, for lookahead > 0, end - lookahead +
+ * 1 (e.g., the day before the end of an epoch where ChannelMeta.dayBreak gets
+ * set).
+ *
+ * An index is immutable; rebuild it when epochs are added.
+ */
+class EpochIndex<T> {
+	private final long[] starts;
+	private final long[] ends;
+	// maxEnds[i] = max(ends[0..i]): lets indexOf() stop at the first epoch
+	// no older epoch can reach past
+	private final long[] maxEnds;
+	private final Object[] values;
+	private final long[] boundaries;
+
+	/**
+	 * @param startTimes
+	 *            the epoch start times
+	 * @param endTimes
+	 *            the epoch end times (null = open)
+	 * @param epochValues
+	 *            the value returned for each epoch
+	 * @param lookahead
+	 *            add a boundary at end - lookahead + 1 if > 0
+	 */
+	EpochIndex(long[] startTimes, Long[] endTimes, T[] epochValues,
+			long lookahead) {
+		int n = startTimes.length;
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		final long[] unsorted = startTimes;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return (unsorted[a] < unsorted[b]) ? -1
+						: ((unsorted[a] == unsorted[b]) ? 0 : 1);
+			}
+		});
+
+		starts = new long[n];
+		ends = new long[n];
+		maxEnds = new long[n];
+		values = new Object[n];
+		long[] all = new long[3 * n];
+		int nb = 0;
+		for (int i = 0; i < n; i++) {
+			int j = order[i];
+			starts[i] = startTimes[j];
+			ends[i] = (endTimes[j] == null) ? Long.MAX_VALUE : endTimes[j];
+			values[i] = epochValues[j];
+			maxEnds[i] = (i == 0) ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+			all[nb++] = starts[i];
+			if (endTimes[j] != null) {
+				all[nb++] = ends[i] + 1;
+				if (lookahead > 0) {
+					all[nb++] = ends[i] - lookahead + 1;
+				}
+			}
+		}
+		Arrays.sort(all, 0, nb);
+		int unique = 0;
+		for (int i = 0; i < nb; i++) {
+			if (unique == 0 || all[i] != all[unique - 1]) {
+				all[unique++] = all[i];
+			}
+		}
+		boundaries = Arrays.copyOf(all, unique);
+	}
+
+	int size() {
+		return starts.length;
+	}
+
+	/**
+	 * @return The index (in start time order) of the newest epoch containing
+	 *         time or -1
+	 */
+	int indexOf(long time) {
+		// Last epoch with start <= time
+		int i = upperBound(starts, time) - 1;
+		for (; i >= 0 && time <= maxEnds[i]; i--) {
+			if (time <= ends[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The value of the epoch containing time or null
+	 */
+	@SuppressWarnings("unchecked")
+	T get(long time) {
+		int i = indexOf(time);
+		return (i < 0) ? null : (T) values[i];
+	}
+
+	long getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * @return The end time of the epoch or Long.MAX_VALUE if it is open
+	 */
+	long getEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * @return The last boundary <= time or Long.MIN_VALUE
+	 */
+	long previousChange(long time) {
+		int i = upperBound(boundaries, time) - 1;
+		return (i < 0) ? Long.MIN_VALUE : boundaries[i];
+	}
+
+	/**
+	 * @return The first boundary > time or Long.MAX_VALUE
+	 */
+	long nextChange(long time) {
+		int i = upperBound(boundaries, time);
+		return (i < boundaries.length) ? boundaries[i] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return The index of the first element > key (= a.length if none)
+	 */
+	private static int upperBound(long[] a, long key) {
+		int lo = 0;
+		int hi = a.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (a[mid] <= key) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.rmi.RemoteException;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import asl.metadata.meta_new.StationMeta;
+
+/**
+ * LocalMetaInterface - In-process stand-in for a remote MetaGenerator, for
+ * testing the remote MetaServer code path without an rmi registry:
+ *
+ * <pre>
+ * MetaServer metaServer = new MetaServer(new LocalMetaInterface(metaGen));
+ * </pre>
+ *
+ * Bulk answers are handed over as copies of the encoded bytes, as they would
+ * arrive from rmi, and every call is counted as one round trip.
+ */
+public class LocalMetaInterface implements MetaInterface {
+	private MetaInterface meta;
+	private AtomicInteger requests = new AtomicInteger();
+
+	public LocalMetaInterface(MetaInterface meta) {
+		this.meta = meta;
+	}
+
+	/**
+	 * @return The number of calls (round trips) so far
+	 */
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	public StationMeta getStationMeta(Station station, Calendar timestamp)
+			throws RemoteException, RuntimeException {
+		requests.incrementAndGet();
+		return meta.getStationMeta(station, timestamp);
+	}
+
+	public byte[] getStationMetaRange(Station station, Calendar start,
+			Calendar end) throws RemoteException {
+		requests.incrementAndGet();
+		byte[] encoded = meta.getStationMetaRange(station, start, end);
+		return (encoded == null) ? null : encoded.clone();
+	}
+
+	public List<Station> getStationList() throws RemoteException {
+		requests.incrementAndGet();
+		return meta.getStationList();
+	}
+
+	public String getString() throws RemoteException {
+		requests.incrementAndGet();
+		return meta.getString();
+	}
+}
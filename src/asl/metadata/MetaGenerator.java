@@ -28,10 +28,18 @@ import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,17 +64,64 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 	 * Each datalessDir/XX.dataless file is read into a separate SeedVolume
 	 * keyed by network (e.g., XX)
 	 */
-	private Hashtable<NetworkKey, SeedVolume> volumes = null;
+	private ConcurrentHashMap<NetworkKey, SeedVolume> volumes = null;
+
+	/**
+	 * Time (ms) it took to read + assemble each XX.dataless file
+	 */
+	private ConcurrentHashMap<String, Long> volumeLoadTimes = null;
 
 	private static MetaGenerator instance;
 
+	/**
+	 * The last StationMeta built for each station and the interval [start,
+	 * end) (millis) over which it stays the same
+	 */
+	private ConcurrentHashMap<StationKey, CachedStationMeta> stationMetaCache = null;
+
+	private static class CachedStationMeta {
+		// The StationData it was built from: the entry is stale once a
+		// reloaded volume has replaced it (see replaceVolume())
+		final StationData stationData;
+		final StationMeta stationMeta;
+		final long start;
+		final long end;
+
+		CachedStationMeta(StationData stationData, StationMeta stationMeta,
+				long start, long end) {
+			this.stationData = stationData;
+			this.stationMeta = stationMeta;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * Dataless.getStationChecksums() of each volume that was parsed, to tell
+	 * which stations a reload changed (the volumes from the snapshot or an
+	 * index have the checksums of their stations, see
+	 * SeedVolume.getStationChecksum())
+	 */
+	private ConcurrentHashMap<NetworkKey, Hashtable<StationKey, Long>> stationChecksums = null;
+
+	// What loadDataless() loaded, for reloadDataless()
+	private File loadedDir = null;
+	private String[] datalessFiles = null;
+	private boolean lazyLoad = false;
+	private String snapshotDir = null;
+
+	private Thread watcherThread = null;
+
 	private boolean successfullyLoaded = false;
 
 	/**
 	 * Private constructor to ensure singleton
 	 */
 	private MetaGenerator() throws RemoteException {
-		volumes = new Hashtable<NetworkKey, SeedVolume>();
+		volumes = new ConcurrentHashMap<NetworkKey, SeedVolume>();
+		volumeLoadTimes = new ConcurrentHashMap<String, Long>();
+		stationMetaCache = new ConcurrentHashMap<StationKey, CachedStationMeta>();
+		stationChecksums = new ConcurrentHashMap<NetworkKey, Hashtable<StationKey, Long>>();
 	}
 
 	public static MetaGenerator getInstance() throws RemoteException {
@@ -83,12 +138,36 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 	/**
 	 * 
 	 * loadDataless - Look in datalessDir for all files of form XX.dataless
-	 * where XX = network {II, IU, NE, etc.}
+	 * where XX = network {II, IU, NE, etc.} and for StationXML files of form
+	 * XX.xml (used only if there is no XX.dataless)
 	 * 
 	 * @param datalessDir
 	 *            path to dataless seed files, read from config.xml
 	 */
 	public void loadDataless(String datalessDir, final Set<String> networkSubset) {
+		loadDataless(datalessDir, networkSubset, false);
+	}
+
+	/**
+	 * @param lazy
+	 *            only index the station headers of each volume and read a
+	 *            station the first time it is requested, for scans of a few
+	 *            stations
+	 */
+	public void loadDataless(String datalessDir,
+			final Set<String> networkSubset, boolean lazy) {
+		loadDataless(datalessDir, networkSubset, lazy, null);
+	}
+
+	/**
+	 * @param snapshotDir
+	 *            directory of the metadata snapshot (e.g., the cache_dir of
+	 *            the scan), null = don't use a snapshot. The snapshot is used
+	 *            if it is current, but only written after a full (not lazy)
+	 *            load.
+	 */
+	public void loadDataless(String datalessDir,
+			final Set<String> networkSubset, boolean lazy, String snapshotDir) {
 		File dir = new File(datalessDir);
 		if (!dir.exists()) {
 			logger.error("Path '" + dir + "' does not exist.");
@@ -105,6 +184,7 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 			for (String key : networkSubset) {
 				ext = key + ".dataless";
 				networkExt.add(ext);
+				networkExt.add(key + ".xml");
 			}
 		}
 		FilenameFilter textFilter = new FilenameFilter() {
@@ -121,6 +201,8 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 					} else if (name.endsWith(".dataless")
 							&& (name.length() == 10)) {
 						return true;
+					} else if (StationXmlReader.isNetworkFileName(name)) {
+						return true;
 					} else {
 						return false;
 					}
@@ -128,77 +210,437 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 			}
 		};
 
-		String[] files = dir.list(textFilter);
+		String[] files = dropDuplicateNetworks(dir, dir.list(textFilter));
+		loadedDir = dir;
+		datalessFiles = files;
+		lazyLoad = lazy;
+		this.snapshotDir = snapshotDir;
+
+		// Use the snapshot of the last load if the dataless files haven't
+		// changed since
+		MetadataSnapshot snapshot = getSnapshot(snapshotDir);
+		Hashtable<String, Long> checksums = null;
+		if (snapshot != null) {
+			try {
+				long start = System.currentTimeMillis();
+				checksums = MetadataSnapshot.checksum(dir, files);
+				List<SeedVolume> snapshotVolumes = snapshot.read(checksums);
+				if (snapshotVolumes != null) {
+					for (SeedVolume volume : snapshotVolumes) {
+						addVolume(volume);
+					}
+					logger.info("Loaded {} volumes from metadata snapshot=[{}] in {} ms",
+							snapshotVolumes.size(), snapshot.getFile(),
+							System.currentTimeMillis() - start);
+					successfullyLoaded = true;
+					return;
+				}
+			} catch (IOException e) {
+				logger.error("IOException:", e);
+			}
+		}
 
-		for (String fileName : files) {
-			String datalessFile = dir + "/" + fileName;
-			System.out.format(
-					"== MetaGenerator: rdseed -f [datalessFile=%s]\n",
-					datalessFile);
-			ProcessBuilder pb = new ProcessBuilder("rdseed", "-s", "-f",
-					datalessFile);
+		if (lazy) {
+			loadDatalessLazy(dir, files);
+			successfullyLoaded = true;
+			return;
+		}
 
-			ArrayList<String> strings = new ArrayList<String>();
+		// The volumes are independent: read them concurrently so startup is
+		// bounded by the largest volume rather than the sum of all of them
+		int nThreads = Math.max(1, Math.min(files.length, Runtime.getRuntime()
+				.availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		long loadStart = System.currentTimeMillis();
+		List<Dataless> datalessList = new ArrayList<Dataless>();
+		try {
+			List<Future<Dataless>> tasks = new ArrayList<Future<Dataless>>();
+			for (final String fileName : files) {
+				final String datalessFile = dir + "/" + fileName;
+				tasks.add(executor.submit(new Callable<Dataless>() {
+					public Dataless call() {
+						long start = System.currentTimeMillis();
+						Dataless dataless = readDataless(datalessFile);
+						if (dataless == null) {
+							// The native reader couldn't handle it, let rdseed
+							// try
+							dataless = readDatalessRdseed(datalessFile);
+						}
+						if (dataless != null) {
+							addVolume(dataless.getVolume());
+							stationChecksums.put(dataless.getVolume()
+									.getNetworkKey(), dataless
+									.getStationChecksums());
+						}
+						long elapsed = System.currentTimeMillis() - start;
+						volumeLoadTimes.put(fileName, elapsed);
+						logger.info("Loaded dataless file=[{}] in {} ms",
+								fileName, elapsed);
+						return dataless;
+					}
+				}));
+			}
+			for (int i = 0; i < files.length; i++) {
+				Dataless dataless = tasks.get(i).get();
+				if (dataless == null) {
+					StringBuilder message = new StringBuilder();
+					message.append(String
+							.format("== processing dataless volume==null! for file=[%s]\n",
+									files[i]));
+					logger.error(message.toString());
+					System.exit(0);
+				}
+				datalessList.add(dataless);
+			}
+		} catch (InterruptedException e) {
+			logger.error("InterruptedException:", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.error("ExecutionException:", e);
+		} finally {
+			executor.shutdown();
+		}
+		logger.info("Loaded {} of {} dataless volumes in {} ms using {} threads",
+				datalessList.size(), files.length, System.currentTimeMillis()
+						- loadStart, nThreads);
 
-			SeedVolume volume = null;
+		// Only complete when every file was loaded
+		if (datalessList.size() != files.length) {
+			return;
+		}
 
+		if (snapshot != null && checksums != null) {
 			try {
-				Process process = pb.start();
-				BufferedReader reader = new BufferedReader(
-						new InputStreamReader(process.getInputStream()));
-				String line = null;
-				while ((line = reader.readLine()) != null) {
-					strings.add(line);
-				}
-				int shellExitStatus = process.waitFor();
-			}
-			// Need to catch both IOException and InterruptedException
-			catch (IOException e) {
-				// System.out.println("Error: IOException Description: " +
-				// e.getMessage());
+				snapshot.write(checksums, datalessList);
+			} catch (IOException e) {
 				logger.error("IOException:", e);
-			} catch (InterruptedException e) {
-				// System.out.println("Error: InterruptedException Description: "
-				// + e.getMessage());
-				logger.error("InterruptedException:", e);
 			}
+		}
+
+		successfullyLoaded = true;
+
+	} // end loadDataless()
 
-			Dataless dataless = new Dataless(strings);
+	/**
+	 * @return The snapshot in snapshotDir (created if needed) or null if
+	 *         snapshotDir is null or can't be created
+	 */
+	private static MetadataSnapshot getSnapshot(String snapshotDir) {
+		if (snapshotDir == null) {
+			return null;
+		}
+		File dir = new File(snapshotDir);
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			logger.error("Could not create snapshot dir=[{}], load without the metadata snapshot",
+					dir);
+			return null;
+		}
+		return new MetadataSnapshot(new File(dir,
+				MetadataSnapshot.SNAPSHOT_FILE_NAME));
+	}
 
+	/**
+	 * Start a background thread that reloads dataless files that changed
+	 * (see DatalessWatcher). Does nothing if it is already running.
+	 * 
+	 * @param interval
+	 *            time (ms) between checks of the dataless files
+	 */
+	public synchronized void startWatcher(long interval) {
+		if (watcherThread != null || datalessFiles == null) {
+			return;
+		}
+		watcherThread = new Thread(new DatalessWatcher(this, loadedDir,
+				datalessFiles, interval), "DatalessWatcher");
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+		logger.info("Watching {} dataless files in [{}] every {} ms",
+				datalessFiles.length, loadedDir, interval);
+	}
+
+	/**
+	 * Re-read a dataless file (loaded by loadDataless()) and swap the new
+	 * volume in. StationMetas handed out before keep the old metadata;
+	 * getStationMeta() calls that start after the swap see the new metadata.
+	 * 
+	 * The metadata snapshot (if any) is updated with the new volume, unless
+	 * the metadata was loaded lazily (see loadDataless()).
+	 * 
+	 * @return false if the file could not be read (the old volume stays)
+	 */
+	public boolean reloadDataless(String fileName) {
+		String datalessFile = loadedDir + "/" + fileName;
+		long start = System.currentTimeMillis();
+		SeedVolume volume = null;
+		Hashtable<StationKey, Long> checksums = null;
+		Dataless dataless = null;
+		// Of the file as it was before reading it: if it changes while it is
+		// read, the snapshot is stale on the next start rather than wrong
+		Long fileChecksum = null;
+		if (lazyLoad) {
+			volume = indexDataless(datalessFile);
+		} else if (snapshotDir != null) {
 			try {
-				dataless.processVolume();
-				volume = dataless.getVolume();
-			} catch (Exception e) {
-				// System.out.format("== MetaGenerator: Error processing dataless volume for file=[%s]:%s\n",
-				// fileName, e.getMessage());
-				StringBuilder message = new StringBuilder();
-				message.append(String.format(
-						"== processing dataless volume for file=[%s]\n",
-						fileName));
-				logger.error(message.toString(), e);
+				fileChecksum = MetadataSnapshot.checksum(loadedDir,
+						new String[] { fileName }).get(fileName);
+			} catch (IOException e) {
+				logger.error("IOException:", e);
+			}
+		}
+		if (volume == null) {
+			dataless = readDataless(datalessFile);
+			if (dataless == null) {
+				dataless = readDatalessRdseed(datalessFile);
 			}
+			if (dataless == null) {
+				logger.error("Could not reload dataless file=[{}], keep the loaded volume",
+						fileName);
+				return false;
+			}
+			volume = dataless.getVolume();
+			checksums = dataless.getStationChecksums();
+		}
+		int reused = replaceVolume(volume, checksums);
+		long elapsed = System.currentTimeMillis() - start;
+		volumeLoadTimes.put(fileName, elapsed);
+		logger.info("Reloaded dataless file=[{}] in {} ms ({} unchanged stations kept)",
+				fileName, elapsed, reused);
+
+		if (dataless != null && fileChecksum != null) {
+			updateSnapshot(fileName, fileChecksum, dataless);
+		}
+		return true;
+	}
+
+	/**
+	 * Replace the reloaded volume in the metadata snapshot, so the next start
+	 * can still use it
+	 */
+	private void updateSnapshot(String fileName, long fileChecksum,
+			Dataless dataless) {
+		MetadataSnapshot snapshot = getSnapshot(snapshotDir);
+		if (snapshot == null) {
+			return;
+		}
+		try {
+			if (!snapshot.replace(fileName, fileChecksum, dataless)) {
+				logger.info("No metadata snapshot=[{}] of file=[{}] to update",
+						snapshot.getFile(), fileName);
+			}
+		} catch (IOException e) {
+			logger.error("IOException:", e);
+		}
+	}
 
+	/**
+	 * Swap volume in for the loaded volume of its network. The StationData of
+	 * stations whose checksum didn't change is carried over, so their cached
+	 * StationMetas (and channel digests) stay valid; the cache entries of
+	 * changed stations no longer match and get rebuilt.
+	 * 
+	 * @param checksums
+	 *            the station checksums of a parsed volume (null if volume is
+	 *            indexed)
+	 * @return the number of stations carried over
+	 */
+	private synchronized int replaceVolume(SeedVolume volume,
+			Hashtable<StationKey, Long> checksums) {
+		NetworkKey networkKey = volume.getNetworkKey();
+		SeedVolume oldVolume = volumes.get(networkKey);
+		Hashtable<StationKey, Long> oldChecksums = stationChecksums
+				.get(networkKey);
+		int reused = 0;
+		if (oldVolume != null) {
+			for (StationKey key : oldVolume.getLoadedStationKeys()) {
+				Long oldChecksum = getStationChecksum(oldVolume, oldChecksums,
+						key);
+				if (oldChecksum != null
+						&& oldChecksum.equals(getStationChecksum(volume,
+								checksums, key))) {
+					volume.addStation(key, oldVolume.getLoadedStation(key));
+					reused++;
+				}
+			}
+		}
+		if (checksums != null) {
+			stationChecksums.put(networkKey, checksums);
+		} else {
+			stationChecksums.remove(networkKey);
+		}
+		volumes.put(networkKey, volume);
+		return reused;
+	}
+
+	private static Long getStationChecksum(SeedVolume volume,
+			Hashtable<StationKey, Long> checksums, StationKey key) {
+		if (checksums != null) {
+			return checksums.get(key);
+		}
+		return volume.getStationChecksum(key);
+	}
+
+	/**
+	 * Index the volumes (see DatalessReader.index()) so only the stations
+	 * that are requested get read. A volume that can't be indexed is read in
+	 * full.
+	 */
+	private void loadDatalessLazy(File dir, String[] files) {
+		long loadStart = System.currentTimeMillis();
+		for (String fileName : files) {
+			String datalessFile = dir + "/" + fileName;
+			long start = System.currentTimeMillis();
+			SeedVolume volume = indexDataless(datalessFile);
 			if (volume == null) {
-				// System.out.format("== MetaGenerator: Error processing dataless volume==null! for file=[%s]\n",
-				// fileName);
-				StringBuilder message = new StringBuilder();
-				message.append(String
-						.format("== processing dataless volume==null! for file=[%s]\n"));
-				logger.error(message.toString());
-				System.exit(0);
+				Dataless dataless = readDataless(datalessFile);
+				if (dataless == null) {
+					dataless = readDatalessRdseed(datalessFile);
+				}
+				if (dataless == null) {
+					StringBuilder message = new StringBuilder();
+					message.append(String
+							.format("== processing dataless volume==null! for file=[%s]\n",
+									fileName));
+					logger.error(message.toString());
+					System.exit(0);
+				}
+				volume = dataless.getVolume();
+				stationChecksums.put(volume.getNetworkKey(),
+						dataless.getStationChecksums());
+			}
+			addVolume(volume);
+			long elapsed = System.currentTimeMillis() - start;
+			volumeLoadTimes.put(fileName, elapsed);
+			logger.info("Indexed dataless file=[{}] in {} ms", fileName,
+					elapsed);
+		}
+		logger.info("Indexed {} dataless volumes in {} ms", files.length,
+				System.currentTimeMillis() - loadStart);
+	}
+
+	/**
+	 * @return files without the XX.xml files of networks that also have an
+	 *         XX.dataless file
+	 */
+	private static String[] dropDuplicateNetworks(File dir, String[] files) {
+		List<String> kept = new ArrayList<String>();
+		for (String fileName : files) {
+			if (StationXmlReader.isStationXml(fileName)) {
+				String network = fileName.substring(0, fileName.indexOf('.'));
+				if (new File(dir, network + ".dataless").exists()) {
+					logger.info("Skip [{}], [{}.dataless] is read instead",
+							fileName, network);
+					continue;
+				}
+			}
+			kept.add(fileName);
+		}
+		return kept.toArray(new String[kept.size()]);
+	}
+
+	/**
+	 * @return the volume with its stations registered for lazy reading or
+	 *         null if the file could not be indexed
+	 */
+	private SeedVolume indexDataless(String datalessFile) {
+		if (StationXmlReader.isStationXml(datalessFile)) {
+			// Read in full, StationXML has no record offsets to index
+			return null;
+		}
+		logger.info("== MetaGenerator: index [datalessFile={}]", datalessFile);
+		try {
+			return new DatalessReader(new File(datalessFile)).index();
+		} catch (IOException e) {
+			logger.error("IOException:", e);
+		} catch (DatalessParseException e) {
+			logger.error(String.format(
+					"== indexing dataless volume for file=[%s]\n",
+					datalessFile), e);
+		}
+		return null;
+	}
+
+	/**
+	 * Decode the binary dataless file with DatalessReader (or a StationXML
+	 * file with StationXmlReader)
+	 *
+	 * @return the processed dataless or null if the file could not be read
+	 */
+	private Dataless readDataless(String datalessFile) {
+		logger.info("== MetaGenerator: read [datalessFile={}]", datalessFile);
+		try {
+			ArrayList<Blockette> blockettes;
+			if (StationXmlReader.isStationXml(datalessFile)) {
+				blockettes = new StationXmlReader(new File(datalessFile)).read();
 			} else {
-				addVolume(volume);
+				blockettes = new DatalessReader(new File(datalessFile)).read();
 			}
+			Dataless dataless = new Dataless(blockettes);
+			dataless.processVolume();
+			return (dataless.getVolume() == null) ? null : dataless;
+		} catch (IOException e) {
+			logger.error("IOException:", e);
+		} catch (DatalessParseException e) {
+			logger.error(String.format(
+					"== processing dataless volume for file=[%s]\n",
+					datalessFile), e);
+		}
+		return null;
+	}
 
-		} // end for loop over XX.dataless files
+	/**
+	 * Read the dataless file from the text output of rdseed -s
+	 *
+	 * @return the processed dataless or null if rdseed failed
+	 */
+	private Dataless readDatalessRdseed(String datalessFile) {
+		if (StationXmlReader.isStationXml(datalessFile)) {
+			return null; // rdseed only reads SEED
+		}
+		System.out.format("== MetaGenerator: rdseed -f [datalessFile=%s]\n",
+				datalessFile);
+		ProcessBuilder pb = new ProcessBuilder("rdseed", "-s", "-f",
+				datalessFile);
 
-		successfullyLoaded = true;
+		ArrayList<String> strings = new ArrayList<String>();
 
-	} // end loadDataless()
+		SeedVolume volume = null;
+
+		try {
+			Process process = pb.start();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					process.getInputStream()));
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				strings.add(line);
+			}
+			process.waitFor();
+		}
+		// Need to catch both IOException and InterruptedException
+		catch (IOException e) {
+			logger.error("IOException:", e);
+		} catch (InterruptedException e) {
+			logger.error("InterruptedException:", e);
+		}
+
+		Dataless dataless = new Dataless(strings);
+
+		try {
+			dataless.processVolume();
+			volume = dataless.getVolume();
+		} catch (Exception e) {
+			StringBuilder message = new StringBuilder();
+			message.append(String.format(
+					"== processing dataless volume for file=[%s]\n",
+					datalessFile));
+			logger.error(message.toString(), e);
+		}
+		return (volume == null) ? null : dataless;
+	}
 
 	private void addVolume(SeedVolume volume) {
 		NetworkKey networkKey = volume.getNetworkKey();
-		if (volumes.containsKey(networkKey)) {
+		if (volumes.putIfAbsent(networkKey, volume) != null) {
 			// System.out.format("== MetaGenerator Error: Attempting to load volume networkKey=[%s] --> Already loaded!\n",
 			// networkKey);
 			StringBuilder message = new StringBuilder();
@@ -206,11 +648,17 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 					.format("== Attempting to load volume networkKey=[%s] --> Already loaded!\n",
 							networkKey));
 			logger.error(message.toString());
-		} else {
-			volumes.put(networkKey, volume);
 		}
 	}
 
+	/**
+	 * @return The time (ms) it took to load each dataless file, keyed by file
+	 *         name
+	 */
+	public Map<String, Long> getVolumeLoadTimes() {
+		return Collections.unmodifiableMap(volumeLoadTimes);
+	}
+
 	public boolean isLoaded() {
 		return successfullyLoaded;
 	}
@@ -298,8 +746,72 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 
 	public StationMeta getStationMeta(Station station, Calendar timestamp)
 			throws RemoteException, RuntimeException {
+		CachedStationMeta cached = getCachedStationMeta(station, timestamp);
+		if (cached == null) {
+			return null;
+		}
+		return copyForDate(cached.stationMeta, timestamp);
+	}
 
+	/**
+	 * getStationMetaRange - Bulk version of getStationMeta for remote
+	 * MetaServers: one StationMeta per epoch interval overlapping [start,
+	 * end], encoded by StationMetaRange.
+	 */
+	public byte[] getStationMetaRange(Station station, Calendar start,
+			Calendar end) throws RemoteException {
 		StationData stationData = getStationData(station);
+		if (stationData == null) {
+			return null;
+		}
+		StationMetaRange range = new StationMetaRange(station);
+		Calendar timestamp = (Calendar) start.clone();
+		long endTime = end.getTimeInMillis();
+		long time = start.getTimeInMillis();
+		while (time <= endTime) {
+			timestamp.setTimeInMillis(time);
+			CachedStationMeta cached = getCachedStationMeta(station, timestamp);
+			if (cached != null) {
+				range.addSegment(cached.start, cached.end, cached.stationMeta);
+				time = cached.end;
+			} else { // No station epoch: the gap up to the next change
+				long[] interval = stationData.getEpochInterval(time);
+				range.addSegment(interval[0], interval[1], null);
+				time = interval[1];
+			}
+			if (time == Long.MAX_VALUE) {
+				break;
+			}
+		}
+		try {
+			return range.encode();
+		} catch (IOException e) {
+			logger.error("IOException:", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return The cached StationMeta (and its epoch interval) for timestamp,
+	 *         built if the cached one is for another interval, or null if the
+	 *         station has no metadata for timestamp
+	 */
+	private CachedStationMeta getCachedStationMeta(Station station,
+			Calendar timestamp) {
+
+		// Metadata epochs last months/years: reuse the StationMeta built for
+		// an earlier day of the same epoch interval (of the current volume)
+		StationKey stationKey = new StationKey(station);
+		long time = timestamp.getTimeInMillis();
+		StationData stationData = getStationData(station);
+		CachedStationMeta cached = stationMetaCache.get(stationKey);
+		if (cached != null && cached.stationData == stationData
+				&& time >= cached.start && time < cached.end) {
+			logger.debug("getStationMeta [{}] [{}] from cache", station,
+					EpochData.epochToDateString(timestamp));
+			return cached;
+		}
+
 		if (stationData == null) { // This can happen if the file
 									// DATALESS.IW_LKWY.seed doesn't match
 			StringBuilder message = new StringBuilder();
@@ -313,7 +825,7 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 		}
 		// Scan stationData for the correct station blockette (050) for this
 		// timestamp - return null if it isn't found
-		Blockette blockette = stationData.getBlockette(timestamp);
+		Blockette blockette = stationData.getBlockette(time);
 
 		if (blockette == null) {
 			StringBuilder message = new StringBuilder();
@@ -351,28 +863,20 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 			for (ChannelKey key : keys) {
 				// System.out.println("==Channel:"+key );
 				ChannelData channel = channels.get(key);
-				// ChannelMeta channelMeta = new ChannelMeta(key,timestamp);
-				ChannelMeta channelMeta = new ChannelMeta(key, timestamp,
-						station);
-
-				// See if this channel contains the requested epoch time and if
-				// so return the key
-				// (=Epoch Start timestamp)
-				// channel.printEpochs();
-				Calendar epochTimestamp = channel.containsEpoch(timestamp);
-				if (epochTimestamp != null) {
-					EpochData epochData = channel.getEpoch(epochTimestamp);
+
+				// Binary search the channel's epoch index for the requested
+				// epoch time
+				EpochData epochData = channel.getEpoch(time);
+				if (epochData != null) {
+					ChannelMeta channelMeta = new ChannelMeta(key, timestamp,
+							station);
 
 					// If the epoch is closed, check that the end time is at
 					// least 24 hours later than the requested time
 					if (epochData.getEndTime() != null) {
-						// Make sure this epoch end time is > requested time +
-						// 24 hours
-						long epochStart = epochData.getStartTime()
-								.getTimeInMillis();
 						long epochEnd = epochData.getEndTime()
 								.getTimeInMillis();
-						if (epochEnd < (timestamp.getTimeInMillis() + 24 * 3600 * 1000)) {
+						if (epochEnd < (time + StationData.DAY_BREAK_MILLIS)) {
 							channelMeta.setDayBreak(); // set
 														// channelMeta.dayBreak
 														// = true
@@ -380,18 +884,32 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 					}
 					channelMeta.processEpochData(epochData);
 					stationMeta.addChannel(key, channelMeta);
-				} else { // The channel does NOT contain the epoch time -->
-							// reset ChannelMeta to null
-					channelMeta = null;
 				}
 			}
 
-			return stationMeta;
+			long[] interval = stationData.getEpochInterval(time);
+			cached = new CachedStationMeta(stationData, stationMeta,
+					interval[0], interval[1]);
+			stationMetaCache.put(stationKey, cached);
+			return cached;
 		} catch (RuntimeException e) {
 			throw e;
 		}
 	}
 
+	/**
+	 * The cached stationMeta must not be handed out, since callers may add
+	 * (e.g., rotated) channels to theirs.
+	 */
+	private StationMeta copyForDate(StationMeta stationMeta, Calendar timestamp) {
+		try {
+			return stationMeta.copyForDate(timestamp);
+		} catch (WrongBlocketteException e) {
+			logger.error("WrongBlocketteException:", e);
+			return null;
+		}
+	}
+
 	public static void main(String[] args) {
 		System.out.println("=== Start MetaGenerator Server ====");
 		try {
@@ -399,6 +917,7 @@ public class MetaGenerator extends UnicastRemoteObject implements MetaInterface
 			metaGen.loadDataless(
 					"/Users/mth/mth/ASLData/dcc/metadata/dataless", null);
 			metaGen.print();
+			metaGen.startWatcher(DatalessWatcher.DEFAULT_INTERVAL);
 
 			Naming.rebind("MetaGen", metaGen);
 			System.out.println("== MetaGen Server is ready");
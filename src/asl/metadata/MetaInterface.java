@@ -22,6 +22,14 @@ public interface MetaInterface extends Remote {
 	public StationMeta getStationMeta(Station station, Calendar timestamp)
 			throws RemoteException, RuntimeException;
 
+	/**
+	 * Bulk request: the metadata of station for every metadata epoch
+	 * overlapping [start, end], as an encoded asl.metadata.StationMetaRange
+	 * (null if the station is unknown)
+	 */
+	public byte[] getStationMetaRange(Station station, Calendar start,
+			Calendar end) throws RemoteException;
+
 	public List<Station> getStationList() throws RemoteException;
 
 	public String getString() throws RemoteException;
@@ -18,13 +18,16 @@
  */
 package asl.metadata;
 
+import java.io.IOException;
 import java.net.URI;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +48,46 @@ public class MetaServer {
 	private MetaInterface meta;
 	private boolean useRemoteMeta = false;
 
+	/**
+	 * Remote metadata is requested per station for this many days around
+	 * the requested day (see getStationMetaRange()). The answer holds one
+	 * StationMeta per metadata epoch, not per day, so a wide window is cheap.
+	 */
+	private static final int RANGE_DAYS = 366;
+	private static final long DAY_MILLIS = 24 * 3600 * 1000L;
+
+	/**
+	 * The last StationMetaRange fetched for each remote station
+	 */
+	private ConcurrentHashMap<StationKey, CachedRange> stationMetaRanges = new ConcurrentHashMap<StationKey, CachedRange>();
+
+	/**
+	 * Time (ms) after which a cached StationMetaRange is fetched again, so
+	 * dataless files reloaded by the remote MetaGenerator are picked up (0 =
+	 * keep the ranges, see startMetadataWatcher())
+	 */
+	private volatile long rangeExpiry = 0;
+
+	private static class CachedRange {
+		final StationMetaRange range;
+		final long fetched;
+
+		CachedRange(StationMetaRange range, long fetched) {
+			this.range = range;
+			this.fetched = fetched;
+		}
+	}
+
+	// false if the remote MetaGenerator doesn't know the bulk requests
+	private volatile boolean useRangeRequests = true;
+
+	/**
+	 * Time (ms) to use single day requests after a range request failed for
+	 * another reason (e.g., the connection), before it is tried again
+	 */
+	private static final long RANGE_RETRY_MILLIS = 60 * 1000L;
+	private volatile long rangeRetryTime = 0;
+
 	/**
 	 * Private constructor to ensure singleton
 	 */
@@ -66,18 +109,61 @@ public class MetaServer {
 		useRemoteMeta = true;
 	}
 
+	// Use the given MetaInterface as if it were a remote MetaGenerator (e.g.,
+	// LocalMetaInterface to run the remote code path without rmi)
+	public MetaServer(MetaInterface remoteMeta) {
+		meta = remoteMeta;
+		useRemoteMeta = true;
+	}
+
 	// Empty constructor --> Use local MetaGenerator class to load metadata
 	public MetaServer(String datalessDir, Set<String> networkSubset) {
-		logger.info("use *Local* MetaGenerator: datalessDir=" + datalessDir);
+		this(datalessDir, networkSubset, false);
+	}
+
+	// lazy --> Only read the stations that are requested (see
+	// MetaGenerator.loadDataless)
+	public MetaServer(String datalessDir, Set<String> networkSubset,
+			boolean lazy) {
+		this(datalessDir, networkSubset, lazy, null);
+	}
+
+	// snapshotDir --> Keep the metadata snapshot in snapshotDir (null = no
+	// snapshot, see MetaGenerator.loadDataless)
+	public MetaServer(String datalessDir, Set<String> networkSubset,
+			boolean lazy, String snapshotDir) {
+		logger.info("use *Local* MetaGenerator: datalessDir=" + datalessDir
+				+ " lazy=" + lazy + " snapshotDir=" + snapshotDir);
 		try {
 			metaGen = MetaGenerator.getInstance();
 			// metaGen.loadDataless("/Users/mth/mth/ASLData/dcc/metadata/dataless");
-			metaGen.loadDataless(datalessDir, networkSubset);
+			metaGen.loadDataless(datalessDir, networkSubset, lazy, snapshotDir);
 		} catch (Exception e) {
 			logger.error("Exception:", e);
 		}
 	}
 
+	/**
+	 * Reload the local metadata when its dataless files change (see
+	 * DatalessWatcher). A remote MetaGenerator watches its own files, so
+	 * for remote metadata the cached StationMetaRanges expire after interval
+	 * instead and are fetched again.
+	 * 
+	 * @param interval
+	 *            time (ms) between checks of the dataless files
+	 */
+	public void startMetadataWatcher(long interval) {
+		if (useRemoteMeta) {
+			logger.info("Remote metadata: the remote MetaGenerator reloads its own dataless files --> expire cached station metadata every {} ms",
+					interval);
+			rangeExpiry = interval;
+			return;
+		}
+		if (metaGen != null) {
+			metaGen.startWatcher(interval);
+		}
+	}
+
 	public void quit() {
 		try { // Failure to do this may result in a hung application that
 				// doesn't quit
@@ -92,7 +178,7 @@ public class MetaServer {
 		StationMeta stnMeta = null;
 		try {
 			if (useRemoteMeta) {
-				stnMeta = meta.getStationMeta(station, timestamp);
+				stnMeta = getRemoteStationMeta(station, timestamp);
 			} else {
 				stnMeta = metaGen.getStationMeta(station, timestamp);
 			}
@@ -105,6 +191,95 @@ public class MetaServer {
 		return stnMeta;
 	}
 
+	/**
+	 * Serve station-days from the cached StationMetaRange of the station and
+	 * only go to the remote MetaGenerator when the day is outside of it.
+	 */
+	private StationMeta getRemoteStationMeta(Station station,
+			Calendar timestamp) throws RemoteException {
+		if (!useRangeRequests) {
+			return meta.getStationMeta(station, timestamp);
+		}
+		StationKey stationKey = new StationKey(station);
+		long time = timestamp.getTimeInMillis();
+		long now = System.currentTimeMillis();
+		CachedRange cached = stationMetaRanges.get(stationKey);
+		if (cached == null || !cached.range.covers(time)
+				|| (rangeExpiry > 0 && now - cached.fetched >= rangeExpiry)) {
+			StationMetaRange range = null;
+			if (now >= rangeRetryTime) {
+				range = getStationMetaRange(station, timestamp);
+			}
+			if (range == null) {
+				stationMetaRanges.remove(stationKey);
+				return meta.getStationMeta(station, timestamp);
+			}
+			cached = new CachedRange(range, now);
+			stationMetaRanges.put(stationKey, cached);
+		}
+		return cached.range.getStationMeta(timestamp);
+	}
+
+	/**
+	 * @return The StationMetaRange of station for RANGE_DAYS around
+	 *         timestamp or null if it can't be fetched (then
+	 *         getRemoteStationMeta falls back to single day requests)
+	 */
+	private StationMetaRange getStationMetaRange(Station station,
+			Calendar timestamp) {
+		Calendar start = (Calendar) timestamp.clone();
+		start.setTimeInMillis(timestamp.getTimeInMillis() - RANGE_DAYS
+				* DAY_MILLIS);
+		Calendar end = (Calendar) timestamp.clone();
+		end.setTimeInMillis(timestamp.getTimeInMillis() + RANGE_DAYS
+				* DAY_MILLIS);
+		try {
+			byte[] encoded = meta.getStationMetaRange(station, start, end);
+			if (encoded == null) {
+				return null;
+			}
+			StationMetaRange range = StationMetaRange.decode(station, encoded);
+			logger.debug("getStationMetaRange Station={} segments={} bytes={}",
+					station, range.getNumberOfSegments(), encoded.length);
+			return range.covers(timestamp.getTimeInMillis()) ? range : null;
+		} catch (RemoteException e) {
+			if (isMissingMethod(e)) {
+				// An older remote MetaGenerator without the bulk requests
+				logger.warn("Remote MetaGenerator has no getStationMetaRange, use single day requests:",
+						e);
+				useRangeRequests = false;
+			} else {
+				retryRangeRequestsLater(e);
+			}
+		} catch (IOException e) {
+			retryRangeRequestsLater(e);
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if e says the remote object doesn't have the called
+	 *         method (the server can't unmarshal the call: "unrecognized
+	 *         method hash") rather than that the call failed
+	 */
+	private static boolean isMissingMethod(RemoteException e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof UnmarshalException
+					|| cause instanceof NoSuchMethodException
+					|| cause instanceof NoSuchMethodError) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void retryRangeRequestsLater(Exception e) {
+		logger.warn(String.format(
+				"getStationMetaRange failed, use single day requests for %d ms:",
+				RANGE_RETRY_MILLIS), e);
+		rangeRetryTime = System.currentTimeMillis() + RANGE_RETRY_MILLIS;
+	}
+
 	public List<Station> getStationList() {
 		List<Station> stations = null;
 		try {
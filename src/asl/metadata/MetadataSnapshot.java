@@ -0,0 +1,570 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MetadataSnapshot - A compact binary copy of the parsed dataless volumes,
+ * written once after a successful MetaGenerator.loadDataless() and memory
+ * mapped on the next start instead of parsing all the dataless files again.
+ *
+ * The snapshot holds the parsed Blockettes of each volume, grouped by station.
+ * Only the header (the checksums of the dataless files it was built from and
+ * the station index) is read at startup; a station's blockettes are read and
+ * assembled (with Dataless.assemble(), so the StationData is the same as the
+ * one built from the dataless file) the first time the station is requested.
+ *
+ * The snapshot is ignored (and rewritten) as soon as the set of dataless files
+ * or any of their CRC32 checksums change. A volume that MetaGenerator reloads
+ * replaces its old copy in the snapshot (see replace()). The checksum of each
+ * station (Dataless.getStationChecksums()) is kept in the index, so a reload
+ * can tell which stations of a snapshot volume changed.
+ *
+ * Layout (big endian, strings = int length + UTF-8 bytes):
+ *
+ * <pre>
+ * header:  MAGIC VERSION
+ *          nfiles   { name crc32 }
+ *          nvolumes { volumeOffset nstations { network station offset
+ *                     stationChecksum } }
+ * body:    sections, offsets are relative to the start of the body
+ * section: nstrings { string } nblockettes { number nfields { id
+ *          descriptionIndex nvalues { valueIndex } } }
+ * </pre>
+ *
+ * Each section has its own string table, so any station can be decoded on its
+ * own.
+ */
+public class MetadataSnapshot implements StationSource {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.metadata.MetadataSnapshot.class);
+
+	public static final String SNAPSHOT_FILE_NAME = "metadata.snapshot";
+
+	private static final int MAGIC = 0x53534d53; // "SSMS"
+	private static final int VERSION = 2;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File file;
+
+	private MappedByteBuffer buffer = null;
+	private int bodyOffset;
+
+	// The index read by readIndex()
+	private Hashtable<String, Long> fileChecksums = null;
+	private ArrayList<VolumeIndex> volumeIndex = null;
+
+	// The station checksums keyed by the offset of the station
+	private Hashtable<Long, Long> stationChecksums = null;
+
+	/**
+	 * The index entry of one volume: the offsets of its sections (relative to
+	 * the body) and the checksums of its stations
+	 */
+	private static class VolumeIndex {
+		long offset;
+		ArrayList<StationKey> keys = new ArrayList<StationKey>();
+		ArrayList<Long> offsets = new ArrayList<Long>();
+		ArrayList<Long> checksums = new ArrayList<Long>();
+	}
+
+	/**
+	 * The serialized sections of one volume to write
+	 */
+	private static class VolumeSections {
+		byte[] header;
+		ArrayList<StationKey> keys = new ArrayList<StationKey>();
+		ArrayList<byte[]> stations = new ArrayList<byte[]>();
+		ArrayList<Long> checksums = new ArrayList<Long>();
+	}
+
+	public MetadataSnapshot(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Compute the CRC32 of each dataless file
+	 *
+	 * @return checksums keyed by file name
+	 */
+	public static Hashtable<String, Long> checksum(File dir, String[] fileNames)
+			throws IOException {
+		Hashtable<String, Long> checksums = new Hashtable<String, Long>();
+		byte[] bytes = new byte[65536];
+		for (String fileName : fileNames) {
+			CRC32 crc = new CRC32();
+			FileInputStream in = new FileInputStream(new File(dir, fileName));
+			try {
+				int n;
+				while ((n = in.read(bytes)) > 0) {
+					crc.update(bytes, 0, n);
+				}
+			} finally {
+				in.close();
+			}
+			checksums.put(fileName, crc.getValue());
+		}
+		return checksums;
+	}
+
+	/**
+	 * Map the snapshot and create its (lazy) volumes
+	 *
+	 * @param checksums
+	 *            the checksums of the current dataless files
+	 * @return The volumes or null if there is no snapshot or it was built
+	 *         from other dataless files
+	 */
+	public List<SeedVolume> read(Hashtable<String, Long> checksums)
+			throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			if (!readIndex()) {
+				return null;
+			}
+			if (fileChecksums.size() != checksums.size()) {
+				logger.info("Metadata snapshot=[{}] is stale: dataless files were added/removed",
+						file);
+				return null;
+			}
+			for (String fileName : fileChecksums.keySet()) {
+				Long current = checksums.get(fileName);
+				if (current == null
+						|| !current.equals(fileChecksums.get(fileName))) {
+					logger.info("Metadata snapshot=[{}] is stale: file=[{}] has changed",
+							file, fileName);
+					return null;
+				}
+			}
+
+			List<SeedVolume> volumes = new ArrayList<SeedVolume>();
+			for (VolumeIndex index : volumeIndex) {
+				volumes.add(readVolume(index));
+			}
+			return volumes;
+		} catch (RuntimeException e) {
+			// e.g., BufferUnderflowException for a truncated file
+			logger.error(String.format("Corrupt metadata snapshot=[%s]", file),
+					e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return The checksum of the station at offset (written from
+	 *         Dataless.getStationChecksums())
+	 */
+	public Long getStationChecksum(StationKey key, long offset) {
+		return (stationChecksums == null) ? null : stationChecksums
+				.get(offset);
+	}
+
+	/**
+	 * Map the snapshot and read its index
+	 *
+	 * @return false if the snapshot has an old format
+	 */
+	private boolean readIndex() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			raf.close();
+		}
+
+		ByteBuffer in = buffer.duplicate();
+		if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+			logger.info("Metadata snapshot=[{}] has an old format", file);
+			return false;
+		}
+		int nfiles = in.getInt();
+		fileChecksums = new Hashtable<String, Long>();
+		for (int i = 0; i < nfiles; i++) {
+			String fileName = getString(in);
+			fileChecksums.put(fileName, in.getLong());
+		}
+
+		int nvolumes = in.getInt();
+		volumeIndex = new ArrayList<VolumeIndex>();
+		stationChecksums = new Hashtable<Long, Long>();
+		for (int i = 0; i < nvolumes; i++) {
+			VolumeIndex index = new VolumeIndex();
+			index.offset = in.getLong();
+			int nstations = in.getInt();
+			for (int j = 0; j < nstations; j++) {
+				index.keys.add(new StationKey(new Station(getString(in),
+						getString(in))));
+				index.offsets.add(in.getLong());
+				index.checksums.add(in.getLong());
+				stationChecksums.put(index.offsets.get(j),
+						index.checksums.get(j));
+			}
+			volumeIndex.add(index);
+		}
+		bodyOffset = in.position();
+		return true;
+	}
+
+	private NetworkKey readNetworkKey(VolumeIndex index) {
+		return new SeedVolume(readSection(index.offset).get(0))
+				.getNetworkKey();
+	}
+
+	private SeedVolume readVolume(VolumeIndex index) {
+		// B010 (+ B011 station locators)
+		ArrayList<Blockette> blockettes = readSection(index.offset);
+		SeedVolume volume = new SeedVolume(blockettes.get(0));
+		for (int j = 1; j < blockettes.size(); j++) {
+			volume.addStationLocator(blockettes.get(j));
+		}
+		for (int j = 0; j < index.keys.size(); j++) {
+			volume.addLazyStation(index.keys.get(j), this,
+					index.offsets.get(j));
+		}
+		return volume;
+	}
+
+	/**
+	 * Read and assemble one station of the snapshot
+	 *
+	 * @return the station or null if it could not be assembled
+	 */
+	public StationData readStation(Blockette volumeInfo, StationKey key,
+			long offset) {
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>();
+		blockettes.add(volumeInfo);
+		blockettes.addAll(readSection(offset));
+
+		Dataless dataless = new Dataless(blockettes);
+		try {
+			dataless.processVolume();
+		} catch (DatalessParseException e) {
+			logger.error(String.format(
+					"Could not assemble station=[%s] from snapshot=[%s]", key,
+					file), e);
+			return null;
+		}
+		return dataless.getVolume().getStation(key);
+	}
+
+	private ArrayList<Blockette> readSection(long offset) {
+		ByteBuffer in = buffer.duplicate();
+		in.position(bodyOffset + (int) offset);
+
+		int nstrings = in.getInt();
+		String[] strings = new String[nstrings];
+		for (int i = 0; i < nstrings; i++) {
+			strings[i] = getString(in);
+		}
+
+		int nblockettes = in.getInt();
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>(nblockettes);
+		for (int i = 0; i < nblockettes; i++) {
+			Blockette blockette = new Blockette(in.getShort());
+			int nfields = in.getShort();
+			for (int j = 0; j < nfields; j++) {
+				int fieldID = in.getShort();
+				String description = strings[in.getInt()];
+				int nvalues = in.getInt();
+				for (int k = 0; k < nvalues; k++) {
+					blockette.addFieldValue(fieldID, description,
+							strings[in.getInt()]);
+				}
+			}
+			blockettes.add(blockette);
+		}
+		return blockettes;
+	}
+
+	/**
+	 * @return The raw bytes of the section at offset (it ends at the next
+	 *         section or the end of the body)
+	 */
+	private byte[] copySection(long offset, TreeSet<Long> sectionOffsets) {
+		long end = sectionOffsets.higher(offset);
+		byte[] bytes = new byte[(int) (end - offset)];
+		ByteBuffer in = buffer.duplicate();
+		in.position(bodyOffset + (int) offset);
+		in.get(bytes);
+		return bytes;
+	}
+
+	private static String getString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Write the snapshot of the parsed dataless volumes (to a temp file that
+	 * replaces the old snapshot once complete)
+	 *
+	 * @param checksums
+	 *            the checksums of the dataless files the volumes were read
+	 *            from
+	 * @param datalessList
+	 *            the processed dataless volumes
+	 */
+	public void write(Hashtable<String, Long> checksums,
+			List<Dataless> datalessList) throws IOException {
+		List<VolumeSections> volumes = new ArrayList<VolumeSections>();
+		for (Dataless dataless : datalessList) {
+			volumes.add(serialize(dataless));
+		}
+		writeFile(checksums, volumes);
+	}
+
+	/**
+	 * Replace the copy of the volume of dataless (the volume of the same
+	 * network) in the snapshot with dataless, keeping the other volumes as
+	 * they are
+	 *
+	 * @param fileName
+	 *            the dataless file dataless was read from
+	 * @param checksum
+	 *            the checksum of the file (see checksum())
+	 * @return false if there is no current snapshot to update
+	 */
+	public boolean replace(String fileName, long checksum, Dataless dataless)
+			throws IOException {
+		if (!file.exists() || !readIndex()
+				|| !fileChecksums.containsKey(fileName)) {
+			return false;
+		}
+		NetworkKey networkKey = dataless.getVolume().getNetworkKey();
+		if (networkKey == null) {
+			return false;
+		}
+
+		TreeSet<Long> sectionOffsets = new TreeSet<Long>();
+		for (VolumeIndex index : volumeIndex) {
+			sectionOffsets.add(index.offset);
+			sectionOffsets.addAll(index.offsets);
+		}
+		sectionOffsets.add((long) (buffer.limit() - bodyOffset));
+
+		List<VolumeSections> volumes = new ArrayList<VolumeSections>();
+		boolean replaced = false;
+		for (VolumeIndex index : volumeIndex) {
+			if (networkKey.equals(readNetworkKey(index))) {
+				volumes.add(serialize(dataless));
+				replaced = true;
+				continue;
+			}
+			VolumeSections sections = new VolumeSections();
+			sections.header = copySection(index.offset, sectionOffsets);
+			for (int i = 0; i < index.keys.size(); i++) {
+				sections.keys.add(index.keys.get(i));
+				sections.stations.add(copySection(index.offsets.get(i),
+						sectionOffsets));
+				sections.checksums.add(index.checksums.get(i));
+			}
+			volumes.add(sections);
+		}
+		if (!replaced) {
+			volumes.add(serialize(dataless));
+		}
+		// The copied sections are in memory: let go of the old snapshot
+		buffer = null;
+
+		Hashtable<String, Long> checksums = new Hashtable<String, Long>(
+				fileChecksums);
+		checksums.put(fileName, checksum);
+		writeFile(checksums, volumes);
+		return true;
+	}
+
+	/**
+	 * Split the volume into its header and station sections
+	 */
+	private static VolumeSections serialize(Dataless dataless)
+			throws IOException {
+		ArrayList<Blockette> header = new ArrayList<Blockette>();
+		ArrayList<StationKey> keys = new ArrayList<StationKey>();
+		Hashtable<StationKey, ArrayList<Blockette>> stations = new Hashtable<StationKey, ArrayList<Blockette>>();
+		ArrayList<Blockette> current = null;
+		for (Blockette blockette : dataless.getBlockettes()) {
+			int number = blockette.getNumber();
+			if (number == 10 || number == 11) {
+				header.add(blockette);
+				continue;
+			}
+			if (number == 50) {
+				StationKey key;
+				try {
+					key = new StationKey(blockette);
+				} catch (WrongBlocketteException e) {
+					throw new IOException(e.getMessage());
+				}
+				current = stations.get(key);
+				if (current == null) {
+					current = new ArrayList<Blockette>();
+					stations.put(key, current);
+					keys.add(key);
+				}
+			}
+			if (current != null) {
+				current.add(blockette);
+			}
+		}
+
+		Hashtable<StationKey, Long> stationChecksums = dataless
+				.getStationChecksums();
+		VolumeSections sections = new VolumeSections();
+		sections.header = section(header);
+		for (StationKey key : keys) {
+			sections.keys.add(key);
+			sections.stations.add(section(stations.get(key)));
+			sections.checksums.add(stationChecksums.get(key));
+		}
+		return sections;
+	}
+
+	private void writeFile(Hashtable<String, Long> checksums,
+			List<VolumeSections> volumes) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(checksums.size());
+			for (String fileName : checksums.keySet()) {
+				putString(out, fileName);
+				out.writeLong(checksums.get(fileName));
+			}
+			long offset = 0;
+			out.writeInt(volumes.size());
+			for (VolumeSections volume : volumes) {
+				out.writeLong(offset);
+				offset += volume.header.length;
+				out.writeInt(volume.keys.size());
+				for (int i = 0; i < volume.keys.size(); i++) {
+					StationKey key = volume.keys.get(i);
+					putString(out, key.getNetwork());
+					putString(out, key.getName());
+					out.writeLong(offset);
+					out.writeLong(volume.checksums.get(i));
+					offset += volume.stations.get(i).length;
+				}
+			}
+			for (VolumeSections volume : volumes) {
+				out.write(volume.header);
+				for (byte[] station : volume.stations) {
+					out.write(station);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to replace snapshot=" + file);
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Unable to rename " + temp + " to " + file);
+		}
+		logger.info("Wrote metadata snapshot=[{}] ({} bytes)", file,
+				file.length());
+	}
+
+	private static byte[] section(List<Blockette> blockettes)
+			throws IOException {
+		Hashtable<String, Integer> stringIndex = new Hashtable<String, Integer>();
+		ArrayList<String> strings = new ArrayList<String>();
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(data);
+		out.writeInt(blockettes.size());
+		for (Blockette blockette : blockettes) {
+			Hashtable<Integer, Field> fields = blockette.getFields();
+			out.writeShort(blockette.getNumber());
+			out.writeShort(fields.size());
+			for (Field field : fields.values()) {
+				out.writeShort(field.getID());
+				out.writeInt(intern(field.getDescription(), stringIndex,
+						strings));
+				ArrayList<String> values = field.getValues();
+				out.writeInt(values.size());
+				for (String value : values) {
+					out.writeInt(intern(value, stringIndex, strings));
+				}
+			}
+		}
+		out.flush();
+
+		ByteArrayOutputStream section = new ByteArrayOutputStream();
+		DataOutputStream sectionOut = new DataOutputStream(section);
+		sectionOut.writeInt(strings.size());
+		for (String string : strings) {
+			putString(sectionOut, string);
+		}
+		data.writeTo(sectionOut);
+		sectionOut.flush();
+		return section.toByteArray();
+	}
+
+	private static int intern(String string,
+			Hashtable<String, Integer> stringIndex, ArrayList<String> strings) {
+		if (string == null) {
+			string = "";
+		}
+		Integer index = stringIndex.get(string);
+		if (index == null) {
+			index = strings.size();
+			stringIndex.put(string, index);
+			strings.add(string);
+		}
+		return index;
+	}
+
+	private static void putString(DataOutputStream out, String string)
+			throws IOException {
+		byte[] bytes = string.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -31,6 +31,15 @@ public class SeedVolume {
 	/** The station list. */
 	private Hashtable<StationKey, StationData> stations;
 
+	/**
+	 * Stations from the metadata snapshot or an indexed dataless file, keyed
+	 * to their offset in the source (they are read when first requested).
+	 */
+	private Hashtable<StationKey, Long> lazyStations = null;
+
+	/** The source the lazyStations are read from. */
+	private StationSource stationSource = null;
+
 	/**
 	 * Instantiates a new seed volume.
 	 */
@@ -76,7 +85,8 @@ public class SeedVolume {
 	 * @return true, if station hashtable has stationkey
 	 */
 	public boolean hasStation(StationKey key) {
-		return stations.containsKey(key);
+		return stations.containsKey(key)
+				|| (lazyStations != null && lazyStations.containsKey(key));
 	}
 
 	/**
@@ -87,9 +97,81 @@ public class SeedVolume {
 	 * @return the station
 	 */
 	public StationData getStation(StationKey key) {
+		StationData data = stations.get(key);
+		if (data == null && lazyStations != null) {
+			data = readLazyStation(key);
+		}
+		return data;
+	}
+
+	/**
+	 * @return The station if it has been read (lazy stations aren't read)
+	 */
+	StationData getLoadedStation(StationKey key) {
 		return stations.get(key);
 	}
 
+	/**
+	 * @return The checksum of a station of the snapshot or indexed dataless
+	 *         file (see StationSource.getStationChecksum()) or null if the
+	 *         station isn't from a source
+	 */
+	Long getStationChecksum(StationKey key) {
+		Long offset = (lazyStations == null) ? null : lazyStations.get(key);
+		if (offset == null) {
+			return null;
+		}
+		return stationSource.getStationChecksum(key, offset);
+	}
+
+	/**
+	 * @return The keys of the stations that have been read
+	 */
+	List<StationKey> getLoadedStationKeys() {
+		return new ArrayList<StationKey>(stations.keySet());
+	}
+
+	/**
+	 * Adds a station that will be read from its source the first time it is
+	 * requested.
+	 * 
+	 * @param key
+	 *            the station key
+	 * @param source
+	 *            the snapshot or dataless file holding the station
+	 * @param offset
+	 *            the offset of the station in the source
+	 */
+	void addLazyStation(StationKey key, StationSource source, long offset) {
+		if (lazyStations == null) {
+			lazyStations = new Hashtable<StationKey, Long>();
+		}
+		this.stationSource = source;
+		lazyStations.put(key, offset);
+	}
+
+	/**
+	 * Read a station from its source (once) and add it to the station
+	 * hashtable.
+	 */
+	private synchronized StationData readLazyStation(StationKey key) {
+		StationData data = stations.get(key);
+		if (data != null) {
+			return data;
+		}
+		Long offset = lazyStations.get(key);
+		if (offset == null) {
+			return null;
+		}
+		data = stationSource.readStation(volumeInfo, key, offset);
+		if (data != null) {
+			stations.put(key, data);
+		} else { // Don't try again
+			lazyStations.remove(key);
+		}
+		return data;
+	}
+
 	// volume info
 	/**
 	 * Sets the volume info.
@@ -160,6 +242,9 @@ public class SeedVolume {
 		ArrayList<Station> stns = new ArrayList<Station>();
 		TreeSet<StationKey> keys = new TreeSet<StationKey>();
 		keys.addAll(stations.keySet());
+		if (lazyStations != null) {
+			keys.addAll(lazyStations.keySet());
+		}
 
 		for (StationKey key : keys) {
 			stns.add(new Station(key.getNetwork(), key.getName()));
@@ -34,9 +34,17 @@ public class StationData {
 	public static final int STATION_EPOCH_BLOCKETTE_NUMBER = 50;
 	public static final int STATION_COMMENT_BLOCKETTE_NUMBER = 51;
 
+	/**
+	 * A channel epoch ending less than this after the requested time gets
+	 * ChannelMeta.dayBreak set (see MetaGenerator.getStationMeta)
+	 */
+	public static final long DAY_BREAK_MILLIS = 24 * 3600 * 1000L;
+
 	private Hashtable<Calendar, Blockette> comments;
 	private Hashtable<Calendar, Blockette> epochs;
 	private Hashtable<ChannelKey, ChannelData> channels;
+	// Sorted index of the station epochs (built on first use)
+	private volatile EpochIndex<Blockette> epochIndex = null;
 	private String network = null;
 	private String name = null;
 
@@ -104,6 +112,7 @@ public class StationData {
 			Calendar timestamp = BlocketteTimestamp
 					.parseTimestamp(timestampString);
 			epochs.put(timestamp, blockette);
+			epochIndex = null;
 			return timestamp;
 		} catch (TimestampFormatException e) {
 			throw e;
@@ -118,81 +127,91 @@ public class StationData {
 		return epochs.get(timestamp);
 	}
 
-	/**
-	 * Epoch index ----------- ONLY THIS EPOCH! 0 newest startTimestamp - newest
-	 * endTimestamp (may be "null") 1 ... - ... 2 ... - ... . ... - ... n-1
-	 * oldest startTimestamp - oldest endTimestamp
-	 **/
-	// public boolean containsEpoch(Calendar epochTime)
-
 	// Return the correct Blockette 050 for the requested epochTime
 	// Return null if epochTime not contained
 	public Blockette getBlockette(Calendar epochTime) {
-		boolean containsEpochTime = false;
+		return getBlockette(epochTime.getTimeInMillis());
+	}
 
-		ArrayList<Calendar> epochtimes = new ArrayList<Calendar>();
-		epochtimes.addAll(epochs.keySet());
-		Collections.sort(epochtimes);
-		Collections.reverse(epochtimes);
-		int nEpochs = epochtimes.size();
-
-		Calendar startTimeStamp = null;
-		Calendar endTimeStamp = null;
-		Calendar timestamp = null;
-
-		// Loop through Blockettes (B050) and pick out epoch end dates
-		for (int i = 0; i < nEpochs; i++) {
-			endTimeStamp = null;
-			startTimeStamp = epochtimes.get(i);
+	public Blockette getBlockette(long epochTime) {
+		return getEpochIndex().get(epochTime);
+	}
+
+	/**
+	 * getEpochInterval - The interval [start, end) of times (in millis)
+	 * around epochTime for which the metadata of this station doesn't change.
+	 * 
+	 * Every station/channel epoch start, end and end - 24 hours (where
+	 * MetaGenerator sets ChannelMeta.dayBreak) is a boundary: between two
+	 * consecutive boundaries getBlockette(), ChannelData.containsEpoch() and
+	 * the dayBreak test all give the same answer.
+	 * 
+	 * @return {start, end} (Long.MIN_VALUE/MAX_VALUE if unbounded)
+	 */
+	public long[] getEpochInterval(Calendar epochTime) {
+		return getEpochInterval(epochTime.getTimeInMillis());
+	}
+
+	public long[] getEpochInterval(long epochTime) {
+		EpochIndex<Blockette> index = getEpochIndex();
+		long[] interval = { index.previousChange(epochTime),
+				index.nextChange(epochTime) };
+		for (ChannelData channel : channels.values()) {
+			EpochIndex<Calendar> channelIndex = channel.getEpochIndex();
+			interval[0] = Math.max(interval[0],
+					channelIndex.previousChange(epochTime));
+			interval[1] = Math.min(interval[1],
+					channelIndex.nextChange(epochTime));
+		}
+		return interval;
+	}
+
+	private EpochIndex<Blockette> getEpochIndex() {
+		EpochIndex<Blockette> index = epochIndex;
+		if (index == null) {
+			index = buildEpochIndex();
+		}
+		return index;
+	}
+
+	private synchronized EpochIndex<Blockette> buildEpochIndex() {
+		if (epochIndex != null) {
+			return epochIndex;
+		}
+		int n = epochs.size();
+		long[] starts = new long[n];
+		Long[] ends = new Long[n];
+		Blockette[] blockettes = new Blockette[n];
+		int i = 0;
+		for (Calendar startTimeStamp : epochs.keySet()) {
 			Blockette blockette = epochs.get(startTimeStamp);
-			String timestampString = blockette.getFieldValue(14, 0);
-			if (!timestampString.equals("(null)")) {
-				try {
-					endTimeStamp = BlocketteTimestamp
-							.parseTimestamp(timestampString);
-				} catch (TimestampFormatException e) {
-					StringBuilder message = new StringBuilder();
-					message.append(String
-							.format("StationData.printEpochs() Error converting timestampString=%s",
-									timestampString));
-					logger.error(message.toString(), e);
-				}
-			}
-			if (endTimeStamp == null) { // This Epoch is open
-				if (epochTime.getTimeInMillis() >= startTimeStamp
-						.getTimeInMillis()) {
-					containsEpochTime = true;
-					return blockette;
-					// break;
-				}
-			} // This Epoch is closed
-			else if (epochTime.getTimeInMillis() >= startTimeStamp
-					.getTimeInMillis()
-					&& epochTime.getTimeInMillis() <= endTimeStamp
-							.getTimeInMillis()) {
-				containsEpochTime = true;
-				return blockette;
-				// break;
-			}
-		} // for
-		return null; // If we made it to here than we are returning
-						// blockette==null
-
-		// These should be the latest ones we checked, so they are correct IF
-		// the epochTime was found
-		/**
-		 * String epochDateString = EpochData.epochToDateString(epochTime);
-		 * String startDateString = EpochData.epochToDateString(startTimeStamp);
-		 * String endDateString = EpochData.epochToDateString(endTimeStamp); if
-		 * (containsEpochTime){ System.out.format(
-		 * "----StationData %s-%s Epoch: [%s - %s] contains EpochTime=%s\n"
-		 * ,network,name,startDateString,endDateString,epochDateString); } else
-		 * { System.out.format("----StationData EpochTime=%s was NOT FOUND!!\n",
-		 * epochDateString); }
-		 * 
-		 * return containsEpochTime;
-		 **/
+			Calendar endTimeStamp = parseEndTime(blockette);
+			starts[i] = startTimeStamp.getTimeInMillis();
+			ends[i] = (endTimeStamp == null) ? null : endTimeStamp
+					.getTimeInMillis();
+			blockettes[i] = blockette;
+			i++;
+		}
+		epochIndex = new EpochIndex<Blockette>(starts, ends, blockettes,
+				DAY_BREAK_MILLIS);
+		return epochIndex;
+	}
 
+	private Calendar parseEndTime(Blockette blockette) {
+		String timestampString = blockette.getFieldValue(14, 0);
+		if (timestampString == null || timestampString.equals("(null)")) {
+			return null;
+		}
+		try {
+			return BlocketteTimestamp.parseTimestamp(timestampString);
+		} catch (TimestampFormatException e) {
+			StringBuilder message = new StringBuilder();
+			message.append(String
+					.format("StationData.getBlockette() Error converting timestampString=%s",
+							timestampString));
+			logger.error(message.toString(), e);
+			return null;
+		}
 	}
 
 	// Loop through all station (=Blockette 050) epochs and print summary
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.metadata.meta_new.StationMeta;
+import asl.metadata.meta_new.StationMetaCodec;
+
+/**
+ * StationMetaRange - The metadata of one station over a range of time, as a
+ * list of consecutive segments [start, end) (millis) over which the
+ * StationMeta doesn't change (see StationData.getEpochInterval()).
+ *
+ * This is what MetaInterface.getStationMetaRange() returns (encoded), so a
+ * remote MetaServer needs one round trip per station and metadata epoch
+ * instead of one per station-day. The encoding is versioned and independent
+ * of java serialization:
+ *
+ * <pre>
+ * int MAGIC, short VERSION, int segments,
+ * per segment: long start, long end, boolean hasMeta [, StationMetaCodec]
+ * </pre>
+ */
+public class StationMetaRange {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.metadata.StationMetaRange.class);
+
+	private static final int MAGIC = 0x534d5247; // "SMRG"
+	private static final short VERSION = 2;
+
+	private Station station;
+	private ArrayList<Long> starts = new ArrayList<Long>();
+	private ArrayList<Long> ends = new ArrayList<Long>();
+	// null = no metadata for the segment
+	private ArrayList<StationMeta> stationMetas = new ArrayList<StationMeta>();
+
+	public StationMetaRange(Station station) {
+		this.station = station;
+	}
+
+	public Station getStation() {
+		return station;
+	}
+
+	/**
+	 * Segments must be added in time order and must not overlap.
+	 */
+	public void addSegment(long start, long end, StationMeta stationMeta) {
+		starts.add(start);
+		ends.add(end);
+		stationMetas.add(stationMeta);
+	}
+
+	public int getNumberOfSegments() {
+		return starts.size();
+	}
+
+	/**
+	 * @return true if a segment contains time
+	 */
+	public boolean covers(long time) {
+		return indexOf(time) >= 0;
+	}
+
+	/**
+	 * @return The StationMeta for timestamp (a copy bound to timestamp) or null
+	 *         if the range has no metadata for it
+	 */
+	public StationMeta getStationMeta(Calendar timestamp) {
+		int i = indexOf(timestamp.getTimeInMillis());
+		if (i < 0 || stationMetas.get(i) == null) {
+			return null;
+		}
+		try {
+			return stationMetas.get(i).copyForDate(timestamp);
+		} catch (WrongBlocketteException e) {
+			logger.error("WrongBlocketteException:", e);
+			return null;
+		}
+	}
+
+	private int indexOf(long time) {
+		int lo = 0;
+		int hi = starts.size() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (time < starts.get(mid)) {
+				hi = mid - 1;
+			} else if (time >= ends.get(mid)) {
+				lo = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	public byte[] encode() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeInt(starts.size());
+		for (int i = 0; i < starts.size(); i++) {
+			out.writeLong(starts.get(i));
+			out.writeLong(ends.get(i));
+			StationMeta stationMeta = stationMetas.get(i);
+			out.writeBoolean(stationMeta != null);
+			if (stationMeta != null) {
+				StationMetaCodec.write(out, stationMeta);
+			}
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the bytes are malformed or of another format version
+	 */
+	public static StationMetaRange decode(Station station, byte[] encoded)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				encoded));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not an encoded StationMetaRange");
+		}
+		short version = in.readShort();
+		if (version != VERSION) {
+			throw new IOException(String.format(
+					"Unsupported StationMetaRange version %d (expected %d)",
+					version, VERSION));
+		}
+		StationMetaRange range = new StationMetaRange(station);
+		int numberOfSegments = in.readInt();
+		for (int i = 0; i < numberOfSegments; i++) {
+			long start = in.readLong();
+			long end = in.readLong();
+			StationMeta stationMeta = null;
+			if (in.readBoolean()) {
+				// Bound to the segment start here, to the requested day by
+				// getStationMeta()
+				Calendar timestamp = new GregorianCalendar(
+						TimeZone.getTimeZone("GMT"));
+				timestamp.setTimeInMillis(start);
+				stationMeta = StationMetaCodec.read(in, station, timestamp);
+			}
+			range.addSegment(start, end, stationMeta);
+		}
+		return range;
+	}
+}
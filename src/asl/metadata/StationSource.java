@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+/**
+ * StationSource - Where SeedVolume reads its lazily loaded stations from
+ * (MetadataSnapshot, DatalessReader.index())
+ */
+interface StationSource {
+	/**
+	 * Read and assemble one station
+	 *
+	 * @param volumeInfo
+	 *            the volume info blockette (B010) of the station's volume
+	 * @param key
+	 *            the station key
+	 * @param offset
+	 *            the offset registered with SeedVolume.addLazyStation()
+	 * @return the station or null if it could not be read
+	 */
+	StationData readStation(Blockette volumeInfo, StationKey key, long offset);
+
+	/**
+	 * @return The checksum of one station (see Dataless.getStationChecksums())
+	 *         or null if it can't be computed
+	 */
+	Long getStationChecksum(StationKey key, long offset);
+}
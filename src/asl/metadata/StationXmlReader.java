@@ -0,0 +1,856 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Hashtable;
+import java.util.TimeZone;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * StationXmlReader - Reads an FDSN StationXML file (e.g., IU.xml) into the
+ * same Blockettes DatalessReader decodes from a dataless SEED volume, so
+ * Dataless assembles the same StationData/ChannelData/EpochData from either.
+ *
+ * The file is read with a StAX stream reader, one element at a time; no
+ * document tree is built. Like an XX.dataless volume a file holds one
+ * network, further networks are skipped.
+ *
+ * Mapping (field values as rdseed -s prints them, see DatalessReader):
+ *
+ * <pre>
+ * Network          -> B010 (label = network code)
+ * Station          -> B050
+ * Channel          -> B052 (+ Sensor -> instrument, Type -> channel flags)
+ * PolesZeros       -> B053
+ * Coefficients     -> B054
+ * FIR              -> B061
+ * Polynomial       -> B062
+ * Decimation       -> B057
+ * StageGain        -> B058 (stage n)
+ * InstrumentSensitivity -> B058 (stage 0)
+ * </pre>
+ *
+ * Other response elements (e.g., ResponseList) are skipped.
+ */
+public class StationXmlReader {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.metadata.StationXmlReader.class);
+
+	private static final String NULL_TIME = "(null)";
+
+	private final File file;
+
+	private XMLStreamReader in;
+	private String network;
+
+	public StationXmlReader(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return True if the file name says it is StationXML (*.xml)
+	 */
+	public static boolean isStationXml(String fileName) {
+		return fileName.toLowerCase().endsWith(".xml");
+	}
+
+	/**
+	 * @return True if the file name is that of a network file, e.g., IU.xml
+	 */
+	public static boolean isNetworkFileName(String fileName) {
+		return fileName.matches("[A-Za-z0-9]{2}\\.xml");
+	}
+
+	/**
+	 * Read the file
+	 *
+	 * @return the blockettes in the order rdseed -s lists them for a dataless
+	 *         volume: B010 followed by each station's blockettes
+	 * @throws IOException
+	 *             the file could not be read
+	 * @throws DatalessParseException
+	 *             the file is not StationXML or a value is malformed
+	 */
+	public ArrayList<Blockette> read() throws IOException,
+			DatalessParseException {
+		ArrayList<Blockette> blockettes = new ArrayList<Blockette>();
+		InputStream stream = new BufferedInputStream(new FileInputStream(file));
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			// StationXML has no DTD: don't resolve DTDs or external entities
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(
+					XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+					Boolean.FALSE);
+			in = factory.createXMLStreamReader(stream);
+			network = null;
+			if (!nextElement() || !in.getLocalName().equals("FDSNStationXML")) {
+				throw new DatalessParseException(String.format(
+						"file=[%s] is not FDSN StationXML", file));
+			}
+			String source = null;
+			while (nextChild()) {
+				String name = in.getLocalName();
+				if (name.equals("Source")) {
+					source = in.getElementText().trim();
+				} else if (name.equals("Network")) {
+					readNetwork(blockettes, source);
+				} else {
+					skipElement();
+				}
+			}
+			in.close();
+		} catch (XMLStreamException e) {
+			throw new DatalessParseException(String.format(
+					"Malformed StationXML file=[%s]: %s", file, e.getMessage()));
+		} catch (NumberFormatException e) {
+			throw new DatalessParseException(String.format(
+					"Bad numeric value in file=[%s] at line=[%d]: %s", file,
+					in.getLocation().getLineNumber(), e.getMessage()));
+		} finally {
+			in = null;
+			stream.close();
+		}
+		if (network == null) {
+			throw new DatalessParseException(String.format(
+					"file=[%s] has no Network", file));
+		}
+		return blockettes;
+	}
+
+	private void readNetwork(ArrayList<Blockette> blockettes, String source)
+			throws XMLStreamException, DatalessParseException {
+		String code = in.getAttributeValue(null, "code");
+		if (network != null) {
+			logger.warn("file=[{}]: skip network=[{}], only network=[{}] is read",
+					file, code, network);
+			skipElement();
+			return;
+		}
+		if (code == null || code.length() != 2) {
+			throw new DatalessParseException(String.format(
+					"file=[%s] has invalid network code=[%s]", file, code));
+		}
+		network = code;
+
+		Blockette b010 = new Blockette(10);
+		b010.addFieldValue(3, "SEED Format version", "2.4");
+		b010.addFieldValue(4, "Logical record length", "12");
+		b010.addFieldValue(5, "Beginning of time",
+				time(in.getAttributeValue(null, "startDate")));
+		b010.addFieldValue(6, "End of time",
+				time(in.getAttributeValue(null, "endDate")));
+		b010.addFieldValue(7, "Volume Time", NULL_TIME);
+		b010.addFieldValue(8, "Originating Organization",
+				(source == null) ? "" : source);
+		b010.addFieldValue(9, "Label", network);
+		blockettes.add(b010);
+
+		String description = "";
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("Description")) {
+				description = in.getElementText().trim();
+			} else if (name.equals("Station")) {
+				readStation(blockettes, description);
+			} else {
+				skipElement();
+			}
+		}
+	}
+
+	private void readStation(ArrayList<Blockette> blockettes,
+			String networkDescription) throws XMLStreamException {
+		Blockette b050 = new Blockette(50);
+		b050.addFieldValue(3, "Station call letters",
+				in.getAttributeValue(null, "code"));
+		String start = time(in.getAttributeValue(null, "startDate"));
+		String end = time(in.getAttributeValue(null, "endDate"));
+		blockettes.add(b050);
+
+		String latitude = "0";
+		String longitude = "0";
+		String elevation = "0";
+		String site = "";
+		int nchannels = 0;
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("Latitude")) {
+				latitude = in.getElementText().trim();
+			} else if (name.equals("Longitude")) {
+				longitude = in.getElementText().trim();
+			} else if (name.equals("Elevation")) {
+				elevation = in.getElementText().trim();
+			} else if (name.equals("Site")) {
+				while (nextChild()) {
+					if (in.getLocalName().equals("Name")) {
+						site = in.getElementText().trim();
+					} else {
+						skipElement();
+					}
+				}
+			} else if (name.equals("Channel")) {
+				readChannel(blockettes);
+				nchannels++;
+			} else {
+				skipElement();
+			}
+		}
+		b050.addFieldValue(4, "Latitude", latitude);
+		b050.addFieldValue(5, "Longitude", longitude);
+		b050.addFieldValue(6, "Elevation", elevation);
+		b050.addFieldValue(7, "Number of channels", Integer.toString(nchannels));
+		b050.addFieldValue(8, "Number of station comments", "0");
+		b050.addFieldValue(9, "Site name", site);
+		b050.addFieldValue(10, "Network identifier", networkDescription);
+		b050.addFieldValue(11, "32 bit word order", "3210");
+		b050.addFieldValue(12, "16 bit word order", "10");
+		b050.addFieldValue(13, "Start effective date", start);
+		b050.addFieldValue(14, "End effective date", end);
+		b050.addFieldValue(15, "Update flag", "N");
+		b050.addFieldValue(16, "Network Code", network);
+	}
+
+	private void readChannel(ArrayList<Blockette> blockettes)
+			throws XMLStreamException {
+		Blockette b052 = new Blockette(52);
+		String location = in.getAttributeValue(null, "locationCode");
+		b052.addFieldValue(3, "Location", (location == null) ? ""
+				: location.trim());
+		b052.addFieldValue(4, "Channel", in.getAttributeValue(null, "code"));
+		b052.addFieldValue(5, "Subchannel", "0");
+		String start = time(in.getAttributeValue(null, "startDate"));
+		String end = time(in.getAttributeValue(null, "endDate"));
+		blockettes.add(b052);
+
+		String latitude = "0";
+		String longitude = "0";
+		String elevation = "0";
+		String depth = "0";
+		String azimuth = "0";
+		String dip = "0";
+		String sampleRate = "0";
+		String clockDrift = "0";
+		String instrument = null;
+		String calibrationUnits = null;
+		StringBuilder flags = new StringBuilder();
+		// The stages are listed after the B052 (+ B030)
+		ArrayList<Blockette> stages = new ArrayList<Blockette>();
+		String signalUnits = null;
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("Latitude")) {
+				latitude = in.getElementText().trim();
+			} else if (name.equals("Longitude")) {
+				longitude = in.getElementText().trim();
+			} else if (name.equals("Elevation")) {
+				elevation = in.getElementText().trim();
+			} else if (name.equals("Depth")) {
+				depth = in.getElementText().trim();
+			} else if (name.equals("Azimuth")) {
+				azimuth = in.getElementText().trim();
+			} else if (name.equals("Dip")) {
+				dip = in.getElementText().trim();
+			} else if (name.equals("Type")) {
+				flags.append(channelFlag(in.getElementText().trim()));
+			} else if (name.equals("SampleRate")) {
+				sampleRate = in.getElementText().trim();
+			} else if (name.equals("ClockDrift")) {
+				clockDrift = in.getElementText().trim();
+			} else if (name.equals("CalibrationUnits")) {
+				calibrationUnits = units();
+			} else if (name.equals("Sensor")) {
+				instrument = sensor();
+			} else if (name.equals("Response")) {
+				signalUnits = readResponse(stages);
+			} else {
+				skipElement();
+			}
+		}
+		b052.addFieldValue(6, "Instrument lookup", "0 "
+				+ ((instrument == null) ? "No Abbreviation Referenced"
+						: instrument));
+		b052.addFieldValue(7, "Comment", NULL_TIME);
+		b052.addFieldValue(8, "Signal units lookup", "0 "
+				+ ((signalUnits == null) ? "No Abbreviation Referenced"
+						: signalUnits));
+		b052.addFieldValue(9, "Calibration units lookup", "0 "
+				+ ((calibrationUnits == null) ? "No Abbreviation Referenced"
+						: calibrationUnits));
+		b052.addFieldValue(10, "Latitude", latitude);
+		b052.addFieldValue(11, "Longitude", longitude);
+		b052.addFieldValue(12, "Elevation", elevation);
+		b052.addFieldValue(13, "Local depth", depth);
+		b052.addFieldValue(14, "Azimuth", azimuth);
+		b052.addFieldValue(15, "Dip", dip);
+		b052.addFieldValue(16, "Format lookup", "0 No Abbreviation Referenced");
+		b052.addFieldValue(17, "Log2 of Data record length", "12");
+		b052.addFieldValue(18, "Sample rate", sampleRate);
+		b052.addFieldValue(19, "Clock tolerance", clockDrift);
+		b052.addFieldValue(20, "Number of comments", "0");
+		b052.addFieldValue(21, "Channel flags", flags.toString());
+		b052.addFieldValue(22, "Start date", start);
+		b052.addFieldValue(23, "End date", end);
+		b052.addFieldValue(24, "Update flag", "N");
+		blockettes.addAll(stages);
+	}
+
+	/**
+	 * @return The input units of the instrument sensitivity (the signal
+	 *         units of the channel)
+	 */
+	private String readResponse(ArrayList<Blockette> stages)
+			throws XMLStreamException {
+		String signalUnits = null;
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InstrumentSensitivity")) {
+				Blockette b058 = new Blockette(58);
+				b058.addFieldValue(3, "Stage sequence number", "0");
+				String value = "0";
+				String frequency = "0";
+				while (nextChild()) {
+					String child = in.getLocalName();
+					if (child.equals("Value")) {
+						value = in.getElementText().trim();
+					} else if (child.equals("Frequency")) {
+						frequency = in.getElementText().trim();
+					} else if (child.equals("InputUnits")) {
+						signalUnits = units();
+					} else {
+						skipElement();
+					}
+				}
+				addGain(b058, value, frequency);
+				stages.add(b058);
+			} else if (name.equals("Stage")) {
+				readStage(stages);
+			} else {
+				skipElement();
+			}
+		}
+		return signalUnits;
+	}
+
+	private void readStage(ArrayList<Blockette> stages)
+			throws XMLStreamException {
+		String number = in.getAttributeValue(null, "number");
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("PolesZeros")) {
+				stages.add(polesZeros(number));
+			} else if (name.equals("Coefficients")) {
+				stages.add(coefficients(number));
+			} else if (name.equals("FIR")) {
+				stages.add(fir(number));
+			} else if (name.equals("Polynomial")) {
+				stages.add(polynomial(number));
+			} else if (name.equals("Decimation")) {
+				stages.add(decimation(number));
+			} else if (name.equals("StageGain")) {
+				Blockette b058 = new Blockette(58);
+				b058.addFieldValue(3, "Stage sequence number", number);
+				String value = "0";
+				String frequency = "0";
+				while (nextChild()) {
+					if (in.getLocalName().equals("Value")) {
+						value = in.getElementText().trim();
+					} else if (in.getLocalName().equals("Frequency")) {
+						frequency = in.getElementText().trim();
+					} else {
+						skipElement();
+					}
+				}
+				addGain(b058, value, frequency);
+				stages.add(b058);
+			} else {
+				logger.debug("Skip stage element=[{}] in file=[{}]", name, file);
+				skipElement();
+			}
+		}
+	}
+
+	private Blockette polesZeros(String number) throws XMLStreamException {
+		Blockette b = new Blockette(53);
+		b.addFieldValue(4, "Stage sequence number", number);
+		String inputUnits = null;
+		String outputUnits = null;
+		String type = "";
+		String normalization = "1";
+		String frequency = "0";
+		ArrayList<String[]> zeros = new ArrayList<String[]>();
+		ArrayList<String[]> poles = new ArrayList<String[]>();
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InputUnits")) {
+				inputUnits = units();
+			} else if (name.equals("OutputUnits")) {
+				outputUnits = units();
+			} else if (name.equals("PzTransferFunctionType")) {
+				type = in.getElementText().trim();
+			} else if (name.equals("NormalizationFactor")) {
+				normalization = in.getElementText().trim();
+			} else if (name.equals("NormalizationFrequency")) {
+				frequency = in.getElementText().trim();
+			} else if (name.equals("Zero")) {
+				zeros.add(complex());
+			} else if (name.equals("Pole")) {
+				poles.add(complex());
+			} else {
+				skipElement();
+			}
+		}
+		if (type.startsWith("LAPLACE (RADIANS")) {
+			type = "A [Laplace Transform (Rad/sec)]";
+		} else if (type.startsWith("LAPLACE (HERTZ")) {
+			type = "B [Analog (Hz)]";
+		} else if (type.startsWith("DIGITAL")) {
+			type = "D [Digital (Z-transform)]";
+		}
+		b.addFieldValue(3, "Transfer function type", type);
+		addUnits(b, 5, 6, inputUnits, outputUnits);
+		b.addFieldValue(7, "A0 normalization factor", normalization);
+		b.addFieldValue(8, "Normalization frequency", frequency);
+		b.addFieldValue(9, "Number of zeroes", Integer.toString(zeros.size()));
+		for (String[] zero : zeros) {
+			b.addFieldValue(10, "Real zero", zero[0]);
+			b.addFieldValue(11, "Imaginary zero", zero[1]);
+			b.addFieldValue(12, "Real zero error", "0");
+			b.addFieldValue(13, "Imaginary zero error", "0");
+		}
+		b.addFieldValue(14, "Number of poles", Integer.toString(poles.size()));
+		for (String[] pole : poles) {
+			b.addFieldValue(15, "Real pole", pole[0]);
+			b.addFieldValue(16, "Imaginary pole", pole[1]);
+			b.addFieldValue(17, "Real pole error", "0");
+			b.addFieldValue(18, "Imaginary pole error", "0");
+		}
+		return b;
+	}
+
+	private Blockette coefficients(String number) throws XMLStreamException {
+		Blockette b = new Blockette(54);
+		b.addFieldValue(4, "Stage sequence number", number);
+		String inputUnits = null;
+		String outputUnits = null;
+		String type = "D";
+		ArrayList<String> numerators = new ArrayList<String>();
+		ArrayList<String> denominators = new ArrayList<String>();
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InputUnits")) {
+				inputUnits = units();
+			} else if (name.equals("OutputUnits")) {
+				outputUnits = units();
+			} else if (name.equals("CfTransferFunctionType")) {
+				String cfType = in.getElementText().trim();
+				if (cfType.startsWith("ANALOG (RADIANS")) {
+					type = "A";
+				} else if (cfType.startsWith("ANALOG (HERTZ")) {
+					type = "B";
+				}
+			} else if (name.equals("Numerator")) {
+				numerators.add(in.getElementText().trim());
+			} else if (name.equals("Denominator")) {
+				denominators.add(in.getElementText().trim());
+			} else {
+				skipElement();
+			}
+		}
+		b.addFieldValue(3, "Response type", type);
+		addUnits(b, 5, 6, inputUnits, outputUnits);
+		b.addFieldValue(7, "Number of numerators",
+				Integer.toString(numerators.size()));
+		for (String numerator : numerators) {
+			b.addFieldValue(8, "Numerator coefficient", numerator);
+			b.addFieldValue(9, "Numerator error", "0");
+		}
+		b.addFieldValue(10, "Number of denominators",
+				Integer.toString(denominators.size()));
+		for (String denominator : denominators) {
+			b.addFieldValue(11, "Denominator coefficient", denominator);
+			b.addFieldValue(12, "Denominator error", "0");
+		}
+		return b;
+	}
+
+	private Blockette fir(String number) throws XMLStreamException {
+		Blockette b = new Blockette(61);
+		b.addFieldValue(3, "Stage sequence number", number);
+		String firName = in.getAttributeValue(null, "name");
+		String inputUnits = null;
+		String outputUnits = null;
+		String symmetry = "A";
+		ArrayList<String> coefficients = new ArrayList<String>();
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InputUnits")) {
+				inputUnits = units();
+			} else if (name.equals("OutputUnits")) {
+				outputUnits = units();
+			} else if (name.equals("Symmetry")) {
+				String value = in.getElementText().trim();
+				if (value.equals("ODD")) {
+					symmetry = "B";
+				} else if (value.equals("EVEN")) {
+					symmetry = "C";
+				}
+			} else if (name.equals("NumeratorCoefficient")) {
+				coefficients.add(in.getElementText().trim());
+			} else {
+				skipElement();
+			}
+		}
+		b.addFieldValue(4, "Response Name", (firName == null) ? "" : firName);
+		b.addFieldValue(5, "Symmetry Code", symmetry);
+		addUnits(b, 6, 7, inputUnits, outputUnits);
+		b.addFieldValue(8, "Number of Coefficients",
+				Integer.toString(coefficients.size()));
+		for (String coefficient : coefficients) {
+			b.addFieldValue(9, "FIR Coefficient", coefficient);
+		}
+		return b;
+	}
+
+	private Blockette polynomial(String number) throws XMLStreamException {
+		Blockette b = new Blockette(62);
+		b.addFieldValue(3, "Transfer function type", "P [Polynomial]");
+		b.addFieldValue(4, "Stage sequence number", number);
+		String inputUnits = null;
+		String outputUnits = null;
+		String approximation = "M [MacLaurin]";
+		Hashtable<Integer, String> values = new Hashtable<Integer, String>();
+		ArrayList<String> coefficients = new ArrayList<String>();
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InputUnits")) {
+				inputUnits = units();
+			} else if (name.equals("OutputUnits")) {
+				outputUnits = units();
+			} else if (name.equals("ApproximationType")) {
+				String value = in.getElementText().trim();
+				if (!value.equals("MACLAURIN")) {
+					approximation = value;
+				}
+			} else if (name.equals("FrequencyLowerBound")) {
+				values.put(9, in.getElementText().trim());
+			} else if (name.equals("FrequencyUpperBound")) {
+				values.put(10, in.getElementText().trim());
+			} else if (name.equals("ApproximationLowerBound")) {
+				values.put(11, in.getElementText().trim());
+			} else if (name.equals("ApproximationUpperBound")) {
+				values.put(12, in.getElementText().trim());
+			} else if (name.equals("MaximumError")) {
+				values.put(13, in.getElementText().trim());
+			} else if (name.equals("Coefficient")) {
+				coefficients.add(in.getElementText().trim());
+			} else {
+				skipElement();
+			}
+		}
+		addUnits(b, 5, 6, inputUnits, outputUnits);
+		b.addFieldValue(7, "Polynomial Approximation Type", approximation);
+		b.addFieldValue(8, "Valid Frequency Units", "B");
+		b.addFieldValue(9, "Lower Valid Frequency Bound", value(values, 9));
+		b.addFieldValue(10, "Upper Valid Frequency Bound", value(values, 10));
+		b.addFieldValue(11, "Lower Bound of Approximation", value(values, 11));
+		b.addFieldValue(12, "Upper Bound of Approximation", value(values, 12));
+		b.addFieldValue(13, "Maximum Absolute Error", value(values, 13));
+		b.addFieldValue(14, "Number of coefficients",
+				Integer.toString(coefficients.size()));
+		for (String coefficient : coefficients) {
+			b.addFieldValue(15, "Polynomial coefficient", coefficient);
+			b.addFieldValue(16, "Polynomial coefficient error", "0");
+		}
+		return b;
+	}
+
+	private Blockette decimation(String number) throws XMLStreamException {
+		Blockette b = new Blockette(57);
+		b.addFieldValue(3, "Stage sequence number", number);
+		Hashtable<Integer, String> values = new Hashtable<Integer, String>();
+		while (nextChild()) {
+			String name = in.getLocalName();
+			if (name.equals("InputSampleRate")) {
+				values.put(4, in.getElementText().trim());
+			} else if (name.equals("Factor")) {
+				values.put(5, in.getElementText().trim());
+			} else if (name.equals("Offset")) {
+				values.put(6, in.getElementText().trim());
+			} else if (name.equals("Delay")) {
+				values.put(7, in.getElementText().trim());
+			} else if (name.equals("Correction")) {
+				values.put(8, in.getElementText().trim());
+			} else {
+				skipElement();
+			}
+		}
+		b.addFieldValue(4, "Input sample rate", value(values, 4));
+		b.addFieldValue(5, "Decimation factor", value(values, 5));
+		b.addFieldValue(6, "Decimation offset", value(values, 6));
+		b.addFieldValue(7, "Estimated delay (seconds)", value(values, 7));
+		b.addFieldValue(8, "Correction applied (seconds)", value(values, 8));
+		return b;
+	}
+
+	private static String value(Hashtable<Integer, String> values, int field) {
+		String value = values.get(field);
+		return (value == null) ? "0" : value;
+	}
+
+	private static void addGain(Blockette b058, String value, String frequency) {
+		b058.addFieldValue(4, "Sensitivity", value);
+		b058.addFieldValue(5, "Frequency of sensitivity", frequency + " HZ");
+		b058.addFieldValue(6, "Number of calibrations", "0");
+	}
+
+	private static void addUnits(Blockette b, int inputField, int outputField,
+			String inputUnits, String outputUnits) {
+		b.addFieldValue(inputField, "Response in units lookup",
+				(inputUnits == null) ? "No Abbreviation Referenced"
+						: inputUnits);
+		b.addFieldValue(outputField, "Response out units lookup",
+				(outputUnits == null) ? "No Abbreviation Referenced"
+						: outputUnits);
+	}
+
+	/**
+	 * @return The units as rdseed prints the B034 lookup, e.g., "M/S -
+	 *         Velocity in Meters Per Second"
+	 */
+	private String units() throws XMLStreamException {
+		String name = null;
+		String description = null;
+		while (nextChild()) {
+			if (in.getLocalName().equals("Name")) {
+				name = in.getElementText().trim();
+			} else if (in.getLocalName().equals("Description")) {
+				description = in.getElementText().trim();
+			} else {
+				skipElement();
+			}
+		}
+		if (name == null) {
+			return null;
+		}
+		if (description == null || description.length() == 0) {
+			// ResponseStage.setInputUnits() looks for the description words
+			description = unitsDescription(name);
+		}
+		return String.format("%s - %s", name, description);
+	}
+
+	private static String unitsDescription(String name) {
+		String upper = name.toUpperCase();
+		if (upper.equals("M")) {
+			return "Displacement in Meters";
+		} else if (upper.equals("M/S")) {
+			return "Velocity in Meters Per Second";
+		} else if (upper.equals("M/S**2") || upper.equals("M/S/S")) {
+			return "Acceleration in Meters Per Second Per Second";
+		} else if (upper.equals("PA")) {
+			return "Pressure in Pascals";
+		} else if (upper.equals("KPA")) {
+			return "Pressure in KPA";
+		} else if (upper.equals("V")) {
+			return "Volts";
+		} else if (upper.equals("COUNTS")) {
+			return "Digital Counts";
+		}
+		return name;
+	}
+
+	/**
+	 * @return The sensor description (or type) as the instrument lookup text
+	 */
+	private String sensor() throws XMLStreamException {
+		String type = null;
+		String description = null;
+		while (nextChild()) {
+			if (in.getLocalName().equals("Description")) {
+				description = in.getElementText().trim();
+			} else if (in.getLocalName().equals("Type")) {
+				type = in.getElementText().trim();
+			} else {
+				skipElement();
+			}
+		}
+		return (description != null) ? description : type;
+	}
+
+	/**
+	 * @return {real, imaginary} of a Pole or Zero
+	 */
+	private String[] complex() throws XMLStreamException {
+		String[] value = { "0", "0" };
+		while (nextChild()) {
+			if (in.getLocalName().equals("Real")) {
+				value[0] = in.getElementText().trim();
+			} else if (in.getLocalName().equals("Imaginary")) {
+				value[1] = in.getElementText().trim();
+			} else {
+				skipElement();
+			}
+		}
+		return value;
+	}
+
+	private static String channelFlag(String type) {
+		if (type.equals("TRIGGERED")) {
+			return "T";
+		} else if (type.equals("CONTINUOUS")) {
+			return "C";
+		} else if (type.equals("HEALTH")) {
+			return "H";
+		} else if (type.equals("GEOPHYSICAL")) {
+			return "G";
+		} else if (type.equals("WEATHER")) {
+			return "W";
+		} else if (type.equals("FLAG")) {
+			return "F";
+		} else if (type.equals("SYNTHESIZED")) {
+			return "S";
+		} else if (type.equals("INPUT")) {
+			return "I";
+		} else if (type.equals("EXPERIMENTAL")) {
+			return "E";
+		} else if (type.equals("MAINTENANCE")) {
+			return "M";
+		} else if (type.equals("BEAM")) {
+			return "B";
+		}
+		return "";
+	}
+
+	/**
+	 * Convert an xs:dateTime (e.g., "2011-04-19T00:00:00.0000Z", UTC if no
+	 * zone is given) into the "YYYY,DDD,HH:MM:SS.FFFF" of a blockette
+	 *
+	 * @return the blockette time or "(null)" for a missing (= open) time
+	 */
+	static String time(String dateTime) {
+		if (dateTime == null || dateTime.trim().length() == 0) {
+			return NULL_TIME;
+		}
+		String value = dateTime.trim();
+		int zoneOffset = 0; // minutes
+		if (value.endsWith("Z")) {
+			value = value.substring(0, value.length() - 1);
+		} else if (value.length() > 19
+				&& (value.charAt(value.length() - 6) == '+' || value
+						.charAt(value.length() - 6) == '-')) {
+			String zone = value.substring(value.length() - 6);
+			zoneOffset = Integer.parseInt(zone.substring(1, 3)) * 60
+					+ Integer.parseInt(zone.substring(4, 6));
+			if (zone.charAt(0) == '-') {
+				zoneOffset = -zoneOffset;
+			}
+			value = value.substring(0, value.length() - 6);
+		}
+		String[] dateAndTime = value.split("T");
+		String[] date = dateAndTime[0].split("-");
+		Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+		calendar.clear();
+		calendar.set(Integer.parseInt(date[0]), Integer.parseInt(date[1]) - 1,
+				Integer.parseInt(date[2]));
+		int fraction = 0; // 1/10000 s
+		if (dateAndTime.length > 1) {
+			String[] time = dateAndTime[1].split(":");
+			calendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(time[0]));
+			calendar.set(Calendar.MINUTE, Integer.parseInt(time[1]));
+			if (time.length > 2) {
+				String[] seconds = time[2].split("\\.");
+				calendar.set(Calendar.SECOND, Integer.parseInt(seconds[0]));
+				if (seconds.length > 1) {
+					String digits = (seconds[1] + "0000").substring(0, 4);
+					fraction = Integer.parseInt(digits);
+				}
+			}
+		}
+		calendar.add(Calendar.MINUTE, -zoneOffset);
+		return String.format("%04d,%03d,%02d:%02d:%02d.%04d",
+				calendar.get(Calendar.YEAR),
+				calendar.get(Calendar.DAY_OF_YEAR),
+				calendar.get(Calendar.HOUR_OF_DAY),
+				calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
+				fraction);
+	}
+
+	/**
+	 * Move to the next start element
+	 *
+	 * @return false at the end of the document
+	 */
+	private boolean nextElement() throws XMLStreamException {
+		while (in.hasNext()) {
+			if (in.next() == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Move to the next child element of the current element
+	 *
+	 * @return false (positioned at the end of the current element) if there
+	 *         are no more children
+	 */
+	private boolean nextChild() throws XMLStreamException {
+		while (in.hasNext()) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skip the current element and its children
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0 && in.hasNext()) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+}
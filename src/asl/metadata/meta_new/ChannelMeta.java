@@ -23,6 +23,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Hashtable;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +37,7 @@ import asl.metadata.Station;
 import asl.security.MemberDigest;
 import asl.util.PlotMaker;
 import freq.Cmplx;
+import freq.ComplexArray;
 
 /**
  * A ChannelMeta consists of a series of ResponseStages. Typically there will be
@@ -155,6 +157,26 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 		}
 	}
 
+	/**
+	 * Shallow copy of this channelMeta for another (metaTimestamp) day of the
+	 * same epoch. The response stages are shared with this channelMeta, so
+	 * neither may add/change stages afterwards.
+	 */
+	public ChannelMeta copyForDate(Calendar metaTimestamp) {
+		ChannelMeta copyChan = new ChannelMeta(new ChannelKey(
+				this.getLocation(), this.getName()), metaTimestamp,
+				this.station);
+		copyChan.sampleRate = this.sampleRate;
+		copyChan.dip = this.dip;
+		copyChan.azimuth = this.azimuth;
+		copyChan.depth = this.depth;
+		copyChan.dayBreak = this.dayBreak;
+		copyChan.instrumentType = this.instrumentType;
+		copyChan.channelFlags = this.channelFlags;
+		copyChan.stages = this.stages;
+		return copyChan;
+	}
+
 	/**
 	 * Add parts of this channelMeta to its digest
 	 */
@@ -171,12 +193,12 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 			if (stage instanceof PoleZeroStage) {
 				PoleZeroStage pz = (PoleZeroStage) stage;
 				addToDigest(pz.getNormalization());
-				ArrayList<Cmplx> poles = pz.getPoles();
+				List<Cmplx> poles = pz.getPoles();
 				for (int j = 0; j < poles.size(); j++) {
 					addToDigest(poles.get(j).real());
 					addToDigest(poles.get(j).imag());
 				}
-				ArrayList<Cmplx> zeros = pz.getZeros();
+				List<Cmplx> zeros = pz.getZeros();
 				for (int j = 0; j < zeros.size(); j++) {
 					addToDigest(zeros.get(j).real());
 					addToDigest(zeros.get(j).imag());
@@ -286,8 +308,13 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 	}
 
 	// Stages
+
+	/**
+	 * Add the (interned, see ResponseStage.intern()) stage. The stage can't be
+	 * changed afterwards.
+	 */
 	public void addStage(Integer stageID, ResponseStage responseStage) {
-		stages.put(stageID, responseStage);
+		stages.put(stageID, ResponseStage.intern(responseStage));
 	}
 
 	public boolean hasStage(Integer stageID) {
@@ -400,11 +427,11 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 	 * * Return complex PoleZero response computed at given freqs[]* If stage1
 	 * != PoleZero stage --> return null
 	 */
-	public Cmplx[] getPoleZeroResponse(double[] freqs) {
+	public ComplexArray getPoleZeroResponse(double[] freqs) {
 		PoleZeroStage pz = (PoleZeroStage) this.getStage(1);
 		if (pz != null) {
 			try {
-				Cmplx[] pzresp = pz.getResponse(freqs);
+				ComplexArray pzresp = pz.getResponse(freqs);
 				return pzresp;
 			} catch (PoleZeroStageException e) {
 				logger.error("PoleZeroStageException:", e);
@@ -417,7 +444,7 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 
 	// Return complex response computed at given freqs[0,...length]
 
-	public Cmplx[] getResponse(double[] freqs, ResponseUnits responseOut)
+	public ComplexArray getResponse(double[] freqs, ResponseUnits responseOut)
 			throws ChannelMetaException {
 		int outUnits = 0;
 		switch (responseOut) {
@@ -441,7 +468,7 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 		if (invalidResponse()) {
 			throw new ChannelMetaException("getResponse: Invalid Response!");
 		}
-		Cmplx[] response = null;
+		ComplexArray response = null;
 
 		// Set response = polezero response (with A0 factored in):
 		ResponseStage stage = stages.get(1);
@@ -454,8 +481,12 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 			try {
 				response = pz.getResponse(freqs);
 			} catch (PoleZeroStageException e) {
-				logger.error("PoleZeroStageException:", e);
-				throw new ChannelMetaException("PoleZeroStageException");
+				logger.error(String.format(
+						"PoleZeroStageException: channel=[%s-%s] stage=[1]:",
+						this.getLocation(), this.getName()), e);
+				throw new ChannelMetaException(String.format(
+						"PoleZeroStageException: channel=[%s-%s] stage=[1]: %s",
+						this.getLocation(), this.getName(), e.getMessage()));
 			}
 
 			if (outUnits == 0) {
@@ -510,7 +541,7 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 						Cmplx iw = new Cmplx(0.0, s * freqs[i]);
 						for (int j = 1; j < Math.abs(n); j++)
 							iw = Cmplx.mul(iw, iw);
-						response[i] = Cmplx.mul(iw, response[i]);
+						mul(iw, response, i);
 					}
 				}
 				// Here we differentiate
@@ -519,7 +550,7 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 						Cmplx iw = new Cmplx(0.0, -1.0 / (s * freqs[i]));
 						for (int j = 1; j < Math.abs(n); j++)
 							iw = Cmplx.mul(iw, iw);
-						response[i] = Cmplx.mul(iw, response[i]);
+						mul(iw, response, i);
 					}
 				}
 			} // Convert
@@ -555,13 +586,21 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 			logger.warn("== getResponse WARNING: Channel response scale <= 0 !!");
 		}
 
-		for (int i = 0; i < freqs.length; i++) {
-			response[i] = Cmplx.mul(scale, response[i]);
-		}
+		response.scale(scale);
 
 		return response;
 	}
 
+	/**
+	 * response[i] = a * response[i] (same arithmetic as Cmplx.mul)
+	 */
+	private static void mul(Cmplx a, ComplexArray response, int i) {
+		double br = response.real(i);
+		double bi = response.imag(i);
+		response.set(i, a.real() * br - a.imag() * bi, a.imag() * br
+				+ a.real() * bi);
+	}
+
 	/**
 	 * processEpochData Convert EpochData = Hashtable<StageNumber, StageData>
 	 * for this Channel + Epoch Into a sequence of ResponseStages, one for each
@@ -762,13 +801,13 @@ public class ChannelMeta extends MemberDigest implements Serializable,
 
 		PoleZeroStage pz = (PoleZeroStage) this.getStage(1);
 		try {
-			Cmplx[] instResponse = pz.getResponse(freq);
+			ComplexArray instResponse = pz.getResponse(freq);
 
 			double[] instRespAmp = new double[nf];
 			double[] instRespPhs = new double[nf];
 			for (int k = 0; k < nf; k++) {
-				instRespAmp[k] = instResponse[k].mag();
-				instRespPhs[k] = instResponse[k].phs() * 180. / Math.PI;
+				instRespAmp[k] = instResponse.mag(k);
+				instRespPhs[k] = instResponse.phs(k) * 180. / Math.PI;
 			}
 
 			PlotMaker plotMaker = new PlotMaker(this.getStation(),
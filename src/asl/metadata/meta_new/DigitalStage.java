@@ -20,6 +20,8 @@
 package asl.metadata.meta_new;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,9 +40,13 @@ public class DigitalStage extends ResponseStage implements Cloneable {
 
 	/**
 	 * This is here to implement the abstract method copy() in ResponseStage,
-	 * but it's just implementing the shallow copy (=clone) below
+	 * but it's just implementing the shallow copy (=clone) below (or returns
+	 * this stage if it is interned)
 	 */
 	public DigitalStage copy() {
+		if (isFrozen()) {
+			return this;
+		}
 		return this.clone();
 	}
 
@@ -86,10 +92,12 @@ public class DigitalStage extends ResponseStage implements Cloneable {
 	}
 
 	public void setInputSampleRate(double sampleRate) {
+		checkNotFrozen();
 		this.inputSampleRate = sampleRate;
 	}
 
 	public void setDecimation(int factor) {
+		checkNotFrozen();
 		this.decimationFactor = factor;
 	}
 
@@ -102,6 +110,7 @@ public class DigitalStage extends ResponseStage implements Cloneable {
 	}
 
 	public void addCoefficient(double coefficient) {
+		checkNotFrozen();
 		if (coefficients == null) {
 			coefficients = new ArrayList<Double>();
 		}
@@ -109,6 +118,14 @@ public class DigitalStage extends ResponseStage implements Cloneable {
 		numberOfCoefficients++;
 	}
 
+	/**
+	 * @return The coefficients or null if none were added
+	 */
+	public List<Double> getCoefficients() {
+		return (coefficients == null) ? null : Collections
+				.unmodifiableList(coefficients);
+	}
+
 	/**
 	 * @Override public String toString(){ StringBuilder result = new
 	 *           StringBuilder(); String NEW_LINE =
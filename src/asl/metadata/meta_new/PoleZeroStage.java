@@ -20,11 +20,15 @@
 package asl.metadata.meta_new;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import freq.Cmplx;
+import freq.ComplexArray;
 
 /**
  * Our internal representation of a PoleZero Stage includes the analog polezero
@@ -41,12 +45,21 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 	private boolean zeroAdded = false;
 	private boolean normalizationSet = false;
 
+	// getResponse() of the last freqs, shared by all channels using this
+	// (interned) stage
+	private transient double[] cachedFreqs;
+	private transient ComplexArray cachedResponse;
+
 	// private static final long serialVersionUID = 1L;
 
 	/**
-	 * Return a deep copy of this PoleZeroStage
+	 * Return a deep copy of this PoleZeroStage (or this stage if it is
+	 * interned)
 	 */
 	public PoleZeroStage copy() {
+		if (isFrozen()) {
+			return this;
+		}
 		PoleZeroStage stageCopy = new PoleZeroStage(this.stageNumber,
 				this.stageType, this.stageGain, this.stageGainFrequency);
 		for (int i = 0; i < poles.size(); i++) {
@@ -82,16 +95,19 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 	}
 
 	public void addPole(Cmplx pole) {
+		checkNotFrozen();
 		poles.add(pole);
 		poleAdded = true;
 	}
 
 	public void addZero(Cmplx zero) {
+		checkNotFrozen();
 		zeros.add(zero);
 		zeroAdded = true;
 	}
 
 	public void setNormalization(double A0) {
+		checkNotFrozen();
 		this.normalizationConstant = A0;
 		normalizationSet = true;
 	}
@@ -100,6 +116,24 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 		return normalizationConstant;
 	}
 
+	boolean isNormalizationSet() {
+		return normalizationSet;
+	}
+
+	boolean isPoleAdded() {
+		return poleAdded;
+	}
+
+	boolean isZeroAdded() {
+		return zeroAdded;
+	}
+
+	@Override
+	protected void copyMutableValues() {
+		poles = copyValues(poles);
+		zeros = copyValues(zeros);
+	}
+
 	public int getNumberOfPoles() {
 		return poles.size();
 	}
@@ -108,12 +142,12 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 		return zeros.size();
 	}
 
-	public ArrayList<Cmplx> getZeros() {
-		return zeros;
+	public List<Cmplx> getZeros() {
+		return Collections.unmodifiableList(zeros);
 	}
 
-	public ArrayList<Cmplx> getPoles() {
-		return poles;
+	public List<Cmplx> getPoles() {
+		return Collections.unmodifiableList(poles);
 	}
 
 	public void print() {
@@ -151,7 +185,8 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 	 * Return complex response computed at given freqs[0,...length] Should
 	 * really check that length > 0
 	 */
-	public Cmplx[] getResponse(double[] freqs) throws PoleZeroStageException {
+	public ComplexArray getResponse(double[] freqs)
+			throws PoleZeroStageException {
 		// Some polezero responses (e.g., ANMO.IU.20.BN?) appear to have NO
 		// zeros
 		// if (poleAdded && zeroAdded && normalizationSet) {
@@ -165,15 +200,23 @@ public class PoleZeroStage extends ResponseStage implements Cloneable {
 			throw new PoleZeroStageException(
 					"[ PoleZeroStage-->getResponse Error: Input freqs[] has no zero length! ]");
 		}
-		Cmplx[] response = new Cmplx[freqs.length];
+		if (isFrozen()) {
+			synchronized (this) {
+				if (cachedResponse != null && Arrays.equals(freqs, cachedFreqs)) {
+					return cachedResponse.copy();
+				}
+			}
+		}
+		ComplexArray response = new ComplexArray(freqs.length);
 		for (int i = 0; i < freqs.length; i++) {
-			try {
-				response[i] = evalResp(freqs[i]);
-			} catch (PoleZeroStageException e) {
-				logger.error("PoleZeroStageException:", e);
+			// A failed evaluation must not leave a 0 response behind
+			response.set(i, evalResp(freqs[i]));
+		}
+		if (isFrozen()) {
+			synchronized (this) {
+				cachedFreqs = freqs.clone();
+				cachedResponse = response.copy();
 			}
-			// System.out.format("%12.4f\t%12.4f\n",freqs[i], response[i].mag()
-			// );
 		}
 		return response;
 	}
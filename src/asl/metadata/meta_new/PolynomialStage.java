@@ -20,6 +20,8 @@
 package asl.metadata.meta_new;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import freq.Cmplx;
 
@@ -34,6 +36,10 @@ public class PolynomialStage extends ResponseStage {
 
 	// private static final long serialVersionUID = 1L;
 
+	/**
+	 * Not a copy: callers are expected not to change the returned stage
+	 * (interned stages can't be changed)
+	 */
 	public PolynomialStage copy() {
 		return this;
 	}
@@ -46,30 +52,41 @@ public class PolynomialStage extends ResponseStage {
 	}
 
 	public void addCoefficient(Cmplx coefficient) {
+		checkNotFrozen();
 		coefficients.add(coefficient);
 	}
 
+	@Override
+	protected void copyMutableValues() {
+		coefficients = copyValues(coefficients);
+	}
+
 	public int getNumberOfCoefficients() {
 		return coefficients.size();
 	}
 
 	public void setPolynomialApproximationType(String type) {
+		checkNotFrozen();
 		this.polynomialApproximationType = type;
 	}
 
 	public void setLowerFrequencyBound(double lowerBound) {
+		checkNotFrozen();
 		this.lowerFrequencyBound = lowerBound;
 	}
 
 	public void setUpperFrequencyBound(double upperBound) {
+		checkNotFrozen();
 		this.upperFrequencyBound = upperBound;
 	}
 
 	public void setLowerApproximationBound(double lowerBound) {
+		checkNotFrozen();
 		this.lowerApproximationBound = lowerBound;
 	}
 
 	public void setUpperApproximationBound(double upperBound) {
+		checkNotFrozen();
 		this.upperApproximationBound = upperBound;
 	}
 
@@ -89,6 +106,14 @@ public class PolynomialStage extends ResponseStage {
 		return upperApproximationBound;
 	}
 
+	public String getPolynomialApproximationType() {
+		return polynomialApproximationType;
+	}
+
+	public List<Cmplx> getCoefficients() {
+		return Collections.unmodifiableList(coefficients);
+	}
+
 	public double[] getRealPolynomialCoefficients() {
 		int numberOfCoefficients = getNumberOfCoefficients();
 		// double[] values = new double[numberOfCoefficients + 4];
@@ -19,7 +19,18 @@
 
 package asl.metadata.meta_new;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import freq.Cmplx;
 
 /**
  * Every response stage type will contain generic info from SEED Blockette B058
@@ -48,8 +59,139 @@ public abstract class ResponseStage implements Comparable<ResponseStage>,
 	protected String inputUnitsString;
 	protected String outputUnitsString;
 
+	// Set by intern(), the setters throw from then on
+	private boolean frozen = false;
+	// StationMetaCodec encoding of the stage, for equals() + hashCode()
+	private transient byte[] content;
+	private transient int contentHash;
+
+	/**
+	 * Interned stages (canonical instance keyed by itself, compared by
+	 * content), released once no channelMeta uses them
+	 */
+	private static final Map<ResponseStage, WeakReference<ResponseStage>> interned = new WeakHashMap<ResponseStage, WeakReference<ResponseStage>>();
+
+	/**
+	 * @return A copy of this stage, or the stage itself once it is interned
+	 *         (immutable)
+	 */
 	abstract public ResponseStage copy();
 
+	/**
+	 * Freeze stage and return the shared instance with the same content
+	 * (stage itself if it is the first of its kind)
+	 */
+	public static ResponseStage intern(ResponseStage stage) {
+		if (stage == null) {
+			return null;
+		}
+		if (!stage.frozen) {
+			stage.freeze();
+		}
+		synchronized (interned) {
+			WeakReference<ResponseStage> reference = interned.get(stage);
+			ResponseStage canonical = (reference == null) ? null : reference
+					.get();
+			if (canonical == null) {
+				interned.put(stage, new WeakReference<ResponseStage>(stage));
+				canonical = stage;
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * @return The number of distinct stages currently interned
+	 */
+	public static int getNumberOfInternedStages() {
+		synchronized (interned) {
+			return interned.size();
+		}
+	}
+
+	private synchronized void freeze() {
+		copyMutableValues();
+		content = content();
+		contentHash = Arrays.hashCode(content);
+		frozen = true;
+	}
+
+	/**
+	 * Replace the mutable values the stage shares with its builder (e.g., the
+	 * Cmplx poles passed to addPole()) with copies, before it is frozen
+	 */
+	protected void copyMutableValues() {
+	}
+
+	protected static ArrayList<Cmplx> copyValues(List<Cmplx> values) {
+		ArrayList<Cmplx> copies = new ArrayList<Cmplx>(values.size());
+		for (Cmplx value : values) {
+			copies.add(new Cmplx(value.real(), value.imag()));
+		}
+		return copies;
+	}
+
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the stage has been interned
+	 */
+	protected void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException(String.format(
+					"Stage:%d is interned and can't be changed", stageNumber));
+		}
+	}
+
+	private byte[] content() {
+		if (content != null) {
+			return content;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			StationMetaCodec.writeStage(out, this);
+			out.flush();
+		} catch (IOException e) {
+			// Only for stage classes the codec doesn't know, compare by class
+			// + identity
+			return new byte[0];
+		}
+		byte[] encoded = bytes.toByteArray();
+		if (frozen) {
+			content = encoded;
+		}
+		return encoded;
+	}
+
+	/**
+	 * Stages are equal if they have the same class, number, type, gain, units
+	 * and type specific values (poles, zeros, coefficients, ...)
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (object == null || object.getClass() != getClass()) {
+			return false;
+		}
+		byte[] mine = content();
+		byte[] theirs = ((ResponseStage) object).content();
+		return mine.length > 0 && Arrays.equals(mine, theirs);
+	}
+
+	@Override
+	public int hashCode() {
+		if (frozen && content != null) {
+			return contentHash;
+		}
+		return Arrays.hashCode(content());
+	}
+
 	// constructor(s)
 	public ResponseStage(int number, char type, double gain, double frequency) {
 		stageNumber = number;
@@ -66,6 +208,7 @@ public abstract class ResponseStage implements Comparable<ResponseStage>,
 	 * 0-360 (theta) 10 = Volts (V)
 	 */
 	public void setInputUnits(String inputUnitsString) {
+		checkNotFrozen();
 		this.inputUnitsString = inputUnitsString;
 
 		if (inputUnitsString.contains("Displacement")
@@ -105,6 +248,7 @@ public abstract class ResponseStage implements Comparable<ResponseStage>,
 	}
 
 	public void setOutputUnits(String outputUnitsString) {
+		checkNotFrozen();
 		this.outputUnitsString = outputUnitsString;
 	}
 
@@ -81,6 +81,36 @@ public class StationMeta implements java.io.Serializable {
 		this.blockette50 = blockette;
 	}
 
+	/**
+	 * Copy of this stationMeta for another (timestamp) day of the same
+	 * metadata epoch, e.g., from the MetaGenerator StationMeta cache. The
+	 * channel Hashtable is new (so channels may be added to the copy) but the
+	 * channels' response stages are shared.
+	 */
+	public StationMeta copyForDate(Calendar timestamp)
+			throws WrongBlocketteException {
+		StationMeta copy = new StationMeta(blockette50, timestamp);
+		copy.latitude = this.latitude;
+		copy.longitude = this.longitude;
+		copy.elevation = this.elevation;
+		copy.comment = this.comment;
+		for (ChannelKey key : channels.keySet()) {
+			copy.channels.put(key, channels.get(key).copyForDate(timestamp));
+		}
+		return copy;
+	}
+
+	/**
+	 * The station blockette (B050) this stationMeta was built from
+	 */
+	Blockette getBlockette() {
+		return blockette50;
+	}
+
+	public double getElevation() {
+		return elevation;
+	}
+
 	public void setLatitude(double latitude) throws StationMetaException {
 		if (!(latitude <= 90. && latitude >= -90)) {
 			throw new StationMetaException(
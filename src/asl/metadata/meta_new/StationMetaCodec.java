@@ -0,0 +1,325 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.metadata.meta_new;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.TreeSet;
+
+import asl.metadata.Blockette;
+import asl.metadata.ChannelKey;
+import asl.metadata.Field;
+import asl.metadata.Station;
+import asl.metadata.WrongBlocketteException;
+import freq.Cmplx;
+
+/**
+ * StationMetaCodec - Compact binary encoding of a StationMeta for the bulk
+ * MetaServer requests (see asl.metadata.StationMetaRange).
+ *
+ * Only what MetaGenerator puts into a StationMeta is written: the B050 fields,
+ * station location, and for every channel its attributes and response stages.
+ * The metadata timestamp is not written, the reader supplies it. The caller
+ * writes (and checks) the format version.
+ */
+public class StationMetaCodec {
+	private static final char POLE_ZERO_STAGE = 'Z';
+	private static final char DIGITAL_STAGE = 'D';
+	private static final char POLYNOMIAL_STAGE = 'P';
+
+	private StationMetaCodec() {
+	}
+
+	public static void write(DataOutputStream out, StationMeta stationMeta)
+			throws IOException {
+		writeBlockette(out, stationMeta.getBlockette());
+		out.writeDouble(stationMeta.getLatitude());
+		out.writeDouble(stationMeta.getLongitude());
+		out.writeDouble(stationMeta.getElevation());
+		writeString(out, stationMeta.getComment());
+
+		Hashtable<ChannelKey, ChannelMeta> channels = stationMeta
+				.getChannelHashTable();
+		TreeSet<ChannelKey> keys = new TreeSet<ChannelKey>(channels.keySet());
+		out.writeInt(keys.size());
+		for (ChannelKey key : keys) {
+			writeChannel(out, channels.get(key));
+		}
+	}
+
+	/**
+	 * @param station
+	 *            the station the channels are bound to
+	 * @param timestamp
+	 *            the metadata timestamp of the new stationMeta
+	 */
+	public static StationMeta read(DataInputStream in, Station station,
+			Calendar timestamp) throws IOException {
+		Blockette blockette = readBlockette(in);
+		StationMeta stationMeta = null;
+		try {
+			stationMeta = new StationMeta(blockette, timestamp);
+		} catch (WrongBlocketteException e) {
+			throw new IOException("Encoded station blockette is not a B050");
+		}
+		double latitude = in.readDouble();
+		double longitude = in.readDouble();
+		stationMeta.setLatLon(latitude, longitude);
+		stationMeta.setElevation(in.readDouble());
+		stationMeta.setComment(readString(in));
+
+		int numberOfChannels = in.readInt();
+		for (int i = 0; i < numberOfChannels; i++) {
+			ChannelMeta channelMeta = readChannel(in, station, timestamp);
+			stationMeta.addChannel(new ChannelKey(channelMeta.getLocation(),
+					channelMeta.getName()), channelMeta);
+		}
+		return stationMeta;
+	}
+
+	private static void writeBlockette(DataOutputStream out,
+			Blockette blockette) throws IOException {
+		out.writeShort(blockette.getNumber());
+		Hashtable<Integer, Field> fields = blockette.getFields();
+		out.writeShort(fields.size());
+		for (Integer fieldID : new TreeSet<Integer>(fields.keySet())) {
+			Field field = fields.get(fieldID);
+			out.writeShort(fieldID);
+			writeString(out, field.getDescription());
+			ArrayList<String> values = field.getValues();
+			out.writeShort(values.size());
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	private static Blockette readBlockette(DataInputStream in)
+			throws IOException {
+		Blockette blockette = new Blockette(in.readShort());
+		int numberOfFields = in.readShort();
+		for (int i = 0; i < numberOfFields; i++) {
+			int fieldID = in.readShort();
+			String description = readString(in);
+			int numberOfValues = in.readShort();
+			for (int j = 0; j < numberOfValues; j++) {
+				blockette.addFieldValue(fieldID, description, readString(in));
+			}
+		}
+		return blockette;
+	}
+
+	private static void writeChannel(DataOutputStream out,
+			ChannelMeta channelMeta) throws IOException {
+		writeString(out, channelMeta.getLocation());
+		writeString(out, channelMeta.getName());
+		writeString(out, channelMeta.getInstrumentType());
+		writeString(out, channelMeta.getChannelFlags());
+		out.writeDouble(channelMeta.getSampleRate());
+		out.writeDouble(channelMeta.getDip());
+		out.writeDouble(channelMeta.getAzimuth());
+		out.writeDouble(channelMeta.getDepth());
+		out.writeBoolean(channelMeta.hasDayBreak());
+
+		Hashtable<Integer, ResponseStage> stages = channelMeta.getStages();
+		TreeSet<Integer> stageIDs = new TreeSet<Integer>(stages.keySet());
+		out.writeShort(stageIDs.size());
+		for (Integer stageID : stageIDs) {
+			out.writeInt(stageID);
+			writeStage(out, stages.get(stageID));
+		}
+	}
+
+	private static ChannelMeta readChannel(DataInputStream in,
+			Station station, Calendar timestamp) throws IOException {
+		String location = readString(in);
+		String name = readString(in);
+		ChannelMeta channelMeta = new ChannelMeta(new ChannelKey(location,
+				name), timestamp, station);
+		channelMeta.setInstrumentType(readString(in));
+		channelMeta.setChannelFlags(readString(in));
+		channelMeta.setSampleRate(in.readDouble());
+		channelMeta.setDip(in.readDouble());
+		channelMeta.setAzimuth(in.readDouble());
+		channelMeta.setDepth(in.readDouble());
+		if (in.readBoolean()) {
+			channelMeta.setDayBreak();
+		}
+
+		int numberOfStages = in.readShort();
+		for (int i = 0; i < numberOfStages; i++) {
+			int stageID = in.readInt();
+			channelMeta.addStage(stageID, readStage(in));
+		}
+		return channelMeta;
+	}
+
+	/**
+	 * Also the content key of ResponseStage.equals()/hashCode()
+	 */
+	static void writeStage(DataOutputStream out, ResponseStage stage)
+			throws IOException {
+		if (stage instanceof PoleZeroStage) {
+			out.writeByte(POLE_ZERO_STAGE);
+		} else if (stage instanceof DigitalStage) {
+			out.writeByte(DIGITAL_STAGE);
+		} else if (stage instanceof PolynomialStage) {
+			out.writeByte(POLYNOMIAL_STAGE);
+		} else {
+			throw new IOException("Unsupported response stage class: "
+					+ stage.getClass().getName());
+		}
+		out.writeInt(stage.getStageNumber());
+		out.writeChar(stage.getStageType());
+		out.writeDouble(stage.getStageGain());
+		out.writeDouble(stage.getStageGainFrequency());
+		writeString(out, stage.getInputUnitsString());
+		writeString(out, stage.getOutputUnitsString());
+
+		if (stage instanceof PoleZeroStage) {
+			PoleZeroStage pz = (PoleZeroStage) stage;
+			// getResponse() depends on the flags, not just on the values
+			out.writeBoolean(pz.isNormalizationSet());
+			out.writeBoolean(pz.isPoleAdded());
+			out.writeBoolean(pz.isZeroAdded());
+			out.writeDouble(pz.getNormalization());
+			writeCmplx(out, pz.getPoles());
+			writeCmplx(out, pz.getZeros());
+		} else if (stage instanceof DigitalStage) {
+			DigitalStage dig = (DigitalStage) stage;
+			out.writeDouble(dig.getInputSampleRate());
+			out.writeInt(dig.getDecimation());
+			List<Double> coefficients = dig.getCoefficients();
+			int numberOfCoefficients = (coefficients == null) ? 0
+					: coefficients.size();
+			out.writeInt(numberOfCoefficients);
+			for (int i = 0; i < numberOfCoefficients; i++) {
+				out.writeDouble(coefficients.get(i));
+			}
+		} else {
+			PolynomialStage poly = (PolynomialStage) stage;
+			writeString(out, poly.getPolynomialApproximationType());
+			out.writeDouble(poly.getLowerFrequencyBound());
+			out.writeDouble(poly.getUpperFrequencyBound());
+			out.writeDouble(poly.getLowerApproximationBound());
+			out.writeDouble(poly.getUpperApproximationBound());
+			writeCmplx(out, poly.getCoefficients());
+		}
+	}
+
+	private static ResponseStage readStage(DataInputStream in)
+			throws IOException {
+		char kind = (char) in.readByte();
+		int stageNumber = in.readInt();
+		char stageType = in.readChar();
+		double stageGain = in.readDouble();
+		double stageFrequency = in.readDouble();
+		String inputUnits = readString(in);
+		String outputUnits = readString(in);
+
+		ResponseStage stage = null;
+		if (kind == POLE_ZERO_STAGE) {
+			PoleZeroStage pz = new PoleZeroStage(stageNumber, stageType,
+					stageGain, stageFrequency);
+			boolean normalizationSet = in.readBoolean();
+			// (set by the poles and zeros that are added)
+			in.readBoolean(); // poleAdded
+			in.readBoolean(); // zeroAdded
+			double normalization = in.readDouble();
+			if (normalizationSet) {
+				pz.setNormalization(normalization);
+			}
+			for (Cmplx pole : readCmplx(in)) {
+				pz.addPole(pole);
+			}
+			for (Cmplx zero : readCmplx(in)) {
+				pz.addZero(zero);
+			}
+			stage = pz;
+		} else if (kind == DIGITAL_STAGE) {
+			DigitalStage dig = new DigitalStage(stageNumber, stageType,
+					stageGain, stageFrequency);
+			dig.setInputSampleRate(in.readDouble());
+			dig.setDecimation(in.readInt());
+			int numberOfCoefficients = in.readInt();
+			for (int i = 0; i < numberOfCoefficients; i++) {
+				dig.addCoefficient(in.readDouble());
+			}
+			stage = dig;
+		} else if (kind == POLYNOMIAL_STAGE) {
+			PolynomialStage poly = new PolynomialStage(stageNumber,
+					stageType, stageGain, stageFrequency);
+			poly.setPolynomialApproximationType(readString(in));
+			poly.setLowerFrequencyBound(in.readDouble());
+			poly.setUpperFrequencyBound(in.readDouble());
+			poly.setLowerApproximationBound(in.readDouble());
+			poly.setUpperApproximationBound(in.readDouble());
+			for (Cmplx coefficient : readCmplx(in)) {
+				poly.addCoefficient(coefficient);
+			}
+			stage = poly;
+		} else {
+			throw new IOException("Unknown response stage kind: " + kind);
+		}
+		if (inputUnits != null) {
+			stage.setInputUnits(inputUnits);
+		}
+		if (outputUnits != null) {
+			stage.setOutputUnits(outputUnits);
+		}
+		return stage;
+	}
+
+	private static void writeCmplx(DataOutputStream out, List<Cmplx> values) throws IOException {
+		out.writeInt(values.size());
+		for (Cmplx value : values) {
+			out.writeDouble(value.real());
+			out.writeDouble(value.imag());
+		}
+	}
+
+	private static ArrayList<Cmplx> readCmplx(DataInputStream in)
+			throws IOException {
+		int n = in.readInt();
+		ArrayList<Cmplx> values = new ArrayList<Cmplx>(n);
+		for (int i = 0; i < n; i++) {
+			double real = in.readDouble();
+			double imag = in.readDouble();
+			values.add(new Cmplx(real, imag));
+		}
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String string)
+			throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null) {
+			out.writeUTF(string);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -29,6 +29,8 @@ public class Scan {
 	private String datalessDir;
 	private String eventsDir;
 	private String plotsDir;
+	private String cacheDir;
+	private int metadataReloadInterval = 0;
 	private int startDay;
 	private int daysToScan;
 	private int startDate;
@@ -74,6 +76,25 @@ public class Scan {
 		return plotsDir;
 	}
 
+	// metadata snapshot dir (see MetaGenerator.loadDataless)
+	public void setCacheDir(String cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public String getCacheDir() {
+		return cacheDir;
+	}
+
+	// seconds between checks for changed dataless files (0 = don't check,
+	// see MetaServer.startMetadataWatcher)
+	public void setMetadataReloadInterval(int metadataReloadInterval) {
+		this.metadataReloadInterval = metadataReloadInterval;
+	}
+
+	public int getMetadataReloadInterval() {
+		return metadataReloadInterval;
+	}
+
 	public void setEventsDir(String eventsDir) {
 		this.eventsDir = eventsDir;
 	}
@@ -158,6 +158,14 @@ public class Scanner implements Runnable {
 		// CMT Event loader - use to load events for each day
 		EventLoader eventLoader = new EventLoader(scan.getEventsDir());
 
+		// The PSDs only collect spectrograms if a metric uses them
+		boolean collectSpectrograms = false;
+		for (MetricWrapper wrapper : scan.getMetrics()) {
+			if (wrapper.requiresSpectrograms()) {
+				collectSpectrograms = true;
+			}
+		}
+
 		// Loop over days to scan, from most recent (currentDay=startDay) to
 		// oldest (currentDay=startDay - daysToScan - 1)
 		// e.g.,
@@ -210,7 +218,8 @@ public class Scanner implements Runnable {
 					.getDayEvents(timestamp);
 			Hashtable<String, Hashtable<String, SacTimeSeries>> eventSynthetics = null;
 	
-			if (eventCMTs != null) {
+			if (eventCMTs != null
+					&& eventLoader.hasDaySynthetics(timestamp, station)) {
 				// SortedSet<String> keys = new
 				// TreeSet<String>(eventCMTs.keySet());
 				// for (String key : keys){
@@ -256,8 +265,19 @@ public class Scanner implements Runnable {
 	
 			try { // wrapper.getNewInstance()
 				for (MetricWrapper wrapper : scan.getMetrics()) {
+					// Event metrics only have work on days with events (and
+					// synthetics for this station) in the events catalog
+					if (wrapper.requiresEvents() && eventCMTs == null) {
+						continue;
+					}
+					if (wrapper.requiresSynthetics()
+							&& (eventSynthetics == null || eventSynthetics
+									.isEmpty())) {
+						continue;
+					}
 					Metric metric = wrapper.getNewInstance();
 					metric.setBaseOutputDir(scan.getPlotsDir());
+					metric.setCollectSpectrograms(collectSpectrograms);
 	
 					if (currentMetricData != null) {
 						metric.setData(currentMetricData);
@@ -472,7 +492,7 @@ public class Scanner implements Runnable {
 			calibrationTable = splitter.getCalTable();
 
 			return new MetricData(reader, timestamp, table, qualityTable, stationMeta,
-					calibrationTable);
+					calibrationTable, splitter.getIndexTable());
 		} catch (TimeoutException e) {
 			StringBuilder message = new StringBuilder();
 			message.append(String.format("== TimeoutException: Skipping to next day for [%s]:[%s]\n", station, EpochData.epochToDateString(timestamp)));
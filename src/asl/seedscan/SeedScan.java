@@ -26,8 +26,10 @@ import asl.seedscan.config.ScanT;
 import asl.seedscan.database.MetricDatabase;
 import asl.seedscan.database.MetricInjector;
 import asl.seedscan.database.MetricReader;
+import asl.seedscan.metrics.DeconvolutionService;
 import asl.seedscan.metrics.MetricWrapper;
 import asl.util.Filter;
+import asl.util.PlotService;
 
 /**
  * The Class SeedScan.
@@ -140,6 +142,11 @@ public class SeedScan {
 				scan.setDatalessDir(scanCfg.getDatalessDir());
 				scan.setEventsDir(scanCfg.getEventsDir());
 				scan.setPlotsDir(scanCfg.getPlotsDir());
+				scan.setCacheDir(scanCfg.getCacheDir());
+				if (scanCfg.getMetadataReloadInterval() != null) {
+					scan.setMetadataReloadInterval(scanCfg
+							.getMetadataReloadInterval().intValue());
+				}
 				scan.setDaysToScan(scanCfg.getDaysToScan().intValue());
 				if (scanCfg.getStartDay() != null) {
 					scan.setStartDay(scanCfg.getStartDay().intValue());
@@ -257,6 +264,10 @@ public class SeedScan {
 		else
 			netKeys = networks.getKeys();
 
+		// A station subset only scans a few stations: read just their
+		// metadata (the others are indexed, not parsed)
+		boolean lazyMeta = (scan.getStations() != null);
+
 		// MTH: This part could/should be moved up higher except that we need to
 		// know datalessDir, which,
 		// at this point, is configured on a per scan basis ... so we need to
@@ -272,10 +283,19 @@ public class SeedScan {
 					logger.error("Caught URI exception:", e);
 				}
 			} else {
-				metaServer = new MetaServer(scan.getDatalessDir(), netKeys);
+				metaServer = new MetaServer(scan.getDatalessDir(), netKeys,
+						lazyMeta, scan.getCacheDir());
 			}
 		} else { // Use local MetaServer
-			metaServer = new MetaServer(scan.getDatalessDir(), netKeys);
+			metaServer = new MetaServer(scan.getDatalessDir(), netKeys,
+					lazyMeta, scan.getCacheDir());
+		}
+
+		// Long (e.g., backfill) scans can pick up newly published dataless
+		// files
+		if (metaServer != null && scan.getMetadataReloadInterval() > 0) {
+			metaServer.startMetadataWatcher(scan.getMetadataReloadInterval()
+					* 1000L);
 		}
 
 		List<Station> stations = null;
@@ -331,6 +351,10 @@ public class SeedScan {
 					stations, scan, metaServer);
 		}
 
+		logger.info("ScanManager is [ FINISHED ] --> wait for the plots to be written");
+		PlotService.shutdownInstance();
+		DeconvolutionService.shutdownInstance();
+
 		logger.info("ScanManager is [ FINISHED ] --> stop the injector and reader threads");
 
 		try {
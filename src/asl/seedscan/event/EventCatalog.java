@@ -0,0 +1,248 @@
+/*
+ * Copyright 2011, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+
+package asl.seedscan.event;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Hashtable;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * EventCatalog - The CMT events of the events directory, indexed once by day.
+ *
+ * The events directory is laid out as year/eventId/ (e.g.,
+ * ../events/2012/C201204112255A/) with the event's CMT in currCMTmineos and its
+ * synthetics in station sac files (e.g., HRV.XX.LXZ.modes.sac.proc). Every
+ * year directory is listed and every currCMTmineos read when the catalog is
+ * built; the event directories are listed into the SyntheticCache index so the
+ * stations with synthetics are known without touching the disk again.
+ *
+ * The catalog is not modified after it is built and may be shared by the
+ * Scanner threads.
+ */
+public class EventCatalog {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.event.EventCatalog.class);
+
+	private final File eventsDir;
+
+	// yyyymodd --> eventId --> EventCMT, in day order
+	private final TreeMap<String, Hashtable<String, EventCMT>> days = new TreeMap<String, Hashtable<String, EventCMT>>();
+
+	// eventId --> event directory
+	private final Hashtable<String, File> eventDirs = new Hashtable<String, File>();
+
+	// eventId --> stations with synthetics
+	private final Hashtable<String, Set<String>> stations = new Hashtable<String, Set<String>>();
+
+	private int nEvents = 0;
+
+	/**
+	 * Index the events of eventsDir
+	 *
+	 * @param eventsDir
+	 *            the events directory, e.g., ../events
+	 * @param synthetics
+	 *            the cache whose index of each event directory is used to
+	 *            find the stations with synthetics
+	 */
+	public EventCatalog(File eventsDir, SyntheticCache synthetics) {
+		this.eventsDir = eventsDir;
+		long start = System.currentTimeMillis();
+
+		File[] yearDirs = eventsDir.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isDirectory() && file.getName().matches("\\d{4}");
+			}
+		});
+		if (yearDirs == null) {
+			logger.error(String.format("Could not list eventsDir=%s",
+					eventsDir));
+			return;
+		}
+		for (File yearDir : yearDirs) {
+			File[] yearEvents = yearDir.listFiles(new FileFilter() {
+				public boolean accept(File file) {
+					return file.isDirectory();
+				}
+			});
+			if (yearEvents == null) {
+				continue;
+			}
+			for (File eventDir : yearEvents) {
+				EventCMT eventCMT = readCMT(eventDir);
+				if (eventCMT == null) {
+					continue;
+				}
+				String day = makeKey(eventCMT.getCalendar());
+				Hashtable<String, EventCMT> dayCMTs = days.get(day);
+				if (dayCMTs == null) {
+					dayCMTs = new Hashtable<String, EventCMT>();
+					days.put(day, dayCMTs);
+				}
+				dayCMTs.put(eventCMT.getEventID(), eventCMT);
+				eventDirs.put(eventCMT.getEventID(), eventDir);
+				stations.put(eventCMT.getEventID(), synthetics.getStations(
+						eventDir, eventCMT.getEventID()));
+				nEvents++;
+			}
+		}
+		logger.info(String.format(
+				"Indexed %d events on %d days in eventsDir=%s in %d ms",
+				nEvents, days.size(), eventsDir, System.currentTimeMillis()
+						- start));
+	}
+
+	/**
+	 * @return The day key (yyyymodd) of timestamp
+	 */
+	public static String makeKey(Calendar timestamp) {
+		String yyyy = String.format("%4d", timestamp.get(Calendar.YEAR));
+		String mo = String.format("%02d", timestamp.get(Calendar.MONTH) + 1);
+		String dd = String.format("%02d", timestamp.get(Calendar.DAY_OF_MONTH));
+		return yyyy + mo + dd;
+	}
+
+	/**
+	 * @param day
+	 *            yyyymodd
+	 * @return The events of the day keyed by event id or null if there are
+	 *         none
+	 */
+	public Hashtable<String, EventCMT> getDayEvents(String day) {
+		return days.get(day);
+	}
+
+	/**
+	 * @return The directory of the event or null if it isn't in the catalog
+	 */
+	public File getEventDir(String eventId) {
+		return eventDirs.get(eventId);
+	}
+
+	/**
+	 * @return true if the event directory has synthetics for the station
+	 */
+	public boolean hasSynthetics(String eventId, String station) {
+		Set<String> eventStations = stations.get(eventId);
+		return eventStations != null && eventStations.contains(station);
+	}
+
+	/**
+	 * @return true if any event of the day has synthetics for the station
+	 */
+	public boolean hasDaySynthetics(String day, String station) {
+		Hashtable<String, EventCMT> dayCMTs = days.get(day);
+		if (dayCMTs == null) {
+			return false;
+		}
+		for (String eventId : dayCMTs.keySet()) {
+			if (hasSynthetics(eventId, station)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read the CMT of an event directory from its currCMTmineos, e.g.,
+	 *
+	 * C201204112255A 2012 102 22 55 10.80 18.1500 -102.9600 21.3000 1.0 ...
+	 *
+	 * @return The event's CMT or null if it is missing or invalid
+	 */
+	private static EventCMT readCMT(File eventDir) {
+		File cmtFile = new File(eventDir, "currCMTmineos");
+		if (!cmtFile.exists()) {
+			logger.error(String.format(
+					"Did NOT find cmtFile=currCMTmineos in dir=[%s]", eventDir));
+			return null;
+		}
+		BufferedReader br = null;
+		try {
+			br = new BufferedReader(new FileReader(cmtFile));
+			String line = br.readLine();
+			if (line == null) {
+				logger.error(String.format(
+						"cmtFile=currCMTmineos in dir=[%s] is EMPTY", eventDir));
+				return null;
+			}
+			String[] args = line.trim().split("\\s+");
+			if (args.length < 9) {
+				logger.error(String.format(
+						"cmtFile=currCMTmineos in dir=[%s] is INVALID",
+						eventDir));
+				return null;
+			}
+			String idString = args[0];
+			int year = Integer.valueOf(args[1].trim());
+			int dayOfYear = Integer.valueOf(args[2].trim());
+			int hh = Integer.valueOf(args[3].trim());
+			int mm = Integer.valueOf(args[4].trim());
+			double xsec = Double.valueOf(args[5].trim());
+			double lat = Double.valueOf(args[6].trim());
+			double lon = Double.valueOf(args[7].trim());
+			double dep = Double.valueOf(args[8].trim());
+
+			int sec = (int) xsec;
+			double foo = 1000 * (xsec - sec);
+			int msec = (int) foo;
+
+			GregorianCalendar gcal = new GregorianCalendar(
+					TimeZone.getTimeZone("GMT"));
+			gcal.set(Calendar.YEAR, year);
+			gcal.set(Calendar.DAY_OF_YEAR, dayOfYear);
+			gcal.set(Calendar.HOUR_OF_DAY, hh);
+			gcal.set(Calendar.MINUTE, mm);
+			gcal.set(Calendar.SECOND, sec);
+			gcal.set(Calendar.MILLISECOND, msec);
+
+			return new EventCMT.Builder(idString).calendar(gcal)
+					.latitude(lat).longitude(lon).depth(dep).build();
+		} catch (NumberFormatException e) {
+			logger.error(String.format(
+					"Caught NumberFormatException while trying to read cmtFile=[%s]\n",
+					cmtFile), e);
+			return null;
+		} catch (IOException e) {
+			logger.error(String.format(
+					"Caught IOException while trying to read cmtFile=[%s]\n",
+					cmtFile), e);
+			return null;
+		} finally {
+			try {
+				if (br != null)
+					br.close();
+			} catch (IOException ex) {
+				logger.error("IOException:", ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2011, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+
+package asl.seedscan.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sac.MappedSacFile;
+import sac.SacTimeSeries;
+
+/**
+ * SyntheticCache - The synthetic seismograms of the event directories
+ * (e.g., ../events/2012/C201204112255A/HRV.XX.LXZ.modes.sac.proc), shared by
+ * all Scanner threads and days.
+ *
+ * Each event directory is listed once, into an index of the non-empty sac
+ * files of each station. The files themselves are kept mapped (see
+ * MappedSacFile) in an LRU cache keyed by event id + file name (= station +
+ * component), up to a total size in bytes. Concurrent requests for the same
+ * file share a single open.
+ *
+ * Every get() returns a new SacTimeSeries copied from the mapped file, since
+ * callers filter the data in place (see MyFilter.bandpass()).
+ */
+public class SyntheticCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.event.SyntheticCache.class);
+
+	public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+	private final long maxBytes;
+
+	// eventId --> station --> sac file names
+	private final ConcurrentHashMap<String, Hashtable<String, ArrayList<String>>> index = new ConcurrentHashMap<String, Hashtable<String, ArrayList<String>>>();
+
+	// eventId/fileName --> mapped file, in access order
+	private final LinkedHashMap<String, MappedSacFile> files = new LinkedHashMap<String, MappedSacFile>(
+			16, 0.75f, true);
+	private long bytes = 0;
+
+	// Reads in progress
+	private final ConcurrentHashMap<String, FutureTask<MappedSacFile>> loading = new ConcurrentHashMap<String, FutureTask<MappedSacFile>>();
+
+	private final AtomicLong listings = new AtomicLong();
+	private final AtomicLong reads = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+
+	public SyntheticCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	public SyntheticCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param eventDir
+	 *            the event directory, e.g., ../events/2012/C201204112255A
+	 * @param eventId
+	 *            the event id, e.g., C201204112255A
+	 * @param station
+	 *            the station code, e.g., HRV
+	 * @return The synthetics of station for the event keyed by file name
+	 *         (e.g., "HRV.XX.LXZ.modes.sac.proc") or null if there are none
+	 */
+	public Hashtable<String, SacTimeSeries> getSynthetics(File eventDir,
+			String eventId, String station) {
+		ArrayList<String> fileNames = getIndex(eventDir, eventId).get(station);
+		if (fileNames == null) {
+			return null;
+		}
+		Hashtable<String, SacTimeSeries> synthetics = null;
+		for (String fileName : fileNames) {
+			SacTimeSeries sac = get(new File(eventDir, fileName), eventId);
+			if (sac == null) {
+				continue;
+			}
+			if (synthetics == null) {
+				synthetics = new Hashtable<String, SacTimeSeries>();
+			}
+			synthetics.put(fileName, sac);
+		}
+		return synthetics;
+	}
+
+	/**
+	 * @return The stations with synthetics in the event directory (listing it
+	 *         the first time)
+	 */
+	public Set<String> getStations(File eventDir, String eventId) {
+		return Collections.unmodifiableSet(getIndex(eventDir, eventId)
+				.keySet());
+	}
+
+	/**
+	 * @return station --> sac file names of the event, listing the event
+	 *         directory the first time
+	 */
+	private Hashtable<String, ArrayList<String>> getIndex(File eventDir,
+			String eventId) {
+		Hashtable<String, ArrayList<String>> stations = index.get(eventId);
+		if (stations != null) {
+			return stations;
+		}
+		stations = new Hashtable<String, ArrayList<String>>();
+		File[] sacFiles = eventDir.listFiles();
+		listings.incrementAndGet();
+		if (sacFiles == null) {
+			logger.warn(String.format(
+					"getSynthetics: eventDir=[%s] does NOT EXIST!", eventDir));
+		} else {
+			for (File sacFile : sacFiles) {
+				String name = sacFile.getName();
+				int dot = name.indexOf('.');
+				if (dot <= 0 || !name.contains(".sac")
+						|| sacFile.length() == 0) {
+					continue;
+				}
+				String station = name.substring(0, dot);
+				ArrayList<String> fileNames = stations.get(station);
+				if (fileNames == null) {
+					fileNames = new ArrayList<String>();
+					stations.put(station, fileNames);
+				}
+				fileNames.add(name);
+			}
+		}
+		Hashtable<String, ArrayList<String>> indexed = index.putIfAbsent(
+				eventId, stations);
+		return (indexed == null) ? stations : indexed;
+	}
+
+	/**
+	 * @return A new SacTimeSeries copied from the cached mapped file or null
+	 *         if the file could not be read
+	 */
+	private SacTimeSeries get(final File sacFile, String eventId) {
+		final String key = eventId + "/" + sacFile.getName();
+		MappedSacFile mapped = getCached(key);
+		if (mapped == null) {
+			FutureTask<MappedSacFile> task = new FutureTask<MappedSacFile>(
+					new Callable<MappedSacFile>() {
+						public MappedSacFile call() throws IOException {
+							MappedSacFile mapped = readFile(sacFile);
+							put(key, mapped);
+							return mapped;
+						}
+					});
+			FutureTask<MappedSacFile> loader = loading.putIfAbsent(key, task);
+			if (loader == null) {
+				loader = task;
+				task.run();
+				loading.remove(key);
+			}
+			try {
+				mapped = loader.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException e) {
+				logger.error(String.format("Could not read sacFile=[%s]",
+						sacFile), e.getCause());
+				return null;
+			}
+		} else {
+			hits.incrementAndGet();
+		}
+		try {
+			return mapped.toSacTimeSeries();
+		} catch (IOException e) {
+			logger.error(String.format("Could not decode sacFile=[%s]",
+					sacFile), e);
+			return null;
+		}
+	}
+
+	private MappedSacFile readFile(File sacFile) throws IOException {
+		logger.info(String.format("Found sacFile=%s [%s]", sacFile,
+				sacFile.getName()));
+		reads.incrementAndGet();
+		return new MappedSacFile(sacFile);
+	}
+
+	private synchronized MappedSacFile getCached(String key) {
+		return files.get(key);
+	}
+
+	private synchronized void put(String key, MappedSacFile mapped) {
+		MappedSacFile previous = files.put(key, mapped);
+		if (previous != null) {
+			bytes -= previous.getLength();
+		}
+		bytes += mapped.getLength();
+		Iterator<Map.Entry<String, MappedSacFile>> eldest = files.entrySet()
+				.iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<String, MappedSacFile> entry = eldest.next();
+			if (entry.getKey().equals(key)) {
+				continue; // keep the one just read
+			}
+			bytes -= entry.getValue().getLength();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * @return Counters for the log, e.g., "listings=12 reads=36 hits=360"
+	 */
+	public String getStats() {
+		long cached;
+		synchronized (this) {
+			cached = bytes;
+		}
+		return String.format("listings=%d reads=%d hits=%d cachedBytes=%d",
+				listings.get(), reads.get(), hits.get(), cached);
+	}
+}
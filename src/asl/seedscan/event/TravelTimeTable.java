@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+
+package asl.seedscan.event;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.sc.seis.TauP.Arrival;
+import edu.sc.seis.TauP.TauModel;
+import edu.sc.seis.TauP.TauModelException;
+import edu.sc.seis.TauP.TauModelLoader;
+import edu.sc.seis.TauP.TauP_Time;
+
+/**
+ * TravelTimeTable - P and S travel times in PREM, shared by all Scanner
+ * threads.
+ *
+ * The model is loaded once. Travel times are tabulated over a grid of source
+ * depth (DEPTH_STEP km up to MAX_DEPTH) and distance (DISTANCE_STEP degrees),
+ * one depth row at a time the first time a depth near it is asked for, and
+ * looked up by bilinear interpolation. Points off the grid, or next to a grid
+ * point without a single P and a single S arrival (e.g., triplications at
+ * regional distances, the P shadow zone), are computed exactly with TauP.
+ */
+public class TravelTimeTable {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.event.TravelTimeTable.class);
+
+	public static final String MODEL = "prem";
+	public static final double DEPTH_STEP = 5.; // km
+	public static final double MAX_DEPTH = 700.; // km
+	public static final double DISTANCE_STEP = 0.5; // degrees
+	public static final double MAX_DISTANCE = 180.; // degrees
+
+	private static final int NDEPTHS = (int) (MAX_DEPTH / DEPTH_STEP) + 1;
+	private static final int NDISTANCES = (int) (MAX_DISTANCE / DISTANCE_STEP) + 1;
+
+	private static TravelTimeTable instance = null;
+
+	private final TauModel model;
+
+	// [depth][distance] P and S times, NaN if there aren't exactly one P and
+	// one S arrival; a row is null until it is computed
+	private final double[][] timesP = new double[NDEPTHS][];
+	private final double[][] timesS = new double[NDEPTHS][];
+
+	private TravelTimeTable() throws TauModelException {
+		long start = System.currentTimeMillis();
+		model = TauModelLoader.load(MODEL);
+		logger.info("Loaded travel time model [{}] in {} ms", MODEL,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * @return The shared table or null if the model could not be loaded
+	 */
+	public static synchronized TravelTimeTable getInstance() {
+		if (instance == null) {
+			try {
+				instance = new TravelTimeTable();
+			} catch (TauModelException e) {
+				logger.error("TauModelException:", e);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * @param depth
+	 *            source depth (km)
+	 * @param distance
+	 *            epicentral distance (degrees)
+	 * @return {P time, S time} (seconds after origin) or null unless there is
+	 *         exactly one P and one S arrival (as TauP_Time returns for phase
+	 *         list "P,S")
+	 */
+	public double[] getArrivalTimes(double depth, double distance) {
+		if (depth < 0 || depth > MAX_DEPTH || distance < 0
+				|| distance > MAX_DISTANCE) {
+			return calculate(depth, distance);
+		}
+		int i = Math.min((int) (depth / DEPTH_STEP), NDEPTHS - 2);
+		int j = Math.min((int) (distance / DISTANCE_STEP), NDISTANCES - 2);
+		double u = depth / DEPTH_STEP - i;
+		double v = distance / DISTANCE_STEP - j;
+
+		double p = interpolate(getRow(timesP, i), getRow(timesP, i + 1), j,
+				u, v);
+		double s = interpolate(getRow(timesS, i), getRow(timesS, i + 1), j,
+				u, v);
+		if (Double.isNaN(p) || Double.isNaN(s)) {
+			return calculate(depth, distance);
+		}
+		return new double[] { p, s };
+	}
+
+	/**
+	 * @return Bilinear interpolation of [j, j+1] x [row0, row1] or NaN if any
+	 *         of the 4 corners is NaN
+	 */
+	private static double interpolate(double[] row0, double[] row1, int j,
+			double u, double v) {
+		double t00 = row0[j];
+		double t01 = row0[j + 1];
+		double t10 = row1[j];
+		double t11 = row1[j + 1];
+		return (1 - u) * ((1 - v) * t00 + v * t01) + u
+				* ((1 - v) * t10 + v * t11);
+	}
+
+	private double[] getRow(double[][] times, int i) {
+		synchronized (times) {
+			if (times[i] != null) {
+				return times[i];
+			}
+		}
+		computeRow(i);
+		synchronized (times) {
+			return times[i];
+		}
+	}
+
+	/**
+	 * Tabulate the P and S times of depth row i (one depth correction, then
+	 * every distance)
+	 */
+	private synchronized void computeRow(int i) {
+		synchronized (timesP) {
+			if (timesP[i] != null) {
+				return;
+			}
+		}
+		long start = System.currentTimeMillis();
+		double depth = i * DEPTH_STEP;
+		double[] rowP = new double[NDISTANCES];
+		double[] rowS = new double[NDISTANCES];
+		try {
+			TauP_Time timeTool = new TauP_Time(model);
+			timeTool.parsePhaseList("P,S");
+			timeTool.depthCorrect(depth);
+			for (int j = 0; j < NDISTANCES; j++) {
+				timeTool.calculate(j * DISTANCE_STEP);
+				double[] times = getTimes(timeTool.getArrivals());
+				rowP[j] = (times == null) ? Double.NaN : times[0];
+				rowS[j] = (times == null) ? Double.NaN : times[1];
+			}
+		} catch (TauModelException e) {
+			logger.error("TauModelException:", e);
+			// Leave the row all NaN so it falls back to calculate()
+			for (int j = 0; j < NDISTANCES; j++) {
+				rowP[j] = Double.NaN;
+				rowS[j] = Double.NaN;
+			}
+		}
+		synchronized (timesS) {
+			timesS[i] = rowS;
+		}
+		synchronized (timesP) {
+			timesP[i] = rowP;
+		}
+		logger.debug("Tabulated travel times for depth={} km in {} ms",
+				depth, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Exact travel times from TauP
+	 */
+	private synchronized double[] calculate(double depth, double distance) {
+		try {
+			TauP_Time timeTool = new TauP_Time(model);
+			timeTool.parsePhaseList("P,S");
+			timeTool.depthCorrect(depth);
+			timeTool.calculate(distance);
+			return getTimes(timeTool.getArrivals());
+		} catch (TauModelException e) {
+			logger.error("TauModelException:", e);
+			return null;
+		}
+	}
+
+	private static double[] getTimes(List<Arrival> arrivals) {
+		if (arrivals.size() != 2 || !arrivals.get(0).getName().equals("P")
+				|| !arrivals.get(1).getName().equals("S")) {
+			return null;
+		}
+		return new double[] { arrivals.get(0).getTime(),
+				arrivals.get(1).getTime() };
+	}
+}
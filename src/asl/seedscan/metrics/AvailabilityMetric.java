@@ -26,7 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import asl.metadata.Channel;
 import asl.metadata.meta_new.ChannelMeta;
-import asl.seedsplitter.DataSet;
+import asl.seedsplitter.SegmentIndex;
 
 public class AvailabilityMetric extends Metric {
 	private static final Logger logger = LoggerFactory
@@ -82,7 +82,6 @@ public class AvailabilityMetric extends Metric {
 		// Initialize availability and sample rates
 		double availability = 0;
 		double metaSR = 0.0;
-		double dataSR = 0.0;
 
 		// The expected (=from metadata) number of samples:
 		ChannelMeta chanMeta = stationMeta.getChanMeta(channel);
@@ -93,22 +92,17 @@ public class AvailabilityMetric extends Metric {
 		// 60.);
 
 		// The actual (=from data) number of samples:
-		List<DataSet> datasets = metricData.getChannelData(channel);
-
-		int ndata = 0;
-
-		for (DataSet dataset : datasets) {
-			// Check sample rates of metadata and station channel data
-			dataSR = dataset.getSampleRate();
-			if (dataSR != metaSR) {
-				logger.error(
-						"SampleRate Mismatch: station:[{}] channel:[{}] day:[{}] "
-								+ "metaSR:[{}] dataSR:[{}]", getStation(),
-						channel, getDay(), metaSR, dataSR);
-				continue;
-			}
-			ndata += dataset.getLength();
-		} // end for each dataset
+		SegmentIndex index = metricData.getSegmentIndex(channel);
+
+		// Check sample rates of metadata and station channel data
+		long ndata = index.getSampleCount(metaSR);
+		if (ndata != index.getSampleCount()) {
+			logger.error(
+					"SampleRate Mismatch: station:[{}] channel:[{}] day:[{}] "
+							+ "metaSR:[{}] --> {} samples at other rates skipped",
+					getStation(), channel, getDay(), metaSR,
+					index.getSampleCount() - ndata);
+		}
 
 		if (expectedPoints > 0) {
 			availability = 100. * (double) ndata / (double) expectedPoints;
@@ -38,7 +38,8 @@ import asl.metadata.meta_new.ChannelMeta;
 import asl.metadata.meta_new.ResponseStage;
 import asl.seedsplitter.DataSet;
 import asl.util.PlotMaker;
-import freq.Cmplx;
+import asl.util.PlotService;
+import freq.ComplexArray;
 
 public class CalibrationMetric extends Metric {
 	private static final Logger logger = LoggerFactory
@@ -290,9 +291,9 @@ public class CalibrationMetric extends Metric {
 
 		double dt = 1.0 / srate;
 		PSD psdX = new PSD(inData, inData, dt);
-		Cmplx[] Gx = psdX.getSpectrum();
+		ComplexArray Gx = psdX.getSpectrum();
 		double df = psdX.getDeltaF();
-		double[] freq = psdX.getFreq();
+		final double[] freq = psdX.getFreq();
 		int nf = freq.length;
 
 		ChannelMeta chanMeta = stationMeta.getChanMeta(channel);
@@ -311,32 +312,35 @@ public class CalibrationMetric extends Metric {
 		}
 
 		PSD psdXY = new PSD(inData, outData, dt);
-		Cmplx[] Gxy = psdXY.getSpectrum();
-		Cmplx[] Hf = new Cmplx[Gxy.length];
-		double[] calAmp = new double[Gxy.length];
-		double[] calPhs = new double[Gxy.length];
-		Cmplx ic = new Cmplx(0.0, 1.0);
-		for (int k = 0; k < Gxy.length; k++) {
+		ComplexArray Gxy = psdXY.getSpectrum();
+		// Hf[k] = Gxy[k] / Gx[k] * iw
+		ComplexArray Hf = Gxy.copy();
+		Hf.divInPlace(Gx);
+		ComplexArray iw = new ComplexArray(Gxy.length());
+		final double[] calAmp = new double[Gxy.length()];
+		final double[] calPhs = new double[Gxy.length()];
+		for (int k = 0; k < Gxy.length(); k++) {
 			// Cal coils generate an ACCERLATION but we want the intrument
 			// response to VELOCITY:
 			// Note that for metadata stage 1 = 'A' [Laplace rad/s] so that
 			// s=i*2pi*f
 			// most II stations have stage1 = 'B' [Analog Hz] and should use
 			// s=i*f
-			Cmplx iw = Cmplx.mul(ic, s * freq[k]);
-			Hf[k] = Cmplx.div(Gxy[k], Gx[k]);
-			Hf[k] = Cmplx.mul(Hf[k], iw);
+			iw.set(k, 0., s * freq[k]);
+		}
+		Hf.mul(iw);
+		for (int k = 0; k < Gxy.length(); k++) {
 			// calAmp[k] = Hf[k].mag();
-			calAmp[k] = 20. * Math.log10(Hf[k].mag());
-			calPhs[k] = Hf[k].phs() * 180. / Math.PI;
+			calAmp[k] = 20. * Math.log10(Hf.mag(k));
+			calPhs[k] = Hf.phs(k) * 180. / Math.PI;
 		}
 
-		Cmplx[] instResponse = chanMeta.getPoleZeroResponse(freq);
-		double[] ampResponse = new double[nf];
-		double[] phsResponse = new double[nf];
+		ComplexArray instResponse = chanMeta.getPoleZeroResponse(freq);
+		final double[] ampResponse = new double[nf];
+		final double[] phsResponse = new double[nf];
 		for (int k = 0; k < nf; k++) {
-			ampResponse[k] = 20. * Math.log10(instResponse[k].mag());
-			phsResponse[k] = instResponse[k].phs() * 180. / Math.PI;
+			ampResponse[k] = 20. * Math.log10(instResponse.mag(k));
+			phsResponse[k] = instResponse.phs(k) * 180. / Math.PI;
 		}
 
 		// Change of plans: Not clear that Tmin and Tmax are even going to be
@@ -470,10 +474,14 @@ public class CalibrationMetric extends Metric {
 			final String pngName = String.format("%s.%s.%s.png",
 					getOutputDir(), channel, "calib");
 
-			PlotMaker plotMaker = new PlotMaker(metricResult.getStation(),
-					channel, metricResult.getDate());
-			plotMaker.plotSpecAmp2(freq, ampResponse, phsResponse, calAmp,
-					calPhs, plotTitle, pngName);
+			final PlotMaker plotMaker = new PlotMaker(
+					metricResult.getStation(), channel, metricResult.getDate());
+			PlotService.getInstance().submit(new Runnable() {
+				public void run() {
+					plotMaker.plotSpecAmp2(freq, ampResponse, phsResponse,
+							calAmp, calPhs, plotTitle, pngName);
+				}
+			}, pngName);
 		}
 
 		return calibration;
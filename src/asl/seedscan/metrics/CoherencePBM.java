@@ -30,6 +30,7 @@ import asl.metadata.Channel;
 import asl.metadata.ChannelArray;
 import asl.util.PlotMaker2;
 import asl.util.PlotMakerException;
+import asl.util.PlotService;
 import asl.util.Trace;
 import asl.util.TraceException;
 
@@ -116,7 +117,7 @@ public class CoherencePBM extends PowerBandMetric {
 		if (getMakePlots() && completeCompute) {
 			final String pngName = String.format("%s.%s.png", getOutputDir(),
 					"coher");
-			plotMaker.writePlot(pngName);
+			PlotService.getInstance().writePlot(plotMaker, pngName);
 		}
 	} // end process()
 
@@ -29,11 +29,17 @@ public class CrossPower {
 
 	private double[] powerSpectrum = null;
 	private double spectrumDeltaF = 0.;
+	private Spectrogram spectrogram = null;
 
 	// constructor
 	public CrossPower(double[] powerSpectrum, double df) {
+		this(powerSpectrum, df, null);
+	}
+
+	public CrossPower(double[] powerSpectrum, double df, Spectrogram spectrogram) {
 		this.powerSpectrum = powerSpectrum;
 		this.spectrumDeltaF = df;
+		this.spectrogram = spectrogram;
 	}
 
 	public double[] getSpectrum() {
@@ -44,4 +50,12 @@ public class CrossPower {
 		return spectrumDeltaF;
 	}
 
+	/**
+	 * @return The spectrogram of the segments that went into the spectrum or
+	 *         null (cross spectra, or the spectrum could not be computed)
+	 */
+	public Spectrogram getSpectrogram() {
+		return spectrogram;
+	}
+
 }
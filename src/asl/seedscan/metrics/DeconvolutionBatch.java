@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import timeutils.Timeseries;
+import asl.metadata.Channel;
+import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
+import asl.metadata.meta_new.ChannelMetaException;
+import asl.metadata.meta_new.StationMeta;
+import asl.seedsplitter.SampleView;
+
+/**
+ * DeconvolutionBatch - Collects the (channel, window) deconvolutions a metric
+ * needs for a station-day (e.g., 00-LH?, 10-LH? and 20-LN? for every event of
+ * the day) and runs them together.
+ *
+ * The requests are grouped by channel and FFT length so that each group
+ * evaluates the instrument response and bandpass taper once (see
+ * MetricData.getDeconvolutionPlan), and the groups are processed in parallel
+ * by the shared DeconvolutionService.
+ * The results are identical to calling getFilteredDisplacement() for each
+ * window.
+ *
+ * Usage:
+ * batch.addZNE("C201206101234A:00", "00", "LH", start, end);
+ * ...
+ * batch.process();
+ * ArrayList<double[]> zne = batch.getZNE("C201206101234A:00");
+ */
+public class DeconvolutionBatch {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.DeconvolutionBatch.class);
+
+	private final MetricData metricData;
+	private final StationMeta metadata;
+	private final ResponseUnits responseUnits;
+	private final double f1, f2, f3, f4;
+
+	private final Hashtable<String, Request> requests = new Hashtable<String, Request>();
+	private final Hashtable<String, Request[]> zneRequests = new Hashtable<String, Request[]>();
+	// set if process() was interrupted: the results may be incomplete
+	private boolean interrupted = false;
+
+	/**
+	 * One windowed channel. result stays null if there is no metadata or no
+	 * data for the window (as getFilteredDisplacement() returns null).
+	 */
+	private static class Request {
+		final Channel channel;
+		final long windowStartEpoch;
+		final long windowEndEpoch;
+		SampleView timeseries;
+		double[] result;
+		Exception exception;
+
+		Request(Channel channel, long windowStartEpoch, long windowEndEpoch) {
+			this.channel = channel;
+			this.windowStartEpoch = windowStartEpoch;
+			this.windowEndEpoch = windowEndEpoch;
+		}
+	}
+
+	public DeconvolutionBatch(MetricData metricData,
+			ResponseUnits responseUnits, double f1, double f2, double f3,
+			double f4) {
+		this.metricData = metricData;
+		this.metadata = metricData.getMetaData();
+		this.responseUnits = responseUnits;
+		this.f1 = f1;
+		this.f2 = f2;
+		this.f3 = f3;
+		this.f4 = f4;
+	}
+
+	/**
+	 * Request the Z, N, E traces of location-band for the window. The key is
+	 * used to pick up the result with getZNE(key).
+	 */
+	public void addZNE(String key, String location, String band,
+			long windowStartEpoch, long windowEndEpoch) {
+		Channel vertChannel = new Channel(location, (band + "Z"));
+		Channel channel1 = metadata.getChannel(location, band, "1");
+		Channel channel2 = metadata.getChannel(location, band, "2");
+
+		Request[] zne = new Request[3];
+		zne[0] = add(vertChannel, windowStartEpoch, windowEndEpoch);
+		zne[1] = add(channel1, windowStartEpoch, windowEndEpoch);
+		zne[2] = add(channel2, windowStartEpoch, windowEndEpoch);
+		zneRequests.put(key, zne);
+	}
+
+	private Request add(Channel channel, long windowStartEpoch,
+			long windowEndEpoch) {
+		String key = String.format("%s:%d:%d", channel, windowStartEpoch,
+				windowEndEpoch);
+		Request request = requests.get(key);
+		if (request == null) {
+			request = new Request(channel, windowStartEpoch, windowEndEpoch);
+			requests.put(key, request);
+		}
+		return request;
+	}
+
+	/**
+	 * Window the data and run the deconvolutions on the DeconvolutionService
+	 * threads. If the calling thread is interrupted, the remaining groups are
+	 * cancelled, the interrupt flag is restored and getZNE() returns null.
+	 */
+	public void process() {
+		// Window the data (views: the samples are copied by the threads,
+		// straight into the deconvolution arrays) and group the requests by
+		// channel + FFT length
+		Hashtable<String, List<Request>> groups = new Hashtable<String, List<Request>>();
+		for (Request request : requests.values()) {
+			if (request.channel == null || !metadata.hasChannel(request.channel)) {
+				logger.error("Metadata NOT found for station=[{}-{}] channel=[{}] date=[{}] --> Can't return Displacement",
+						metadata.getNetwork(), metadata.getStation(),
+						request.channel, metadata.getDate());
+				continue;
+			}
+			request.timeseries = metricData.getWindowedView(request.channel,
+					request.windowStartEpoch, request.windowEndEpoch);
+			if (request.timeseries == null) {
+				logger.warn("Did not get requested window for station=[{}-{}] channel=[{}] date=[{}] --> Can't return Displacement",
+						metadata.getNetwork(), metadata.getStation(),
+						request.channel, metadata.getDate());
+				continue;
+			}
+			String groupKey = String.format("%s:%d", request.channel,
+					DeconvolutionPlan.getFFTLength(request.timeseries.getLength()));
+			List<Request> group = groups.get(groupKey);
+			if (group == null) {
+				group = new ArrayList<Request>();
+				groups.put(groupKey, group);
+			}
+			group.add(request);
+		}
+		if (groups.size() == 0) {
+			return;
+		}
+
+		DeconvolutionService service = DeconvolutionService.getInstance();
+		List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+		try {
+			for (final List<Request> group : groups.values()) {
+				tasks.add(service.submit(new Callable<Void>() {
+					public Void call() {
+						for (Request request : group) {
+							if (Thread.currentThread().isInterrupted()) {
+								break;
+							}
+							try {
+								request.result = metricData
+										.removeInstrumentAndFilter(
+												responseUnits, request.channel,
+												request.timeseries, f1, f2,
+												f3, f4);
+							} catch (ChannelMetaException e) {
+								request.exception = e;
+							} catch (MetricException e) {
+								request.exception = e;
+							}
+							request.timeseries = null;
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> task : tasks) {
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					logger.error("ExecutionException:", e);
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.warn("DeconvolutionBatch interrupted --> discard the results for station=[{}-{}] date=[{}]",
+					metadata.getNetwork(), metadata.getStation(),
+					metadata.getDate());
+			for (Future<Void> task : tasks) {
+				task.cancel(true);
+			}
+			interrupted = true;
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The Z, N, E traces requested with addZNE(key, ...) or null if
+	 *         any of the 3 channels could not be deconvolved
+	 */
+	public ArrayList<double[]> getZNE(String key) throws ChannelMetaException,
+			MetricException {
+		Request[] zne = zneRequests.get(key);
+		if (zne == null || interrupted) {
+			return null;
+		}
+		for (Request request : zne) {
+			if (request.exception instanceof ChannelMetaException) {
+				throw (ChannelMetaException) request.exception;
+			} else if (request.exception instanceof MetricException) {
+				throw (MetricException) request.exception;
+			}
+		}
+
+		double[] z = zne[0].result;
+		double[] x = zne[1].result;
+		double[] y = zne[2].result;
+		if (x == null || y == null || z == null) {
+			logger.error("== getZNE (date:[{}]): getFilteredDisplacement returned null --> There is probably something wrong with this station\n",
+					metadata.getDate());
+			return null;
+		}
+		Channel channel1 = zne[1].channel;
+		Channel channel2 = zne[2].channel;
+
+		int ndata = x.length;
+
+		double srate1 = metadata.getChanMeta(channel1).getSampleRate();
+		double srate2 = metadata.getChanMeta(channel2).getSampleRate();
+
+		if (srate1 != srate2) {
+			StringBuilder message = new StringBuilder();
+			message.append(String
+					.format("createRotatedChannels: srate1 != srate2!!\n"));
+			throw new MetricException(message.toString());
+		}
+
+		double[] n = new double[ndata];
+		double[] e = new double[ndata];
+
+		double az1 = (metadata.getChanMeta(channel1)).getAzimuth();
+		double az2 = (metadata.getChanMeta(channel2)).getAzimuth();
+
+		Timeseries.rotate_xy_to_ne(az1, az2, x, y, n, e);
+
+		ArrayList<double[]> dispZNE = new ArrayList<double[]>();
+		dispZNE.add(z);
+		dispZNE.add(n);
+		dispZNE.add(e);
+		return dispZNE;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.util.Hashtable;
+
+import timeutils.OverlapSaveFilter;
+import timeutils.Timeseries;
+import asl.metadata.meta_new.ChannelMeta;
+import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
+import asl.metadata.meta_new.ChannelMetaException;
+import asl.seedsplitter.SampleView;
+import freq.ComplexArray;
+
+/**
+ * DeconvolutionPlan - The parts of MetricData.removeInstrumentAndFilter()
+ * that depend only on the channel response, the FFT length and the bandpass
+ * corners: the instrument response and the cos taper on the nfft frequency
+ * grid.
+ *
+ * A plan is computed once per (channel, units, nfft, corners) and reused for
+ * every window of that length, e.g., the same channel for all the events of a
+ * day. Plans are immutable once built (apart from the filter cache) and may be
+ * shared between threads.
+ *
+ * Windows are filtered block by block with an OverlapSaveFilter when its
+ * kernel is short enough to stay within OverlapSaveFilter.TOLERANCE of the
+ * whole window FFT, which is used otherwise.
+ */
+class DeconvolutionPlan {
+	private final int nfft;
+	private final double[] taper;
+	private final ComplexArray response;
+	// ndata --> filter or NO_FILTER if the whole window FFT must be used
+	private final Hashtable<Integer, Object> filters = new Hashtable<Integer, Object>();
+	private static final Object NO_FILTER = new Object();
+
+	DeconvolutionPlan(ChannelMeta chanMeta, ResponseUnits responseUnits,
+			int nfft, double f1, double f2, double f3, double f4)
+			throws ChannelMetaException {
+		this.nfft = nfft;
+		// We are going to do an nfft point FFT which will return
+		// nfft/2+1 +ve frequencies (including DC + Nyq)
+		int nf = nfft / 2 + 1;
+
+		double dt = 1. / chanMeta.getSampleRate();
+		double df = 1. / (nfft * dt);
+
+		double[] freq = new double[nf];
+		for (int k = 0; k < nf; k++) {
+			freq[k] = (double) k * df;
+		}
+
+		// Get the instrument response for requested ResponseUnits
+		response = chanMeta.getResponse(freq, responseUnits);
+
+		double fNyq = (double) (nf - 1) * df;
+
+		if (f4 > fNyq) {
+			f4 = fNyq;
+		}
+
+		int k1 = (int) (f1 / df);
+		int k2 = (int) (f2 / df);
+		int k3 = (int) (f3 / df);
+		int k4 = (int) (f4 / df);
+
+		taper = new double[nf];
+		for (int k = 0; k < nf; k++) {
+			taper[k] = bpass(k, k1, k2, k3, k4);
+		}
+	}
+
+	/**
+	 * Smallest power of 2 >= ndata
+	 */
+	static int getFFTLength(int ndata) {
+		int nfft = 1;
+		while (nfft < ndata)
+			nfft = (nfft << 1);
+		return nfft;
+	}
+
+	int getFFTLength() {
+		return nfft;
+	}
+
+	/**
+	 * Detrend, debias, taper, remove the instrument response and bandpass
+	 * timeseries[] (whose power of 2 length must be this plan's nfft).
+	 */
+	double[] deconvolve(double[] timeseries) {
+		double[] data = new double[timeseries.length];
+		for (int i = 0; i < timeseries.length; i++) {
+			data[i] = timeseries[i];
+		}
+		return deconvolveInPlace(data);
+	}
+
+	/**
+	 * As deconvolve(double[]) for the samples of a view, which are copied
+	 * from the view's Sequences straight into the working array.
+	 */
+	double[] deconvolve(SampleView timeseries) {
+		return deconvolveInPlace(timeseries.toArray());
+	}
+
+	private double[] deconvolveInPlace(double[] data) {
+		int ndata = data.length;
+
+		Timeseries.detrend(data);
+		Timeseries.debias(data);
+		Timeseries.costaper(data, .01);
+
+		OverlapSaveFilter filter = getFilter(ndata);
+		if (filter != null) {
+			double[] filtered = new double[ndata];
+			filter.filter(data, filtered);
+			return filtered;
+		}
+
+		// fft returns just the (nf = nfft/2 + 1) positive frequencies
+		ComplexArray xfft = ComplexArray.fft(data);
+
+		// Remove instrument: We use conjg() here since the SEED inst
+		// resp FFT convention F(w) ~ e^-iwt ****
+		// while the Numerical Recipes convention is F(w) ~ e^+iwt
+		xfft.divConjInPlace(response);
+		xfft.scale(taper); // Bandpass
+
+		// Reflect spec about the Nyquist to get -ve freqs and invert
+		return xfft.inverseFFT(ndata);
+	}
+
+	/**
+	 * @return The block filter for windows of ndata samples or null if the
+	 *         whole window FFT must be used
+	 */
+	private OverlapSaveFilter getFilter(int ndata) {
+		Object filter = filters.get(ndata);
+		if (filter == null) {
+			// H = taper / conjg(response), as applied in deconvolveInPlace()
+			int nf = taper.length;
+			ComplexArray h = new ComplexArray(taper.clone(), new double[nf]);
+			h.divConjInPlace(response);
+			filter = OverlapSaveFilter.create(h, ndata);
+			if (filter == null) {
+				filter = NO_FILTER;
+			}
+			filters.put(ndata, filter);
+		}
+		return (filter == NO_FILTER) ? null : (OverlapSaveFilter) filter;
+	}
+
+	private static double bpass(int n, int n1, int n2, int n3, int n4) {
+		if (n <= n1 || n >= n4)
+			return (0.);
+		else if (n >= n2 && n <= n3)
+			return (1.);
+		else if (n > n1 && n < n2)
+			return (.5 * (1 - Math.cos(Math.PI * (n - n1) / (n2 - n1))));
+		else if (n > n3 && n < n4)
+			return (.5 * (1 - Math.cos(Math.PI * (n4 - n) / (n4 - n3))));
+		else
+			return (-9999999.);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DeconvolutionService - The threads that run the DeconvolutionBatch groups
+ * of all the Scanner threads.
+ *
+ * The number of threads is fixed (one per available processor), so the
+ * deconvolutions of the concurrent station-days share the processors instead
+ * of each batch starting its own pool. Tasks wait in an unbounded queue (the
+ * submitting Scanner threads block on their results). Tasks submitted after
+ * the service is shut down (e.g., by a batch that got the instance before
+ * shutdownInstance()) run on the submitting thread.
+ */
+public class DeconvolutionService {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.DeconvolutionService.class);
+
+	public static final long SHUTDOWN_TIMEOUT = 60; // seconds
+
+	private static DeconvolutionService instance = null;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param nThreads
+	 *            the number of deconvolution threads
+	 */
+	public DeconvolutionService(int nThreads) {
+		executor = new ThreadPoolExecutor(nThreads, nThreads, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "DeconvolutionService-"
+								+ count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new RejectedExecutionHandler() {
+					public void rejectedExecution(Runnable r,
+							ThreadPoolExecutor executor) {
+						// Unlike CallerRunsPolicy, also run it when shut down
+						r.run();
+					}
+				});
+	}
+
+	/**
+	 * @return The service shared by all metrics (one thread per available
+	 *         processor)
+	 */
+	public static synchronized DeconvolutionService getInstance() {
+		if (instance == null) {
+			instance = new DeconvolutionService(Runtime.getRuntime()
+					.availableProcessors());
+		}
+		return instance;
+	}
+
+	/**
+	 * Stop the threads of the shared service (if it was used).
+	 */
+	public static synchronized void shutdownInstance() {
+		if (instance != null) {
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * Wait for the running deconvolutions to finish and stop the threads.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				logger.warn("Deconvolutions still running after {} seconds --> give up",
+						SHUTDOWN_TIMEOUT);
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			logger.warn("DeconvolutionService interrupted while waiting for deconvolutions:", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -23,7 +23,6 @@ import java.awt.Color;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Hashtable;
-import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -36,13 +35,13 @@ import asl.metadata.ChannelArray;
 import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
 import asl.metadata.meta_new.ChannelMetaException;
 import asl.seedscan.event.EventCMT;
+import asl.seedscan.event.TravelTimeTable;
 import asl.util.PlotMaker2;
 import asl.util.PlotMakerException;
+import asl.util.PlotService;
 import asl.util.Trace;
 import asl.util.TraceException;
-import edu.sc.seis.TauP.Arrival;
 import edu.sc.seis.TauP.SphericalCoords;
-import edu.sc.seis.TauP.TauP_Time;
 
 public class EventCompareStrongMotion extends Metric {
 	private static final Logger logger = LoggerFactory
@@ -77,6 +76,11 @@ public class EventCompareStrongMotion extends Metric {
 		return "EventCompareStrongMotion";
 	}
 
+	@Override
+	public boolean requiresEvents() {
+		return true;
+	}
+
 	public void process() {
 
 		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
@@ -170,33 +174,59 @@ public class EventCompareStrongMotion extends Metric {
 		int nEvents = 0;
 		int eventNumber = 0;
 
-		// Loop over Events for this day
-		try { // getZNE() method try/catch
-			SortedSet<String> eventKeys = new TreeSet<String>(
-					eventCMTs.keySet());
-			for (String key : eventKeys) {
+		ResponseUnits units = ResponseUnits.DISPLACEMENT;
+		SortedSet<String> eventKeys = new TreeSet<String>(eventCMTs.keySet());
+		Hashtable<String, double[]> eventArrivalTimes = new Hashtable<String, double[]>();
+
+		// Queue the event windows of all the locations up front so the
+		// deconvolutions of the day share their responses and run in
+		// parallel
+		DeconvolutionBatch batch = new DeconvolutionBatch(metricData, units,
+				f1, f2, f3, f4);
+		for (String key : eventKeys) {
+
+			EventCMT eventCMT = eventCMTs.get(key);
+
+			// Use P and S arrival times to trim the window down for
+			// comparison:
+			double[] arrivalTimes = getEventArrivalTimes(eventCMT);
+			if (arrivalTimes == null) {
+				System.out
+						.format("== %s: arrivalTimes==null for stn=[%s] day=[%s]: Distance to stn probably > 97-deg --> Don't compute metric\n",
+								getName(), getStation(), getDay());
+				continue;
+			}
+			eventArrivalTimes.put(key, arrivalTimes);
 
-				EventCMT eventCMT = eventCMTs.get(key);
+			// Window the data from the Event (PDE) Origin.
+			// Use larger time window to do the instrument decons and trim
+			// it down later:
 
-				// Window the data from the Event (PDE) Origin.
-				// Use larger time window to do the instrument decons and trim
-				// it down later:
+			long duration = 8000000L; // 8000 sec = 8000000 msecs
+			long eventStartTime = eventCMT.getTimeInMillis(); // Event origin
+																// epoch time
+																// in millisecs
+			long eventEndTime = eventStartTime + duration;
 
-				long duration = 8000000L; // 8000 sec = 8000000 msecs
-				long eventStartTime = eventCMT.getTimeInMillis(); // Event
-																	// origin
-																	// epoch
-																	// time in
-																	// millisecs
-				long eventEndTime = eventStartTime + duration;
+			if (compute00) {
+				batch.addZNE(key + ":00", "00", "LH", eventStartTime,
+						eventEndTime);
+			}
+			if (compute10) {
+				batch.addZNE(key + ":10", "10", "LH", eventStartTime,
+						eventEndTime);
+			}
+			batch.addZNE(key + ":20", "20", "LN", eventStartTime,
+					eventEndTime);
+		}
+		batch.process();
 
-				// Use P and S arrival times to trim the window down for
-				// comparison:
-				double[] arrivalTimes = getEventArrivalTimes(eventCMT);
+		// Loop over Events for this day
+		try { // getZNE() method try/catch
+			for (String key : eventKeys) {
+
+				double[] arrivalTimes = eventArrivalTimes.get(key);
 				if (arrivalTimes == null) {
-					System.out
-							.format("== %s: arrivalTimes==null for stn=[%s] day=[%s]: Distance to stn probably > 97-deg --> Don't compute metric\n",
-									getName(), getStation(), getDay());
 					continue;
 				}
 
@@ -209,13 +239,11 @@ public class EventCompareStrongMotion extends Metric {
 				// getName(), arrivalTimes[0],
 				// arrivalTimes[1], nstart, nend);
 
-				ResponseUnits units = ResponseUnits.DISPLACEMENT;
 				ArrayList<double[]> dataDisp = new ArrayList<double[]>();
 
 				ArrayList<double[]> dataDisp00 = null;
 				if (compute00) {
-					dataDisp00 = metricData.getZNE(units, "00", "LH",
-							eventStartTime, eventEndTime, f1, f2, f3, f4);
+					dataDisp00 = batch.getZNE(key + ":00");
 					if (dataDisp00 != null) {
 						dataDisp.addAll(dataDisp00);
 					} else {
@@ -224,16 +252,14 @@ public class EventCompareStrongMotion extends Metric {
 				}
 				ArrayList<double[]> dataDisp10 = null;
 				if (compute10) {
-					dataDisp10 = metricData.getZNE(units, "10", "LH",
-							eventStartTime, eventEndTime, f1, f2, f3, f4);
+					dataDisp10 = batch.getZNE(key + ":10");
 					if (dataDisp10 != null) {
 						dataDisp.addAll(dataDisp10);
 					} else {
 						compute10 = false;
 					}
 				}
-				ArrayList<double[]> dataDisp20 = metricData.getZNE(units, "20",
-						"LN", eventStartTime, eventEndTime, f1, f2, f3, f4);
+				ArrayList<double[]> dataDisp20 = batch.getZNE(key + ":20");
 				if (dataDisp20 != null) {
 					dataDisp.addAll(dataDisp20);
 				}
@@ -339,57 +365,29 @@ public class EventCompareStrongMotion extends Metric {
 		double gcarc = SphericalCoords.distance(evla, evlo, stla, stlo);
 		xDist = gcarc;
 		double azim = SphericalCoords.azimuth(evla, evlo, stla, stlo);
-		TauP_Time timeTool = null;
-		try {
-			timeTool = new TauP_Time("prem");
-			timeTool.parsePhaseList("P,S");
-			timeTool.depthCorrect(evdep);
-			timeTool.calculate(gcarc);
-		} catch (Exception e) {
-			logger.error("Exception:", e);
+		TravelTimeTable travelTimes = TravelTimeTable.getInstance();
+		if (travelTimes == null) {
+			return null;
 		}
-
-		List<Arrival> arrivals = timeTool.getArrivals();
-
-		// for (int i=0; i<arrivals.size(); i++){
-		// Arrival arrival = arrivals.get(i);
-		// System.out.println(arrival.getName()+" arrives at "+
-		// (arrival.getDist()*180.0/Math.PI)+" degrees after "+
-		// arrival.getTime()+" seconds.");
-		// }
 		// We could screen by max distance (e.g., 90 deg for P direct)
 		// or by counting arrivals (since you won't get a P arrival beyond about
 		// 97 deg or so)
-		if (arrivals.size() != 2) { // Either we don't have both P & S or we
+		double[] arrivalTimes = travelTimes.getArrivalTimes(evdep, gcarc);
+		if (arrivalTimes == null) { // Either we don't have both P & S or we
 									// don't have just P & S
 			logger.warn(String
 					.format("Expected P and/or S arrival times not found [gcarc=%8.4f]",
 							gcarc));
 			return null;
 		}
-
-		double arrivalTimeP = 0.;
-		if (arrivals.get(0).getName().equals("P")) {
-			arrivalTimeP = arrivals.get(0).getTime();
-		} else {
-			logger.warn(String.format("Expected P arrival time not found"));
-		}
-		double arrivalTimeS = 0.;
-		if (arrivals.get(1).getName().equals("S")) {
-			arrivalTimeS = arrivals.get(1).getTime();
-		} else {
-			logger.warn(String.format("Expected S arrival time not found"));
-		}
+		double arrivalTimeP = arrivalTimes[0];
+		double arrivalTimeS = arrivalTimes[1];
 
 		logger.info(String
 				.format("Event:%s <evla,evlo> = <%.2f, %.2f> Station:%s <%.2f, %.2f> gcarc=%.2f azim=%.2f tP=%.3f tS=%.3f\n",
 						eventCMT.getEventID(), evla, evlo, getStation(), stla,
 						stlo, gcarc, azim, arrivalTimeP, arrivalTimeS));
 
-		double[] arrivalTimes = new double[2];
-		arrivalTimes[0] = arrivalTimeP;
-		arrivalTimes[1] = arrivalTimeS;
-
 		return arrivalTimes;
 	}
 
@@ -459,7 +457,7 @@ public class EventCompareStrongMotion extends Metric {
 									stroke), i);
 				}
 			}
-			plotMaker.writePlot(pngName);
+			PlotService.getInstance().writePlot(plotMaker, pngName);
 		} catch (PlotMakerException e) {
 			throw e;
 		} catch (TraceException e) {
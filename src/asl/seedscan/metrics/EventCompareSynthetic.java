@@ -23,6 +23,7 @@ import asl.metadata.meta_new.ChannelMetaException;
 import asl.seedscan.event.EventCMT;
 import asl.util.PlotMaker2;
 import asl.util.PlotMakerException;
+import asl.util.PlotService;
 import asl.util.Trace;
 import asl.util.TraceException;
 import edu.sc.seis.TauP.SphericalCoords;
@@ -103,6 +104,16 @@ public class EventCompareSynthetic extends Metric {
 		return "EventCompareSynthetic";
 	}
 
+	@Override
+	public boolean requiresEvents() {
+		return true;
+	}
+
+	@Override
+	public boolean requiresSynthetics() {
+		return true;
+	}
+
 	/**
 	 * @see asl.seedscan.metrics.Metric#process()
 	 */
@@ -201,37 +212,68 @@ public class EventCompareSynthetic extends Metric {
 		int nEvents = 0;
 		int eventNumber = 0;
 
+		ResponseUnits units = ResponseUnits.DISPLACEMENT;
+		SortedSet<String> eventKeys = new TreeSet<String>(eventCMTs.keySet());
+		Hashtable<String, SacTimeSeries[]> eventSynthetics = new Hashtable<String, SacTimeSeries[]>();
+
+		// Load the synthetics of all the events first and queue their data
+		// windows so the deconvolutions of the day share their responses and
+		// run in parallel
+		DeconvolutionBatch batch = new DeconvolutionBatch(metricData, units,
+				f1, f2, f3, f4);
+		for (String key : eventKeys) {
+			Hashtable<String, SacTimeSeries> synthetics = getEventSynthetics(key);
+			if (synthetics == null) {
+				System.out
+						.format("== %s: No synthetics found for key=[%s] for this station\n",
+								getName(), key);
+				continue;
+			}
+			// We do have synthetics for this station for this event -->
+			// Compare to data
+			// 1. Load up 3-comp synthetics
+			SacTimeSeries[] sacSynthetics = new SacTimeSeries[3];
+			String[] kcmp = { "Z", "N", "E" };
+			for (int i = 0; i < 3; i++) {
+				String fileKey = getStn() + ".XX.LX" + kcmp[i]
+						+ ".modes.sac.proc"; // e.g.,
+				// "ANMO.XX.LXZ.modes.sac.proc"
+				if (synthetics.containsKey(fileKey)) {
+					sacSynthetics[i] = synthetics.get(fileKey);
+					MyFilter.bandpass(sacSynthetics[i], f1, f2, f3, f4);
+				} else {
+					logger.warn(String.format(
+							"Did not find sac synthetic=[%s] in Hashtable",
+							fileKey));
+					return;
+				}
+			}
+			eventSynthetics.put(key, sacSynthetics);
+
+			long eventStartTime = getSacStartTimeInMillis(sacSynthetics[0]
+					.getHeader());
+			// long eventStartTime = (eventCMTs.get(key)).getTimeInMillis();
+			long duration = 8000000L; // 8000 sec = 8000000 msecs
+			long eventEndTime = eventStartTime + duration;
+
+			if (compute00) {
+				batch.addZNE(key + ":00", "00", "LH", eventStartTime,
+						eventEndTime);
+			}
+			if (compute10) {
+				batch.addZNE(key + ":10", "10", "LH", eventStartTime,
+						eventEndTime);
+			}
+		}
+		batch.process();
+
 		// Loop over Events for this day
 		try {
-			SortedSet<String> eventKeys = new TreeSet<String>(
-					eventCMTs.keySet());
 			for (String key : eventKeys) {
-				Hashtable<String, SacTimeSeries> synthetics = getEventSynthetics(key);
-				if (synthetics == null) {
-					System.out
-							.format("== %s: No synthetics found for key=[%s] for this station\n",
-									getName(), key);
+				SacTimeSeries[] sacSynthetics = eventSynthetics.get(key);
+				if (sacSynthetics == null) {
 					continue;
 				}
-				// We do have synthetics for this station for this event -->
-				// Compare to data
-				// 1. Load up 3-comp synthetics
-				SacTimeSeries[] sacSynthetics = new SacTimeSeries[3];
-				String[] kcmp = { "Z", "N", "E" };
-				for (int i = 0; i < 3; i++) {
-					String fileKey = getStn() + ".XX.LX" + kcmp[i]
-							+ ".modes.sac.proc"; // e.g.,
-					// "ANMO.XX.LXZ.modes.sac.proc"
-					if (synthetics.containsKey(fileKey)) {
-						sacSynthetics[i] = synthetics.get(fileKey);
-						MyFilter.bandpass(sacSynthetics[i], f1, f2, f3, f4);
-					} else {
-						logger.warn(String.format(
-								"Did not find sac synthetic=[%s] in Hashtable",
-								fileKey));
-						return;
-					}
-				}
 				/**
 				 * try { //sacSynthetics[0].write("synth.z"); } catch (Exception
 				 * e){ }
@@ -240,19 +282,12 @@ public class EventCompareSynthetic extends Metric {
 
 				eventNumber++;
 
-				long eventStartTime = getSacStartTimeInMillis(hdr);
-				// long eventStartTime = (eventCMTs.get(key)).getTimeInMillis();
-				long duration = 8000000L; // 8000 sec = 8000000 msecs
-				long eventEndTime = eventStartTime + duration;
-
 				// 2. Load up Displacement Array
-				ResponseUnits units = ResponseUnits.DISPLACEMENT;
 				ArrayList<double[]> dataDisp = new ArrayList<double[]>();
 
 				ArrayList<double[]> dataDisp00 = null;
 				if (compute00) {
-					dataDisp00 = metricData.getZNE(units, "00", "LH",
-							eventStartTime, eventEndTime, f1, f2, f3, f4);
+					dataDisp00 = batch.getZNE(key + ":00");
 					if (dataDisp00 != null) {
 						dataDisp.addAll(dataDisp00);
 					} else {
@@ -261,8 +296,7 @@ public class EventCompareSynthetic extends Metric {
 				}
 				ArrayList<double[]> dataDisp10 = null;
 				if (compute10) {
-					dataDisp10 = metricData.getZNE(units, "10", "LH",
-							eventStartTime, eventEndTime, f1, f2, f3, f4);
+					dataDisp10 = batch.getZNE(key + ":10");
 					if (dataDisp10 != null) {
 						dataDisp.addAll(dataDisp10);
 					} else {
@@ -537,7 +571,7 @@ public class EventCompareSynthetic extends Metric {
 				}
 			}
 
-			plotMaker.writePlot(pngName);
+			PlotService.getInstance().writePlot(plotMaker, pngName);
 		} catch (PlotMakerException e) {
 			throw e;
 		} catch (TraceException e) {
@@ -25,7 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import asl.metadata.Channel;
-import asl.seedsplitter.DataSet;
+import asl.seedsplitter.SegmentIndex;
 
 public class GapCountMetric extends Metric {
 	private static final Logger logger = LoggerFactory
@@ -86,46 +86,27 @@ public class GapCountMetric extends Metric {
 	private double computeMetric(Channel channel, String station, String day,
 			String metric) {
 
-		List<DataSet> datasets = metricData.getChannelData(channel);
-		if (datasets == null) { // No data --> Skip this channel
+		SegmentIndex index = metricData.getSegmentIndex(channel);
+		if (index == null) { // No data --> Skip this channel
 			logger.error(
 					"No datasets found for station=[{}] channel=[{}] day=[{}] --> Skip Metric",
 					station, channel, day);
 			return NO_RESULT;
 		}
 
-		// First count any interior gaps (= gaps that aren't at the
-		// beginning/end of the day)
-		int gapCount = datasets.size() - 1;
-
-		long firstSetStartTime = datasets.get(0).getStartTime(); // time in
-																	// microsecs
-																	// since
-																	// epoch
-		long interval = datasets.get(0).getInterval(); // sample dt in microsecs
-
 		// stationMeta.getTimestamp() returns a Calendar object for the expected
 		// day
 		// convert it from milisecs to microsecs
 		long expectedStartTime = stationMeta.getTimestamp().getTimeInMillis() * 1000;
-		// double gapThreshold = interval / 2.;
-		double gapThreshold = interval / 1.;
-
-		// Check for possible gap at the beginning of the day
-		if ((firstSetStartTime - expectedStartTime) > gapThreshold) {
-			gapCount++;
-		}
-
 		long expectedEndTime = expectedStartTime + 86400000000L; // end of day
 																	// in
 																	// microsecs
-		long lastSetEndTime = datasets.get(datasets.size() - 1).getEndTime();
 
-		// Check for possible gap at the end of the day
-		// We expect a full day to be 24:00:00 - one sample = (86400 - dt) secs
-		if ((expectedEndTime - lastSetEndTime) > interval) {
-			gapCount++;
-		}
+		// The interior gaps (between the DataSets) plus a possible gap at
+		// the beginning and at the end of the day (longer than one sample
+		// interval). We expect a full day to be 24:00:00 - one sample = (86400
+		// - dt) secs
+		int gapCount = index.getGapCount(expectedStartTime, expectedEndTime);
 
 		return (double) gapCount;
 	} // end computeMetric()
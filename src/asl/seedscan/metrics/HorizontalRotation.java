@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.util.Hashtable;
+
+import timeutils.Timeseries;
+import asl.seedsplitter.Sequence;
+
+/**
+ * HorizontalRotation - Rotates a pair of horizontal channels (e.g., LH1, LH2)
+ * to north and east (LHND, LHED) block by block, straight from the Sequence
+ * storage of the horizontals into the (pooled) blocks of the rotated
+ * Sequences, without copying the channels into double[] arrays first.
+ *
+ * The rotation coefficients (see Timeseries.rotationCoefficients()) depend
+ * only on the azimuths of the horizontals, which change with the metadata
+ * epochs, so they are computed once per azimuth pair and shared by the
+ * locations, days and Scanner threads.
+ *
+ * The rotated samples are the same as those of Timeseries.rotate_xy_to_ne()
+ * truncated to int.
+ */
+public class HorizontalRotation {
+	// "az1,az2" --> rotation
+	private static final Hashtable<String, HorizontalRotation> rotations = new Hashtable<String, HorizontalRotation>();
+
+	private final double az1;
+	private final double az2;
+	// n = x * c[0] - y * c[1], e = x * c[2] + y * c[3]
+	private final double[] c;
+
+	private HorizontalRotation(double az1, double az2) {
+		this.az1 = az1;
+		this.az2 = az2;
+		this.c = Timeseries.rotationCoefficients(az1, az2);
+	}
+
+	/**
+	 * @param az1
+	 *            azimuth of the 1st horizontal (e.g., LH1)
+	 * @param az2
+	 *            azimuth of the 2nd horizontal (e.g., LH2)
+	 * @return The rotation of this pair of azimuths
+	 */
+	public static HorizontalRotation getRotation(double az1, double az2) {
+		String key = az1 + "," + az2;
+		HorizontalRotation rotation = rotations.get(key);
+		if (rotation == null) {
+			rotation = new HorizontalRotation(az1, az2);
+			rotations.put(key, rotation);
+		}
+		return rotation;
+	}
+
+	public double getAzimuth1() {
+		return az1;
+	}
+
+	public double getAzimuth2() {
+		return az2;
+	}
+
+	/**
+	 * Rotate count samples of x (from xIndex) and y (from yIndex) and append
+	 * the results to north and east
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if x or y don't have count samples from their index
+	 */
+	public void rotate(Sequence x, int xIndex, Sequence y, int yIndex,
+			int count, Sequence north, Sequence east)
+			throws IndexOutOfBoundsException {
+		if (xIndex < 0 || yIndex < 0 || count < 0
+				|| xIndex + count > x.getLength()
+				|| yIndex + count > y.getLength()) {
+			throw new IndexOutOfBoundsException(String.format(
+					"rotate(): xIndex=%d yIndex=%d count=%d xLength=%d yLength=%d",
+					xIndex, yIndex, count, x.getLength(), y.getLength()));
+		}
+		final int blockSize = Sequence.BLOCK_SIZE;
+		final double c0 = c[0], c1 = c[1], c2 = c[2], c3 = c[3];
+		int[] northBuffer = new int[blockSize];
+		int[] eastBuffer = new int[blockSize];
+
+		int done = 0;
+		while (done < count) {
+			// Sequence blocks start at multiples of BLOCK_SIZE samples, so a
+			// chunk ends at the next block boundary of either horizontal
+			int xPos = xIndex + done;
+			int yPos = yIndex + done;
+			int[] xBlock = x.getBlock(xPos / blockSize);
+			int[] yBlock = y.getBlock(yPos / blockSize);
+			int xOffset = xPos % blockSize;
+			int yOffset = yPos % blockSize;
+			int length = Math.min(count - done,
+					Math.min(blockSize - xOffset, blockSize - yOffset));
+
+			for (int i = 0; i < length; i++) {
+				double xValue = xBlock[xOffset + i];
+				double yValue = yBlock[yOffset + i];
+				northBuffer[i] = (int) (xValue * c0 - yValue * c1);
+				eastBuffer[i] = (int) (xValue * c2 + yValue * c3);
+			}
+			north.extend(northBuffer, 0, length);
+			east.extend(eastBuffer, 0, length);
+			done += length;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 
 package asl.seedscan.metrics;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -9,7 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sac.SacTimeSeries;
-import timeutils.PSD;
+import timeutils.StreamingPSD;
 import asl.metadata.Channel;
 import asl.metadata.EpochData;
 import asl.metadata.meta_new.ChannelMeta;
@@ -18,7 +19,8 @@ import asl.metadata.meta_new.ChannelMetaException;
 import asl.metadata.meta_new.StationMeta;
 import asl.seedscan.database.MetricValueIdentifier;
 import asl.seedscan.event.EventCMT;
-import freq.Cmplx;
+import asl.seedsplitter.DataSet;
+import freq.ComplexArray;
 
 /**
  * The basic class that all metrics extend.
@@ -43,6 +45,9 @@ public abstract class Metric {
 	
 	/** Determines if plots will be created. */
 	private boolean makePlots = false;
+
+	/** Collect spectrograms in computePSD() (see setCollectSpectrograms()) */
+	private boolean collectSpectrograms = false;
 	
 	/** The output directory for plots. */
 	private String outputDir = null;
@@ -108,6 +113,47 @@ public abstract class Metric {
 	 */
 	public abstract void process();
 
+	/**
+	 * Whether the metric only has something to compute on days with events.
+	 * The Scanner doesn't create it for the other days.
+	 *
+	 * @return true if the metric needs the event table
+	 */
+	public boolean requiresEvents() {
+		return false;
+	}
+
+	/**
+	 * Whether the metric only has something to compute for stations with
+	 * synthetics of the day's events.
+	 *
+	 * @return true if the metric needs the event synthetics
+	 */
+	public boolean requiresSynthetics() {
+		return false;
+	}
+
+	/**
+	 * Whether the metric uses the spectrograms of the auto spectra (see
+	 * CrossPower.getSpectrogram()). They are only collected when a metric of
+	 * the scan uses them.
+	 *
+	 * @return true if the metric needs the spectrograms
+	 */
+	public boolean requiresSpectrograms() {
+		return false;
+	}
+
+	/**
+	 * Sets whether getCrossPower() collects the spectrograms of the auto
+	 * spectra it computes.
+	 *
+	 * @param collectSpectrograms true if a metric of the scan uses them
+	 */
+	public void setCollectSpectrograms(boolean collectSpectrograms) {
+		this.collectSpectrograms = collectSpectrograms;
+	}
+
 	/**
 	 * Creates the identifier.
 	 *
@@ -171,14 +217,15 @@ public abstract class Metric {
 			// computePSD()
 			for (int i = 0; i < df.length; i++)
 				df[i] = 0;
+			Spectrogram[] spectrogram = new Spectrogram[1];
 			try {
-				psd = computePSD(channelA, channelB, df);
+				psd = computePSD(channelA, channelB, df, spectrogram);
 			} catch (MetricPSDException e) {
 				logger.error("MetricPSDException:", e);
 			} catch (ChannelMetaException e) {
 				logger.error("ChannelMetaException:", e);
 			}
-			crossPower = new CrossPower(psd, df[0]);
+			crossPower = new CrossPower(psd, df[0], spectrogram[0]);
 			crossPowerMap.put(key, crossPower);
 		}
 		return crossPower;
@@ -458,33 +505,29 @@ public abstract class Metric {
 	 * @param channelX            - X-channel used for power-spectral-density computation
 	 * @param channelY            - Y-channel used for power-spectral-density computation
 	 * @param params            [] - Dummy array used to pass df (frequency spacing) back up
+	 * @param spectrogram       [] - Dummy array used to pass the spectrogram of the PSD segments back up (auto spectra only)
 	 * @return psd[f] - Contains smoothed crosspower-spectral density computed
 	 *         for nf = nfft/2 + 1 frequencies (+ve freqs + DC + Nyq)
 	 * @throws ChannelMetaException the channel metadata exception
 	 * @throws MetricPSDException the metric psd exception
 	 */
 	private final double[] computePSD(Channel channelX, Channel channelY,
-			double[] params) throws ChannelMetaException, MetricPSDException {
+			double[] params, Spectrogram[] spectrogram)
+			throws ChannelMetaException, MetricPSDException {
 		double srate = 0; // srate = sample frequency, e.g., 20Hz
 
-		// This would give us 2 channels with the SAME number of (overlapping)
-		// points, but
-		// they might not represent a complete day (e.g., could be a single
-		// block of data in the middle of the day)
-		// double[][] channelOverlap = metricData.getChannelOverlap(channelX,
-		// channelY);
-		// double[] chanXData = channelOverlap[0];
-		// double[] chanYData = channelOverlap[1];
-
-		// Instead, getPaddedDayData() gives us a complete (zero padded if
-		// necessary) array of data for 1 day:
-		double[] chanXData = metricData.getPaddedDayData(channelX);
-		double[] chanYData = metricData.getPaddedDayData(channelY);
-
-		double srateX = metricData.getChannelData(channelX).get(0)
-				.getSampleRate();
-		double srateY = metricData.getChannelData(channelY).get(0)
-				.getSampleRate();
+		// Instead of building a complete (zero padded) array of data for 1 day
+		// with getPaddedDayData(), StreamingPSD reads each segment directly
+		// from the channel DataSets and skips segments that contain gaps
+		ArrayList<DataSet> chanXData = metricData.getChannelData(channelX);
+		ArrayList<DataSet> chanYData = metricData.getChannelData(channelY);
+		if (chanXData == null || chanYData == null) {
+			throw new MetricPSDException("computePSD(): No data for channelX=["
+					+ channelX + "] and/or channelY=[" + channelY + "]");
+		}
+
+		double srateX = chanXData.get(0).getSampleRate();
+		double srateY = chanYData.get(0).getSampleRate();
 		ChannelMeta chanMetaX = stationMeta.getChanMeta(channelX);
 		ChannelMeta chanMetaY = stationMeta.getChanMeta(channelY);
 
@@ -499,10 +542,25 @@ public abstract class Metric {
 		if (srate == 0)
 			throw new MetricPSDException("Got srate=0");
 
-		double dt = 1. / srate;
+		long dayStartTime = stationMeta.getTimestamp().getTimeInMillis() * 1000;
+
+		// The segments of an auto spectrum also make up the channel's
+		// spectrogram
+		if ((collectSpectrograms || requiresSpectrograms())
+				&& channelX.toString().equals(channelY.toString())) {
+			spectrogram[0] = new Spectrogram(chanMetaX, stationMeta
+					.getTimestamp().getTimeInMillis(), chanXData.get(0)
+					.getInterval() / 1000000.);
+		}
 
-		PSD psdRaw = new PSD(chanXData, chanYData, dt);
-		Cmplx[] spec = psdRaw.getSpectrum();
+		StreamingPSD psdRaw = new StreamingPSD(chanXData, chanYData,
+				dayStartTime, StreamingPSD.GapPolicy.SKIP, spectrogram[0]);
+		if (psdRaw.getNumberOfSkippedSegments() > 0) {
+			logger.info("computePSD(): channelX=[{}] channelY=[{}] date=[{}] skipped {} segment(s) with gaps",
+					channelX, channelY, getDay(),
+					psdRaw.getNumberOfSkippedSegments());
+		}
+		ComplexArray spec = psdRaw.getSpectrum();
 		double[] freq = psdRaw.getFreq();
 		double df = psdRaw.getDeltaF();
 		int nf = freq.length;
@@ -512,12 +570,15 @@ public abstract class Metric {
 		// Get the instrument response for Acceleration and remove it from the
 		// PSD
 		try {
-			Cmplx[] instrumentResponseX = chanMetaX.getResponse(freq,
+			ComplexArray instrumentResponseX = chanMetaX.getResponse(freq,
 					ResponseUnits.ACCELERATION);
-			Cmplx[] instrumentResponseY = chanMetaY.getResponse(freq,
+			ComplexArray instrumentResponseY = chanMetaY.getResponse(freq,
 					ResponseUnits.ACCELERATION);
 
-			Cmplx[] responseMagC = new Cmplx[nf];
+			// responseMagC[k] = instrumentResponseX[k] *
+			// conjg(instrumentResponseY[k])
+			ComplexArray responseMagC = instrumentResponseX;
+			responseMagC.mulConj(instrumentResponseY);
 
 			double[] psd = new double[nf]; // Will hold the 1-sided PSD
 			// magnitude
@@ -528,19 +589,19 @@ public abstract class Metric {
 			// Start from k=1 to skip DC (k=0) where the response=0
 
 			for (int k = 1; k < nf; k++) {
-				responseMagC[k] = Cmplx.mul(instrumentResponseX[k],
-						instrumentResponseY[k].conjg());
-				if (responseMagC[k].mag() == 0) {
+				if (responseMagC.mag(k) == 0) {
 					StringBuilder message = new StringBuilder();
 					message.append(String
 							.format("responseMagC[k]=0 --> divide by zero!\n"));
 					throw new MetricPSDException(message.toString());
-				} else { // Divide out (squared)instrument response & Convert to
-					// dB:
-					spec[k] = Cmplx.div(spec[k], responseMagC[k]);
-					psd[k] = spec[k].mag();
 				}
 			}
+			// Divide out (squared)instrument response
+			responseMagC.set(0, 1., 0.); // DC is skipped
+			spec.divInPlace(responseMagC);
+			for (int k = 1; k < nf; k++) {
+				psd[k] = spec.mag(k);
+			}
 
 			return psd;
 		} catch (ChannelMetaException e) {
@@ -23,13 +23,14 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import seed.Blockette320;
-import timeutils.Timeseries;
 import asl.metadata.Channel;
 import asl.metadata.ChannelArray;
 import asl.metadata.ChannelException;
@@ -42,12 +43,12 @@ import asl.metadata.meta_new.StationMeta;
 import asl.security.MemberDigest;
 import asl.seedscan.database.MetricReader;
 import asl.seedscan.database.MetricValueIdentifier;
-import asl.seedsplitter.BlockLocator;
 import asl.seedsplitter.ContiguousBlock;
 import asl.seedsplitter.DataSet;
 import asl.seedsplitter.IllegalSampleRateException;
+import asl.seedsplitter.SampleView;
+import asl.seedsplitter.SegmentIndex;
 import asl.seedsplitter.SequenceRangeException;
-import freq.Cmplx;
 
 public class MetricData {
 	private static final Logger logger = LoggerFactory
@@ -63,6 +64,14 @@ public class MetricData {
 
 	private MetricData nextMetricData;
 
+	// Deconvolution plans for the windows of this station-day (shared by
+	// the threads of a DeconvolutionBatch)
+	private Hashtable<String, DeconvolutionPlan> deconvolutionPlans = new Hashtable<String, DeconvolutionPlan>();
+
+	// data key --> SegmentIndex of the channel's DataSets (built from the
+	// DataSets when a channel has none, e.g., rotated channels)
+	private Hashtable<String, SegmentIndex> segmentIndexes = new Hashtable<String, SegmentIndex>();
+
 	// Attach nextMetricData here for windows that span into next day
 	public void setNextMetricData(MetricData nextMetricData) {
 		this.nextMetricData = nextMetricData;
@@ -99,6 +108,24 @@ public class MetricData {
 		this.metadata = metadata;
 	}
 
+	/**
+	 * @param segmentIndexes
+	 *            the SegmentIndex of each channel of data (same keys, see
+	 *            SeedSplitter.getIndexTable())
+	 */
+	public MetricData(MetricReader metricReader,
+			GregorianCalendar timestamp,
+			Hashtable<String, ArrayList<DataSet>> data,
+			Hashtable<String, ArrayList<Integer>> qualityData,
+			StationMeta metadata,
+			Hashtable<String, ArrayList<Blockette320>> randomCal,
+			Hashtable<String, SegmentIndex> segmentIndexes) {
+		this(metricReader, timestamp, data, qualityData, metadata, randomCal);
+		if (segmentIndexes != null) {
+			this.segmentIndexes.putAll(segmentIndexes);
+		}
+	}
+
 	// MTH: Added simple constructor for AvailabilityMetric when there is NO
 	// data
 	public MetricData(StationMeta metadata) {
@@ -221,6 +248,31 @@ public class MetricData {
 		return getChannelData(channel.getLocation(), channel.getChannel());
 	}
 
+	/**
+	 * @return The SegmentIndex of a channel's DataSets or null if there is no
+	 *         data for the channel
+	 */
+	public SegmentIndex getSegmentIndex(Channel channel) {
+		if (data == null) {
+			return null;
+		}
+		String locationName = channel.getLocation() + "-"
+				+ channel.getChannel();
+		Set<String> keys = data.keySet();
+		for (String key : keys) { // key looks like "IU_ANMO 00-BHZ (20.0 Hz)"
+			if (key.contains(locationName)) {
+				ArrayList<DataSet> datasets = data.get(key);
+				SegmentIndex index = segmentIndexes.get(key);
+				if (index == null || !index.isIndexOf(datasets)) {
+					index = new SegmentIndex(datasets);
+					segmentIndexes.put(key, index);
+				}
+				return index;
+			}
+		}
+		return null;
+	}
+
 	// ----- Random CalibrationData ------------------//
 
 	/**
@@ -289,80 +341,15 @@ public class MetricData {
 			String location, String band, long windowStartEpoch,
 			long windowEndEpoch, double f1, double f2, double f3, double f4)
 			throws ChannelMetaException, MetricException {
-		ArrayList<double[]> dispZNE = new ArrayList<double[]>();
-
-		Channel vertChannel = new Channel(location, (band + "Z")); // e.g.,
-		// "00-LHZ"
 		// depending on responseUnits, we can be working with DISP, VEL or ACC
-		// below
-		try {
-			double[] z = getFilteredDisplacement(responseUnits, vertChannel,
-					windowStartEpoch, windowEndEpoch, f1, f2, f3, f4);
-			dispZNE.add(z);
-
-			Channel channel1 = metadata.getChannel(location, band, "1"); // e.g.,
-			// could
-			// be
-			// "00-LH1"
-			// -or-
-			// "00-LHN"
-			Channel channel2 = metadata.getChannel(location, band, "2"); // e.g.,
-			// could
-			// be
-			// "00-LH2"
-			// -or-
-			// "00-LHE"
-
-			if (channel1 == null) {
-			}
-			if (channel2 == null) {
-			}
-
-			// Metadata: <channel1, channel2> --> Data: <x, y> ===> Get displ
-			// and rotate <x,y> to <N,E>
-
-			double[] x = getFilteredDisplacement(responseUnits, channel1,
-					windowStartEpoch, windowEndEpoch, f1, f2, f3, f4);
-			double[] y = getFilteredDisplacement(responseUnits, channel2,
-					windowStartEpoch, windowEndEpoch, f1, f2, f3, f4);
-
-			if (x == null || y == null || z == null) {
-				logger.error("== getZNE (date:[{}]): getFilteredDisplacement returned null --> There is probably something wrong with this station\n",
-								metadata.getDate());
-				return null;
-			}
-
-			if (x.length != y.length) {
-			}
-			int ndata = x.length;
-
-			double srate1 = metadata.getChanMeta(channel1).getSampleRate();
-			double srate2 = metadata.getChanMeta(channel2).getSampleRate();
-
-			if (srate1 != srate2) {
-				StringBuilder message = new StringBuilder();
-				message.append(String
-						.format("createRotatedChannels: srate1 != srate2!!\n"));
-				throw new MetricException(message.toString());
-			}
-
-			double[] n = new double[ndata];
-			double[] e = new double[ndata];
-
-			double az1 = (metadata.getChanMeta(channel1)).getAzimuth();
-			double az2 = (metadata.getChanMeta(channel2)).getAzimuth();
-
-			Timeseries.rotate_xy_to_ne(az1, az2, x, y, n, e);
-
-			dispZNE.add(n);
-			dispZNE.add(e);
-
-			return dispZNE;
-		} catch (ChannelMetaException e) {
-			throw e;
-		} catch (MetricException e) {
-			throw e;
-		}
+		// below. Use DeconvolutionBatch directly to get several locations
+		// and/or windows at once.
+		DeconvolutionBatch batch = new DeconvolutionBatch(this, responseUnits,
+				f1, f2, f3, f4);
+		batch.addZNE(location, location, band, windowStartEpoch,
+				windowEndEpoch);
+		batch.process();
+		return batch.getZNE(location);
 	}
 
 	/**
@@ -378,7 +365,7 @@ public class MetricData {
 					metadata.getNetwork(), metadata.getStation(), channel, metadata.getDate());
 			return null;
 		}
-		double[] timeseries = getWindowedData(channel, windowStartEpoch,
+		SampleView timeseries = getWindowedView(channel, windowStartEpoch,
 				windowEndEpoch);
 		if (timeseries == null) {
 			logger.warn("Did not get requested window for station=[{}-{}] channel=[{}] date=[{}] --> Can't return Displacement",
@@ -413,6 +400,36 @@ public class MetricData {
 	public double[] removeInstrumentAndFilter(ResponseUnits responseUnits,
 			Channel channel, double[] timeseries, double f1, double f2,
 			double f3, double f4) throws ChannelMetaException, MetricException {
+		DeconvolutionPlan plan = getFilterPlan(responseUnits, channel,
+				timeseries.length, f1, f2, f3, f4);
+		if (plan == null) {
+			return null;
+		}
+		return plan.deconvolve(timeseries);
+	}
+
+	/**
+	 * As removeInstrumentAndFilter(double[]), reading the samples from a view
+	 * (see getWindowedView()) instead of a copy of the window
+	 */
+	public double[] removeInstrumentAndFilter(ResponseUnits responseUnits,
+			Channel channel, SampleView timeseries, double f1, double f2,
+			double f3, double f4) throws ChannelMetaException, MetricException {
+		DeconvolutionPlan plan = getFilterPlan(responseUnits, channel,
+				timeseries.getLength(), f1, f2, f3, f4);
+		if (plan == null) {
+			return null;
+		}
+		return plan.deconvolve(timeseries);
+	}
+
+	/**
+	 * @return The deconvolution plan for ndata points of channel or null if
+	 *         the filter corners are invalid
+	 */
+	private DeconvolutionPlan getFilterPlan(ResponseUnits responseUnits,
+			Channel channel, int ndata, double f1, double f2, double f3,
+			double f4) throws ChannelMetaException, MetricException {
 
 		if (!(f1 < f2 && f2 < f3 && f3 < f4)) {
 			logger.error(String
@@ -421,9 +438,7 @@ public class MetricData {
 			return null;
 		}
 
-		ChannelMeta chanMeta = metadata.getChanMeta(channel);
-		double srate = chanMeta.getSampleRate();
-		int ndata = timeseries.length;
+		double srate = metadata.getChanMeta(channel).getSampleRate();
 
 		if (srate == 0) {
 			StringBuilder message = new StringBuilder();
@@ -433,81 +448,29 @@ public class MetricData {
 			throw new MetricException(message.toString());
 		}
 
-		// Find smallest power of 2 >= ndata:
-		int nfft = 1;
-		while (nfft < ndata)
-			nfft = (nfft << 1);
-
-		// We are going to do an nfft point FFT which will return
-		// nfft/2+1 +ve frequencies (including DC + Nyq)
-		int nf = nfft / 2 + 1;
-
-		double dt = 1. / srate;
-		double df = 1. / (nfft * dt);
-
-		double[] data = new double[timeseries.length];
-		for (int i = 0; i < timeseries.length; i++) {
-			data[i] = timeseries[i];
-		}
-		Timeseries.detrend(data);
-		Timeseries.debias(data);
-		double wss = Timeseries.costaper(data, .01);
-
-		double[] freq = new double[nf];
-		for (int k = 0; k < nf; k++) {
-			freq[k] = (double) k * df;
-		}
-
-		try {
-			// Get the instrument response for requested ResponseUnits
-			Cmplx[] instrumentResponse = chanMeta.getResponse(freq,
-					responseUnits);
-
-			// fft2 returns just the (nf = nfft/2 + 1) positive frequencies
-			Cmplx[] xfft = Cmplx.fft2(data);
-
-			double fNyq = (double) (nf - 1) * df;
-
-			if (f4 > fNyq) {
-				f4 = fNyq;
-			}
-
-			int k1 = (int) (f1 / df);
-			int k2 = (int) (f2 / df);
-			int k3 = (int) (f3 / df);
-			int k4 = (int) (f4 / df);
-
-			for (int k = 0; k < nf; k++) {
-				double taper = bpass(k, k1, k2, k3, k4);
-				// Remove instrument: We use conjg() here since the SEED inst
-				// resp FFT convention F(w) ~ e^-iwt ****
-				// while the Numerical Recipes convention is F(w) ~ e^+iwt
-				xfft[k] = Cmplx.div(xfft[k], instrumentResponse[k].conjg()); // Remove
-				// instrument
-				xfft[k] = Cmplx.mul(xfft[k], taper); // Bandpass
-			}
-
-			Cmplx[] cfft = new Cmplx[nfft];
-			cfft[0] = new Cmplx(0.0, 0.0); // DC
-			cfft[nf - 1] = xfft[nf - 1]; // Nyq
-			for (int k = 1; k < nf - 1; k++) { // Reflect spec about the Nyquist
-				// to get -ve freqs
-				cfft[k] = xfft[k];
-				cfft[2 * nf - 2 - k] = xfft[k].conjg();
-			}
-
-			float[] foo = Cmplx.fftInverse(cfft, ndata);
+		return getDeconvolutionPlan(responseUnits, channel, ndata, f1, f2, f3,
+				f4);
+	}
 
-			double[] dfoo = new double[ndata];
-			for (int i = 0; i < foo.length; i++) {
-				// dfoo[i] = (double)foo[i] * 1000000.; // Convert meters -->
-				// micrometers (=microns)
-				dfoo[i] = (double) foo[i];
-			}
-			return dfoo;
-		} catch (ChannelMetaException e) {
-			throw e;
+	/**
+	 * Return the (cached) response and taper for deconvolving windows of
+	 * ndata points of this channel. All the windows of a station-day with the
+	 * same power of 2 length share one plan, so the response is only
+	 * evaluated once per channel no matter how many events there are.
+	 */
+	DeconvolutionPlan getDeconvolutionPlan(ResponseUnits responseUnits,
+			Channel channel, int ndata, double f1, double f2, double f3,
+			double f4) throws ChannelMetaException {
+		int nfft = DeconvolutionPlan.getFFTLength(ndata);
+		String key = String.format("%s:%s:%d:%s:%s:%s:%s", channel,
+				responseUnits, nfft, f1, f2, f3, f4);
+		DeconvolutionPlan plan = deconvolutionPlans.get(key);
+		if (plan == null) {
+			plan = new DeconvolutionPlan(metadata.getChanMeta(channel),
+					responseUnits, nfft, f1, f2, f3, f4);
+			deconvolutionPlans.put(key, plan);
 		}
+		return plan;
 	}
 
 	/**
@@ -530,10 +493,29 @@ public class MetricData {
 	 **/
 
 	/**
-	 *
+	 * @return A new array of the samples of a channel for the window (see
+	 *         getWindowedView()) or null if the window isn't in the data
 	 */
 	public double[] getWindowedData(Channel channel, long windowStartEpoch,
 			long windowEndEpoch) {
+		SampleView view = getWindowedView(channel, windowStartEpoch,
+				windowEndEpoch);
+		if (view == null) {
+			return null;
+		}
+		return view.toArray();
+	}
+
+	/**
+	 * A view of the samples of a channel for the window [windowStartEpoch,
+	 * windowEndEpoch] (millisecs), which must start in this day's data and
+	 * may extend into the next day's (see setNextMetricData()). No samples are
+	 * copied until the caller reads them from the view.
+	 * 
+	 * @return The view or null if the window isn't in the data
+	 */
+	public SampleView getWindowedView(Channel channel, long windowStartEpoch,
+			long windowEndEpoch) {
 		if (windowStartEpoch > windowEndEpoch) {
 			logger.error(
 					"Requested window Epoch (ms timestamp) [{} - {}] is NOT VALID (start > end)",
@@ -546,18 +528,18 @@ public class MetricData {
 					metadata.getDate());
 			return null;
 		}
-		ArrayList<DataSet> datasets = getChannelData(channel);
 		DataSet data = null;
 		boolean windowFound = false;
 
-		for (int i = 0; i < datasets.size(); i++) {
-			data = datasets.get(i);
-			long startEpoch = data.getStartTime() / 1000; // Convert microsecs
+		// The last DataSet starting (in millisecs) at or before the window
+		SegmentIndex index = getSegmentIndex(channel);
+		int i = index.floorSegment(windowStartEpoch * 1000 + 999);
+		if (i >= 0) {
+			data = index.getDataSet(i);
+			long endEpoch = data.getEndTime() / 1000; // Convert microsecs
 			// --> millisecs
-			long endEpoch = data.getEndTime() / 1000; // ...
-			if (windowStartEpoch >= startEpoch && windowStartEpoch < endEpoch) {
+			if (windowStartEpoch < endEpoch) {
 				windowFound = true;
-				break;
 			}
 		}
 
@@ -609,8 +591,7 @@ public class MetricData {
 				return null;
 			}
 
-			datasets = nextMetricData.getChannelData(channel);
-			nextData = datasets.get(0);
+			nextData = nextMetricData.getSegmentIndex(channel).getDataSet(0);
 
 			long nextDataStartEpoch = nextData.getStartTime() / 1000; // Convert
 			// microsecs
@@ -648,33 +629,23 @@ public class MetricData {
 		long windowMilliSecs = windowEndEpoch - windowStartEpoch;
 		int nWindowPoints = (int) (windowMilliSecs / interval);
 
-		double[] dataArray = new double[nWindowPoints];
-
-		int[] series1 = data.getSeries();
-		int[] series2 = null;
-		if (spansDay) {
-			series2 = nextData.getSeries();
-		}
-		int j = 0;
-
 		// int istart = (int)((windowStartEpoch - dataStartEpoch) / interval);
 		// MTH: this seems to line it up better with rdseed output window but
 		// doesn't seem right ...
 		int istart = (int) ((windowStartEpoch - dataStartEpoch) / interval) + 1;
 
-		for (int i = 0; i < nWindowPoints; i++) {
-			if ((istart + i) < data.getLength()) {
-				dataArray[i] = (double) series1[i + istart];
-			} else if (j < nextData.getLength()) {
-				dataArray[i] = (double) series2[j++];
-			} else {
-				// We should never be here!
-			}
+		// Just the window of the day(s) rather than the full series
+		SampleView view = new SampleView(nWindowPoints);
+		int n1 = Math.max(0, Math.min(nWindowPoints, data.getLength() - istart));
+		view.add(data, istart, n1);
+		if (n1 < nWindowPoints && spansDay) {
+			int n2 = Math.min(nWindowPoints - n1, nextData.getLength());
+			view.add(nextData, 0, n2);
 		}
 
-		return dataArray;
+		return view;
 
-	} // end getWindowedData
+	} // end getWindowedView
 
 	/**
 	 * Return a full day (86400 sec) array of data assembled from a channel's
@@ -792,19 +763,30 @@ public class MetricData {
 		Channel channelE = new Channel(location, String.format("%sED",
 				channelPrefix));
 
-		// Get overlapping data for 2 horizontal channels and confirm equal
-		// sample rate, etc.
-		long[] foo = new long[1];
-		double[][] channelOverlap = getChannelOverlap(channel1, channel2, foo);
+		// Find the largest overlap of the 2 horizontal channels and confirm
+		// equal sample rate, etc.
+		SegmentIndex index1 = getSegmentIndex(channel1);
+		SegmentIndex index2 = getSegmentIndex(channel2);
+		ContiguousBlock largestBlock = getLargestBlock(index1, index2);
+		if (largestBlock == null) {
+			logger.warn(String
+					.format("== createRotatedChannelData: -- No overlapping data "
+							+ "for channel1=[%s] and channel2=[%s] date=[%s] --> Unable to Rotate!\n",
+							channel1, channel2, metadata.getDate()));
+			return;
+		}
+		DataSet set1 = index1.findDataSet(largestBlock.getStartTime(),
+				largestBlock.getEndTime());
+		DataSet set2 = index2.findDataSet(largestBlock.getStartTime(),
+				largestBlock.getEndTime());
+		if (set1 == null || set2 == null) {
+			logger.warn(
+					"== createRotatedChannelData: WARNING date=[{}] --> Something has gone wrong!",
+					metadata.getDate());
+			return;
+		}
 		// The startTime of the largest overlapping segment
-		long startTime = foo[0];
-
-		double[] chan1Data = channelOverlap[0];
-		double[] chan2Data = channelOverlap[1];
-		// At this point chan1Data and chan2Data should have the SAME number of
-		// (overlapping) points
-
-		int ndata = chan1Data.length;
+		long startTime = largestBlock.getStartTime();
 
 		double srate1 = getChannelData(channel1).get(0).getSampleRate();
 		double srate2 = getChannelData(channel2).get(0).getSampleRate();
@@ -816,28 +798,16 @@ public class MetricData {
 			throw new MetricException(message.toString());
 		}
 
-		double[] chanNData = new double[ndata];
-		double[] chanEData = new double[ndata];
+		// The overlapping samples of each channel (as
+		// Sequence.getSeries(startTime, endTime) would return them)
+		long interval = set1.getInterval();
+		int ndata = (int) ((largestBlock.getEndTime() - startTime) / interval);
+		int start1 = getSeriesIndex(set1, startTime);
+		int start2 = getSeriesIndex(set2, startTime);
 
 		double az1 = (metadata.getChanMeta(channel1)).getAzimuth();
 		double az2 = (metadata.getChanMeta(channel2)).getAzimuth();
-
-		Timeseries.rotate_xy_to_ne(az1, az2, chan1Data, chan2Data, chanNData,
-				chanEData);
-		/**
-		 * // az1 = azimuth of the H1 channel/vector. az2 = azimuth of the H2
-		 * channel/vector // Find the smallest (<= 180) angle between them -->
-		 * This *should* be 90 (=orthogonal channels) double azDiff =
-		 * Math.abs(az1 - az2); if (azDiff > 180) azDiff = Math.abs(az1 - az2 -
-		 * 360);
-		 * 
-		 * if ( Math.abs( azDiff - 90. ) > 0.2 ) { System.out.format(
-		 * "== createRotatedChannels: channels are NOT perpendicular! az1-az2 = %f\n"
-		 * , Math.abs(az1 - az2) ); }
-		 **/
-
-		// Here we need to convert the Series intArray[] into a DataSet with
-		// header, etc ...
+		HorizontalRotation rotation = HorizontalRotation.getRotation(az1, az2);
 
 		// Make new channelData keys based on existing ones
 
@@ -867,15 +837,10 @@ public class MetricData {
 				eastKey = key.replaceAll(lookupString, eastString);
 			}
 		}
-		// System.out.format("== MetricData.createRotatedChannels(): channel1=%s, channelPrefex=%s\n",
-		// channel1, channelPrefix);
-		// System.out.format("== MetricData.createRotatedChannels(): northKey=[%s] eastKey=[%s]\n",
-		// northKey, eastKey);
 
 		DataSet ch1Temp = getChannelData(channel1).get(0);
 		String network = ch1Temp.getNetwork();
 		String station = ch1Temp.getStation();
-		// String location = ch1Temp.getLocation();
 
 		try {
 			DataSet northDataSet = new DataSet();
@@ -891,16 +856,6 @@ public class MetricData {
 								srate1, metadata.getDate());
 			}
 
-			int[] intArray = new int[ndata];
-			for (int i = 0; i < ndata; i++) {
-				intArray[i] = (int) chanNData[i];
-			}
-			northDataSet.extend(intArray, 0, ndata);
-
-			ArrayList<DataSet> dataList = new ArrayList<DataSet>();
-			dataList.add(northDataSet);
-			data.put(northKey, dataList);
-
 			DataSet eastDataSet = new DataSet();
 			eastDataSet.setNetwork(network);
 			eastDataSet.setStation(station);
@@ -914,10 +869,14 @@ public class MetricData {
 								srate1, metadata.getDate());
 			}
 
-			for (int i = 0; i < ndata; i++) {
-				intArray[i] = (int) chanEData[i];
-			}
-			eastDataSet.extend(intArray, 0, ndata);
+			// Rotate block by block from the horizontals' DataSets straight
+			// into the blocks of the rotated DataSets
+			rotation.rotate(set1, start1, set2, start2, ndata, northDataSet,
+					eastDataSet);
+
+			ArrayList<DataSet> dataList = new ArrayList<DataSet>();
+			dataList.add(northDataSet);
+			data.put(northKey, dataList);
 
 			dataList = new ArrayList<DataSet>();
 			dataList.add(eastDataSet);
@@ -944,78 +903,35 @@ public class MetricData {
 	public double[][] getChannelOverlap(Channel channelX, Channel channelY,
 			long[] startTime) {
 
-		ArrayList<ArrayList<DataSet>> dataLists = new ArrayList<ArrayList<DataSet>>();
-
-		ArrayList<DataSet> channelXData = getChannelData(channelX);
-		ArrayList<DataSet> channelYData = getChannelData(channelY);
-		if (channelXData == null) {
+		SegmentIndex indexX = getSegmentIndex(channelX);
+		SegmentIndex indexY = getSegmentIndex(channelY);
+		if (indexX == null) {
 			logger.warn("== getChannelOverlap: Warning --> No DataSets found for Channel={} Date={}\n",
 							channelX, metadata.getDate());
 		}
-		if (channelYData == null) {
+		if (indexY == null) {
 			logger.warn("== getChannelOverlap: Warning --> No DataSets found for Channel={} Date={}\n",
 							channelY, metadata.getDate());
 		}
-		dataLists.add(channelXData);
-		dataLists.add(channelYData);
 
-		// System.out.println("Locating contiguous blocks...");
-
-		ArrayList<ContiguousBlock> blocks = null;
-		BlockLocator locator = new BlockLocator(dataLists);
-		// Thread blockThread = new Thread(locator);
-		// blockThread.start();
-		locator.doInBackground();
-		blocks = locator.getBlocks();
-
-		// System.out.println("Found " + blocks.size() + " Contiguous Blocks");
-
-		ContiguousBlock largestBlock = null;
-		ContiguousBlock lastBlock = null;
-		for (ContiguousBlock block : blocks) {
-			if ((largestBlock == null)
-					|| (largestBlock.getRange() < block.getRange())) {
-				largestBlock = block;
-			}
-			if (lastBlock != null) {
-				logger.error("Gap: {} data points ({} microseconds)", ((block
-						.getStartTime() - lastBlock.getEndTime()) / block
-						.getInterval()), (block.getStartTime() - lastBlock
-						.getEndTime()));
-			}
-			// System.out.println("  Time Range: " +
-			// Sequence.timestampToString(block.getStartTime()) + " - " +
-			// Sequence.timestampToString(block.getEndTime()) + " (" +
-			// ((block.getEndTime() - block.getStartTime()) /
-			// block.getInterval() + 1) + " data points)");
-			lastBlock = block;
-		}
+		ContiguousBlock largestBlock = getLargestBlock(indexX, indexY);
 
 		double[][] channels = { null, null };
 		int[] channel = null;
+		SegmentIndex[] indexes = { indexX, indexY };
 
 		for (int i = 0; i < 2; i++) {
-			boolean found = false;
-			for (DataSet set : dataLists.get(i)) {
-				if ((!found)
-						&& set.containsRange(largestBlock.getStartTime(),
-								largestBlock.getEndTime())) {
-					try {
-						// System.out.println("  DataSet[" +i+ "]: " +
-						// Sequence.timestampToString(set.getStartTime()) +
-						// " - " + Sequence.timestampToString(set.getEndTime())
-						// + " (" + ((set.getEndTime() - set.getStartTime()) /
-						// set.getInterval() + 1) + " data points)");
-						channel = set.getSeries(largestBlock.getStartTime(),
-								largestBlock.getEndTime());
-						channels[i] = intArrayToDoubleArray(channel);
-					} catch (SequenceRangeException e) {
-						logger.error("SequenceRangeException:", e);
-					} catch (IndexOutOfBoundsException e) {
-						logger.error("IndexOutOfBoundsException:", e);
-					}
-					found = true;
-					break;
+			DataSet set = indexes[i].findDataSet(largestBlock.getStartTime(),
+					largestBlock.getEndTime());
+			if (set != null) {
+				try {
+					channel = set.getSeries(largestBlock.getStartTime(),
+							largestBlock.getEndTime());
+					channels[i] = intArrayToDoubleArray(channel);
+				} catch (SequenceRangeException e) {
+					logger.error("SequenceRangeException:", e);
+				} catch (IndexOutOfBoundsException e) {
+					logger.error("IndexOutOfBoundsException:", e);
 				}
 			}
 		}
@@ -1037,6 +953,50 @@ public class MetricData {
 
 	} // end getChannelOverlap
 
+	/**
+	 * Find the largest block of time covered by all the channels (logging the
+	 * gaps between the blocks)
+	 * 
+	 * @return The largest ContiguousBlock or null if there is none
+	 */
+	private ContiguousBlock getLargestBlock(SegmentIndex... indexes) {
+		for (SegmentIndex index : indexes) {
+			if (index == null) {
+				return null;
+			}
+		}
+		ArrayList<ContiguousBlock> blocks = SegmentIndex.getOverlap(indexes);
+		if (blocks == null) {
+			return null;
+		}
+
+		ContiguousBlock largestBlock = null;
+		ContiguousBlock lastBlock = null;
+		for (ContiguousBlock block : blocks) {
+			if ((largestBlock == null)
+					|| (largestBlock.getRange() < block.getRange())) {
+				largestBlock = block;
+			}
+			if (lastBlock != null) {
+				logger.error("Gap: {} data points ({} microseconds)", ((block
+						.getStartTime() - lastBlock.getEndTime()) / block
+						.getInterval()), (block.getStartTime() - lastBlock
+						.getEndTime()));
+			}
+			lastBlock = block;
+		}
+		return largestBlock;
+	}
+
+	/**
+	 * @return The index of the sample of set at startTime, rounded as in
+	 *         Sequence.getSeries(startTime, endTime)
+	 */
+	private static int getSeriesIndex(DataSet set, long startTime) {
+		long interval = set.getInterval();
+		return (int) (((startTime - set.getStartTime()) + (interval / 2)) / interval);
+	}
+
 	/**
 	 * Converts an array of type int into an array of type double.
 	 * 
@@ -1234,14 +1194,14 @@ public class MetricData {
 	 * We've been handed a channelArray for which valueDigestChanged() was
 	 * unable to find metadata. We want to go through the channels and see if
 	 * any are rotated-derived channels (e.g., "00-LHND"). If so, then try to
-	 * create the rotated channel data + metadata
+	 * create the rotated channel data + metadata, for all the locations of
+	 * the station with horizontals of the same band at once (see
+	 * createRotatedChannels())
 	 */
 	public void checkForRotatedChannels(ChannelArray channelArray) {
 		ArrayList<Channel> channels = channelArray.getChannels();
+		ArrayList<String> channelPrefixes = new ArrayList<String>();
 		for (Channel channel : channels) {
-			// System.out.format("== checkForRotatedChannels: request channel=%s\n",
-			// channel);
-
 			// channelPrefix = channel band + instrument code e.g., 'L' + 'H' =
 			// "LH"
 			String channelPrefix = null;
@@ -1252,24 +1212,51 @@ public class MetricData {
 			} else {
 				// System.out.format("== MetricData.checkForRotatedChannels: Request for UNKNOWN channel=%s\n",
 				// channel);
-				return;
+				break;
+			}
+			if (!channelPrefixes.contains(channelPrefix)) {
+				channelPrefixes.add(channelPrefix);
 			}
+		}
+		for (String channelPrefix : channelPrefixes) {
+			createRotatedChannels(channelPrefix);
+		}
+	}
 
-			// Check here since each derived channel (e.g., "00-LHND") will
-			// cause us to generate
-			// Rotated channel *pairs* ("00-LHND" AND "00-LHED") so we don't
-			// need to repeat it
-			if (!metadata.hasChannel(channel)) {
-				metadata.addRotatedChannelMeta(channel.getLocation(),
-						channelPrefix);
+	/**
+	 * Create the rotated channel metadata + data (e.g., "00-LHND" AND
+	 * "00-LHED", "10-LHND" AND "10-LHED") of every location with horizontals
+	 * for channelPrefix (e.g., "LH") in one pass, so the rotations of the
+	 * station-day are done together, sharing the rotation coefficients of
+	 * each orientation (see HorizontalRotation)
+	 */
+	private void createRotatedChannels(String channelPrefix) {
+		List<Channel> bandChannels = metadata.getChannelArray(channelPrefix);
+		if (bandChannels == null) {
+			return;
+		}
+		TreeSet<String> locations = new TreeSet<String>();
+		for (Channel channel : bandChannels) {
+			locations.add(channel.getLocation());
+		}
+		for (String location : locations) {
+			if (!(metadata.hasChannel(location, channelPrefix + "1") && metadata
+					.hasChannel(location, channelPrefix + "2"))
+					&& !(metadata.hasChannel(location, channelPrefix + "N") && metadata
+							.hasChannel(location, channelPrefix + "E"))) {
+				continue;
+			}
+			Channel channelN = new Channel(location, channelPrefix + "ND");
+			Channel channelE = new Channel(location, channelPrefix + "ED");
+			if (!metadata.hasChannel(channelN) || !metadata.hasChannel(channelE)) {
+				metadata.addRotatedChannelMeta(location, channelPrefix);
 			}
 			// MTH: Only try to add rotated channel data if we were successful
 			// in adding the rotated channel
 			// metadata above since createRotatedChannelData requires it
 			try {
-				if (!hasChannelData(channel) && metadata.hasChannel(channel)) {
-					createRotatedChannelData(channel.getLocation(),
-							channelPrefix);
+				if (!hasChannelData(channelN) && metadata.hasChannel(channelN)) {
+					createRotatedChannelData(location, channelPrefix);
 				}
 			} catch (MetricException e) {
 				logger.error("MetricException:", e);
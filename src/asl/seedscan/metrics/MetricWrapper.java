@@ -53,6 +53,27 @@ public class MetricWrapper {
 		}
 	}
 
+	/**
+	 * @see Metric#requiresEvents()
+	 */
+	public boolean requiresEvents() {
+		return arguments.requiresEvents();
+	}
+
+	/**
+	 * @see Metric#requiresSynthetics()
+	 */
+	public boolean requiresSynthetics() {
+		return arguments.requiresSynthetics();
+	}
+
+	/**
+	 * @see Metric#requiresSpectrograms()
+	 */
+	public boolean requiresSpectrograms() {
+		return arguments.requiresSpectrograms();
+	}
+
 	public Metric getNewInstance() throws InstantiationException,
 			IllegalAccessException, NoSuchFieldException {
 		try {
@@ -36,6 +36,7 @@ import timeutils.Timeseries;
 import asl.metadata.Channel;
 import asl.util.PlotMaker2;
 import asl.util.PlotMakerException;
+import asl.util.PlotService;
 import asl.util.Trace;
 import asl.util.TraceException;
 
@@ -178,7 +179,7 @@ public class NLNMDeviationMetric extends PowerBandMetric {
 			// outputs/2012160.IU_ANMO.nlnm-dev.png
 			final String pngName = String.format("%s.%s.png", getOutputDir(),
 					"nlnm-dev");
-			plotMaker.writePlot(pngName);
+			PlotService.getInstance().writePlot(plotMaker, pngName);
 		}
 	} // end process()
 
@@ -368,6 +369,21 @@ public class NLNMDeviationMetric extends PowerBandMetric {
 		}
 	}
 
+	/**
+	 * readNoiseModel() - Read a noise model file (e.g., resources/NLNM.ascii)
+	 * into a new NoiseModel. The returned model is not valid if the file could
+	 * not be read.
+	 */
+	public static NoiseModel readNoiseModel(String fileName) {
+		NoiseModel noiseModel = new NoiseModel();
+		try {
+			readNoiseModel(fileName, noiseModel);
+		} catch (MetricException e) {
+			logger.error("Exception:", e);
+		}
+		return noiseModel;
+	}
+
 	/**
 	 * readNoiseModel() - Read in Peterson's NewLow(or High)NoiseModel from file
 	 * specified in config.xml e.g., <cfg:argument
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import timeutils.Timeseries;
+import asl.seedscan.metrics.NLNMDeviationMetric.NoiseModel;
+
+/**
+ * PSDHistogram - Incremental (McNamara & Buland style) probability density
+ * function of PSD power against period.
+ *
+ * Each daily CrossPower spectrum is converted to dB, averaged over a full
+ * octave around each period bin center (bins are spaced 1/8 octave apart)
+ * and the power of every period bin is counted in a 1 dB power bin.
+ *
+ * All histograms share the same fixed period/power grid, so histograms of
+ * different days, channels and stations can be merged. merge() simply adds
+ * the counts, which makes it associative and commutative: partial
+ * histograms can be accumulated in parallel and combined in any order.
+ *
+ * Powers below or above the power grid are not folded into the edge bins but
+ * counted separately for each period (see getUnderflow(), getOverflow()).
+ *
+ * On disk a histogram is stored sparsely (only non-zero bins), see write().
+ */
+public class PSDHistogram {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.PSDHistogram.class);
+
+	/** File signature = "PSDH" */
+	private static final int MAGIC = 0x50534448;
+	private static final short FORMAT_VERSION = 2;
+	// Largest grid read() accepts (the fixed grid is N_PERIODS x N_POWERS)
+	private static final int MAX_BINS = 1 << 24;
+
+	// Fixed grid used by every histogram
+	public static final double PERIOD_MIN = 0.01;
+	public static final int BINS_PER_OCTAVE = 8;
+	public static final int N_PERIODS = 187; // 0.01 sec --> ~1e5 sec
+	public static final double POWER_MIN = -250.;
+	public static final double POWER_STEP = 1.;
+	public static final int N_POWERS = 200; // -250 dB --> -50 dB
+
+	private double periodMin;
+	private int binsPerOctave;
+	private int nPeriods;
+	private double powerMin;
+	private double powerStep;
+	private int nPowers;
+
+	/** counts[iPeriod * nPowers + iPower] */
+	private int[] counts;
+
+	/** Powers below / above the power grid at each period */
+	private int[] underflow;
+	private int[] overflow;
+
+	/** Number of daily spectra that went into this histogram */
+	private int nSpectra;
+
+	public PSDHistogram() {
+		this(PERIOD_MIN, BINS_PER_OCTAVE, N_PERIODS, POWER_MIN, POWER_STEP,
+				N_POWERS);
+	}
+
+	private PSDHistogram(double periodMin, int binsPerOctave, int nPeriods,
+			double powerMin, double powerStep, int nPowers) {
+		this.periodMin = periodMin;
+		this.binsPerOctave = binsPerOctave;
+		this.nPeriods = nPeriods;
+		this.powerMin = powerMin;
+		this.powerStep = powerStep;
+		this.nPowers = nPowers;
+		this.counts = new int[nPeriods * nPowers];
+		this.underflow = new int[nPeriods];
+		this.overflow = new int[nPeriods];
+		this.nSpectra = 0;
+	}
+
+	/**
+	 * Add one daily spectrum, e.g., CrossPower.getSpectrum()
+	 *
+	 * @param psd
+	 *            psd[k] for f = k * df in (units)^2/Hz, DC at k=0
+	 * @param df
+	 *            the frequency spacing of psd[]
+	 */
+	public void add(double[] psd, double df) {
+		if (psd == null || psd.length < 2 || df <= 0.) {
+			logger.warn("add(): Invalid spectrum --> Nothing added");
+			return;
+		}
+		int nf = psd.length;
+		double fMax = (nf - 1) * df;
+
+		double[] psdDB = new double[nf];
+		for (int k = 1; k < nf; k++) {
+			psdDB[k] = 10. * Math.log10(psd[k]);
+		}
+
+		boolean added = false;
+		for (int iPeriod = 0; iPeriod < nPeriods; iPeriod++) {
+			double period = getPeriod(iPeriod);
+			// Average over 1 full octave centered on period
+			double fLow = 1. / (period * Math.sqrt(2.));
+			double fHigh = Math.sqrt(2.) / period;
+			// The whole octave must lie inside the useable spectrum
+			if (fLow < df || fHigh > fMax) {
+				continue;
+			}
+			int k1 = (int) Math.ceil(fLow / df);
+			int k2 = (int) Math.floor(fHigh / df);
+			double sum = 0.;
+			int n = 0;
+			for (int k = k1; k <= k2; k++) {
+				if (!Double.isNaN(psdDB[k]) && !Double.isInfinite(psdDB[k])) {
+					sum += psdDB[k];
+					n++;
+				}
+			}
+			if (n == 0) {
+				continue;
+			}
+			int iPower = getPowerIndex(sum / n);
+			if (iPower < 0) {
+				underflow[iPeriod]++;
+			} else if (iPower >= nPowers) {
+				overflow[iPeriod]++;
+			} else {
+				counts[iPeriod * nPowers + iPower]++;
+			}
+			added = true;
+		}
+		if (added) {
+			nSpectra++;
+		}
+	}
+
+	/**
+	 * Add the counts of another histogram to this one.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the two histograms use different grids
+	 */
+	public void merge(PSDHistogram other) throws IllegalArgumentException {
+		if (!sameGrid(other)) {
+			throw new IllegalArgumentException(
+					"merge(): PSDHistograms have different period/power grids");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		for (int i = 0; i < nPeriods; i++) {
+			underflow[i] += other.underflow[i];
+			overflow[i] += other.overflow[i];
+		}
+		nSpectra += other.nSpectra;
+	}
+
+	private boolean sameGrid(PSDHistogram other) {
+		return periodMin == other.periodMin
+				&& binsPerOctave == other.binsPerOctave
+				&& nPeriods == other.nPeriods && powerMin == other.powerMin
+				&& powerStep == other.powerStep && nPowers == other.nPowers;
+	}
+
+	/**
+	 * @return The power bin of power (< 0 below the grid, >= nPowers above)
+	 */
+	private int getPowerIndex(double power) {
+		double bin = Math.floor((power - powerMin) / powerStep);
+		if (bin < 0.)
+			return -1;
+		if (bin >= nPowers)
+			return nPowers;
+		return (int) bin;
+	}
+
+	public double getPeriod(int iPeriod) {
+		return periodMin * Math.pow(2., (double) iPeriod / binsPerOctave);
+	}
+
+	public double[] getPeriods() {
+		double[] periods = new double[nPeriods];
+		for (int i = 0; i < nPeriods; i++) {
+			periods[i] = getPeriod(i);
+		}
+		return periods;
+	}
+
+	/**
+	 * @return The lower edge (in dB) of each power bin
+	 */
+	public double[] getPowers() {
+		double[] powers = new double[nPowers];
+		for (int i = 0; i < nPowers; i++) {
+			powers[i] = powerMin + i * powerStep;
+		}
+		return powers;
+	}
+
+	public int getCount(int iPeriod, int iPower) {
+		return counts[iPeriod * nPowers + iPower];
+	}
+
+	/**
+	 * @return The number of powers below the power grid at the period
+	 */
+	public int getUnderflow(int iPeriod) {
+		return underflow[iPeriod];
+	}
+
+	/**
+	 * @return The number of powers above the power grid at the period
+	 */
+	public int getOverflow(int iPeriod) {
+		return overflow[iPeriod];
+	}
+
+	public int getNumberOfSpectra() {
+		return nSpectra;
+	}
+
+	/**
+	 * Return the probability density pdf[iPeriod][iPower] (each period column
+	 * sums to 1, or to 0 if the period was never observed)
+	 */
+	public double[][] getPDF() {
+		double[][] pdf = new double[nPeriods][nPowers];
+		for (int iPeriod = 0; iPeriod < nPeriods; iPeriod++) {
+			long total = 0;
+			for (int iPower = 0; iPower < nPowers; iPower++) {
+				total += counts[iPeriod * nPowers + iPower];
+			}
+			if (total == 0) {
+				continue;
+			}
+			for (int iPower = 0; iPower < nPowers; iPower++) {
+				pdf[iPeriod][iPower] = (double) counts[iPeriod * nPowers
+						+ iPower]
+						/ total;
+			}
+		}
+		return pdf;
+	}
+
+	/**
+	 * Return the power (center of the power bin, in dB) below which the given
+	 * fraction of the observations fall at each period, or NaN where the
+	 * period was never observed. percentile=0.5 gives the median.
+	 */
+	public double[] getPercentile(double percentile) {
+		double[] result = new double[nPeriods];
+		for (int iPeriod = 0; iPeriod < nPeriods; iPeriod++) {
+			long total = 0;
+			for (int iPower = 0; iPower < nPowers; iPower++) {
+				total += counts[iPeriod * nPowers + iPower];
+			}
+			result[iPeriod] = Double.NaN;
+			if (total == 0) {
+				continue;
+			}
+			long running = 0;
+			for (int iPower = 0; iPower < nPowers; iPower++) {
+				running += counts[iPeriod * nPowers + iPower];
+				if (running >= percentile * total) {
+					result[iPeriod] = powerMin + (iPower + 0.5) * powerStep;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Interpolate a noise model (e.g., NLNM or NHNM from resources/) onto the
+	 * histogram period bins so it can be drawn over the PDF. Periods outside
+	 * of the model are returned as NaN.
+	 */
+	public double[] getOverlay(NoiseModel model) {
+		double[] overlay = new double[nPeriods];
+		for (int i = 0; i < nPeriods; i++) {
+			overlay[i] = Double.NaN;
+		}
+		if (model == null || !model.isValid()) {
+			return overlay;
+		}
+		double[] modelPeriods = model.getPeriods();
+		double minPeriod = modelPeriods[0];
+		double maxPeriod = modelPeriods[modelPeriods.length - 1];
+
+		ArrayList<Double> inside = new ArrayList<Double>();
+		for (int i = 0; i < nPeriods; i++) {
+			double period = getPeriod(i);
+			if (period >= minPeriod && period <= maxPeriod) {
+				inside.add(period);
+			}
+		}
+		double[] periods = new double[inside.size()];
+		for (int i = 0; i < periods.length; i++) {
+			periods[i] = inside.get(i);
+		}
+		double[] powers = Timeseries.interpolate(modelPeriods,
+				model.getPowers(), periods);
+		int j = 0;
+		for (int i = 0; i < nPeriods && j < powers.length; i++) {
+			if (getPeriod(i) == periods[j]) {
+				overlay[i] = powers[j++];
+			}
+		}
+		return overlay;
+	}
+
+	/**
+	 * Write the histogram to file. Format (big endian):
+	 *
+	 * <pre>
+	 * int    magic = "PSDH"
+	 * short  version
+	 * double periodMin, int binsPerOctave, int nPeriods
+	 * double powerMin,  double powerStep,  int nPowers
+	 * int    nSpectra
+	 * int    nNonZero
+	 * nNonZero x { int binIndex, int count }
+	 * nPeriods x { int underflow, int overflow }
+	 * </pre>
+	 *
+	 * (version 1 files end after the bins)
+	 */
+	public void write(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		int nNonZero = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0)
+				nNonZero++;
+		}
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeShort(FORMAT_VERSION);
+			out.writeDouble(periodMin);
+			out.writeInt(binsPerOctave);
+			out.writeInt(nPeriods);
+			out.writeDouble(powerMin);
+			out.writeDouble(powerStep);
+			out.writeInt(nPowers);
+			out.writeInt(nSpectra);
+			out.writeInt(nNonZero);
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] != 0) {
+					out.writeInt(i);
+					out.writeInt(counts[i]);
+				}
+			}
+			for (int i = 0; i < nPeriods; i++) {
+				out.writeInt(underflow[i]);
+				out.writeInt(overflow[i]);
+			}
+		} finally {
+			if (out != null)
+				out.close();
+		}
+	}
+
+	public static PSDHistogram read(File file) throws IOException {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != MAGIC) {
+				throw new IOException("read(): file=[" + file
+						+ "] is not a PSDHistogram");
+			}
+			short version = in.readShort();
+			if (version != 1 && version != FORMAT_VERSION) {
+				throw new IOException("read(): file=[" + file
+						+ "] has unsupported version=" + version);
+			}
+			double periodMin = in.readDouble();
+			int binsPerOctave = in.readInt();
+			int nPeriods = in.readInt();
+			double powerMin = in.readDouble();
+			double powerStep = in.readDouble();
+			int nPowers = in.readInt();
+			if (!(periodMin > 0.) || binsPerOctave <= 0 || nPeriods <= 0
+					|| nPowers <= 0 || !(powerStep > 0.)
+					|| Double.isNaN(powerMin) || Double.isInfinite(powerMin)
+					|| (long) nPeriods * nPowers > MAX_BINS) {
+				throw new IOException("read(): file=[" + file
+						+ "] has an invalid period/power grid");
+			}
+			PSDHistogram histogram = new PSDHistogram(periodMin,
+					binsPerOctave, nPeriods, powerMin, powerStep, nPowers);
+			histogram.nSpectra = in.readInt();
+			int nNonZero = in.readInt();
+			if (histogram.nSpectra < 0 || nNonZero < 0
+					|| nNonZero > histogram.counts.length) {
+				throw new IOException("read(): file=[" + file
+						+ "] has an invalid bin count");
+			}
+			for (int i = 0; i < nNonZero; i++) {
+				int index = in.readInt();
+				int count = in.readInt();
+				if (index < 0 || index >= histogram.counts.length || count < 0) {
+					throw new IOException(String.format(
+							"read(): file=[%s] has an invalid bin=%d count=%d",
+							file, index, count));
+				}
+				histogram.counts[index] = count;
+			}
+			if (version >= 2) {
+				for (int i = 0; i < nPeriods; i++) {
+					histogram.underflow[i] = in.readInt();
+					histogram.overflow[i] = in.readInt();
+					if (histogram.underflow[i] < 0 || histogram.overflow[i] < 0) {
+						throw new IOException("read(): file=[" + file
+								+ "] has an invalid under/overflow count");
+					}
+				}
+			}
+			return histogram;
+		} finally {
+			if (in != null)
+				in.close();
+		}
+	}
+
+	/**
+	 * Read and merge a list of histogram files (e.g., all the days of a
+	 * station-channel, or all stations of a network) using nThreads threads.
+	 * Each thread reduces its own share of the files and the partial
+	 * histograms are merged at the end.
+	 */
+	public static PSDHistogram mergeFiles(List<File> files, int nThreads)
+			throws IOException {
+		if (nThreads < 1)
+			nThreads = 1;
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try {
+			List<Future<PSDHistogram>> partials = new ArrayList<Future<PSDHistogram>>();
+			int chunk = (files.size() + nThreads - 1) / nThreads;
+			for (int i = 0; i < files.size(); i += chunk) {
+				final List<File> share = files.subList(i,
+						Math.min(i + chunk, files.size()));
+				partials.add(executor.submit(new Callable<PSDHistogram>() {
+					public PSDHistogram call() throws IOException {
+						PSDHistogram partial = new PSDHistogram();
+						for (File file : share) {
+							partial.merge(read(file));
+						}
+						return partial;
+					}
+				}));
+			}
+			PSDHistogram total = new PSDHistogram();
+			for (Future<PSDHistogram> partial : partials) {
+				total.merge(partial.get());
+			}
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("mergeFiles(): interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("mergeFiles(): failed to merge", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.metadata.Channel;
+
+/**
+ * PSDHistogramMetric - Feed each channel's daily CrossPower spectrum into a
+ * PSDHistogram and write it to a per station-channel-day file, e.g.,
+ * histograms/2012/2012160/2012160.IU_ANMO.00-LHZ.psdh
+ *
+ * The spectra come from the crossPowerMap shared with the other metrics of
+ * this station-day, so no additional FFTs are computed when this metric runs
+ * after e.g. NLNMDeviationMetric. Because each day is written to its own file
+ * a re-scan of a day replaces its counts instead of adding them twice. The
+ * daily files are combined with PSDHistogram.mergeFiles().
+ *
+ * Arguments (config.xml):
+ * histogram-dir - base directory of the histogram files (required)
+ * bands - comma separated band codes to accumulate (default "LH")
+ *
+ * No metric values are stored in the database.
+ */
+public class PSDHistogramMetric extends Metric {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.PSDHistogramMetric.class);
+
+	@Override
+	public long getVersion() {
+		return 1;
+	}
+
+	@Override
+	public String getName() {
+		return "PSDHistogramMetric";
+	}
+
+	public PSDHistogramMetric() {
+		super();
+		addArgument("histogram-dir");
+		addArgument("bands");
+	}
+
+	public void process() {
+		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
+
+		String histogramDir = null;
+		String bands = null;
+		try {
+			histogramDir = get("histogram-dir");
+			bands = get("bands");
+		} catch (NoSuchFieldException e) {
+			logger.error("NoSuchFieldException:", e);
+		}
+		if (histogramDir == null) {
+			logger.error(
+					"station=[{}] day=[{}]: Failed to get histogram-dir from config.xml --> Skip Metric",
+					getStation(), getDay());
+			return;
+		}
+		if (bands == null) {
+			bands = "LH";
+		}
+
+		for (String band : bands.split(",")) {
+			List<Channel> channels = stationMeta.getChannelArray(band.trim());
+			if (channels == null || channels.size() == 0) {
+				logger.warn("No {}? channels found for station={} day={}",
+						band, getStation(), getDay());
+				continue;
+			}
+
+			for (Channel channel : channels) {
+				if (!metricData.hasChannelData(channel)) {
+					logger.warn(
+							"No data found for channel:[{}] day:[{}] --> Skip metric",
+							channel, getDay());
+					continue;
+				}
+
+				CrossPower crossPower = getCrossPower(channel, channel);
+				PSDHistogram histogram = new PSDHistogram();
+				histogram.add(crossPower.getSpectrum(),
+						crossPower.getSpectrumDeltaF());
+				if (histogram.getNumberOfSpectra() == 0) {
+					continue;
+				}
+
+				File file = getHistogramFile(histogramDir, channel);
+				try {
+					histogram.write(file);
+				} catch (IOException e) {
+					logger.error("IOException:", e);
+				}
+			}
+		}
+	} // end process()
+
+	/**
+	 * e.g., histograms/2012/2012160/2012160.IU_ANMO.00-LHZ.psdh
+	 */
+	private File getHistogramFile(String histogramDir, Channel channel) {
+		return new File(String.format("%s/%4s/%4s%3s/%4s%3s.%s.%s-%s.psdh",
+				histogramDir, getYear(), getYear(), getDOY(), getYear(),
+				getDOY(), getStation(), channel.getLocation(),
+				channel.getChannel()));
+	}
+}
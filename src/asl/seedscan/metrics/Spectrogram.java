@@ -0,0 +1,297 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import timeutils.StreamingPSD;
+import asl.metadata.meta_new.ChannelMeta;
+import asl.metadata.meta_new.ChannelMeta.ResponseUnits;
+import asl.metadata.meta_new.ChannelMetaException;
+import freq.ComplexArray;
+
+/**
+ * Spectrogram - Power against time and period of one channel-day, collected
+ * from the segments of the daily PSD (see StreamingPSD.SegmentListener), so
+ * it costs no FFTs of its own.
+ *
+ * Each segment's spectrum is corrected for the instrument response
+ * (acceleration), averaged over the 1/8 octave around each period of the
+ * PSDHistogram period grid and kept in dB as one row of the spectrogram.
+ *
+ * The rows of a channel-day are written to their own file (see write()), a
+ * header and fixed size records, and a viewer can combine the rows of any
+ * number of days into a multi-day quick-look (see read()).
+ */
+public class Spectrogram implements StreamingPSD.SegmentListener {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.Spectrogram.class);
+
+	/** File signature = "SPGM" */
+	private static final int MAGIC = 0x5350474d;
+	private static final short FORMAT_VERSION = 1;
+
+	/** Powers are stored as short in units of POWER_SCALE dB */
+	public static final double POWER_SCALE = 0.01;
+	/** Stored for periods without data */
+	public static final short NO_DATA = Short.MIN_VALUE;
+
+	private final ChannelMeta chanMeta;
+	private final long dayStartTime; // millis
+	private final double dt; // seconds
+
+	private final double periodMin = PSDHistogram.PERIOD_MIN;
+	private final int binsPerOctave = PSDHistogram.BINS_PER_OCTAVE;
+	private final int nPeriods = PSDHistogram.N_PERIODS;
+
+	/** |response|^2 of the segment frequencies, computed at the 1st segment */
+	private double[] responsePower = null;
+	private boolean responseFailed = false;
+
+	private final ArrayList<Row> rows = new ArrayList<Row>();
+
+	/**
+	 * @param chanMeta
+	 *            the channel's metadata (for the response)
+	 * @param dayStartTime
+	 *            start of the day grid the segment offsets refer to (millis)
+	 * @param dt
+	 *            sample interval (seconds)
+	 */
+	public Spectrogram(ChannelMeta chanMeta, long dayStartTime, double dt) {
+		this.chanMeta = chanMeta;
+		this.dayStartTime = dayStartTime;
+		this.dt = dt;
+	}
+
+	/**
+	 * @see timeutils.StreamingPSD.SegmentListener#segment(int, int, double,
+	 *      double[])
+	 */
+	public void segment(int offset, int nseg_pnts, double df, double[] power) {
+		if (!setResponse(power.length, df)) {
+			return;
+		}
+		int nf = power.length;
+		double fMax = (nf - 1) * df;
+		double halfBin = Math.pow(2., 0.5 / binsPerOctave);
+		short[] row = new short[nPeriods];
+		for (int iPeriod = 0; iPeriod < nPeriods; iPeriod++) {
+			row[iPeriod] = NO_DATA;
+			double period = getPeriod(iPeriod);
+			double fLow = 1. / (period * halfBin);
+			double fHigh = halfBin / period;
+			if (fLow < df || fHigh > fMax) {
+				continue;
+			}
+			int k1 = (int) Math.ceil(fLow / df);
+			int k2 = (int) Math.floor(fHigh / df);
+			double sum = 0.;
+			int n = 0;
+			for (int k = k1; k <= k2; k++) {
+				if (responsePower[k] > 0.) {
+					sum += power[k] / responsePower[k];
+					n++;
+				}
+			}
+			if (n == 0 || sum <= 0.) {
+				continue;
+			}
+			row[iPeriod] = toShort(10. * Math.log10(sum / n));
+		}
+		rows.add(new Row(dayStartTime + Math.round(offset * dt * 1000.),
+				(int) Math.round(nseg_pnts * dt), row));
+	}
+
+	/**
+	 * Compute |response|^2 for f = k * df the first time
+	 *
+	 * @return false if there is no response
+	 */
+	private boolean setResponse(int nf, double df) {
+		if (responsePower != null) {
+			return true;
+		}
+		if (responseFailed) {
+			return false;
+		}
+		double[] freq = new double[nf];
+		for (int k = 0; k < nf; k++) {
+			freq[k] = k * df;
+		}
+		try {
+			ComplexArray response = chanMeta.getResponse(freq,
+					ResponseUnits.ACCELERATION);
+			responsePower = new double[nf];
+			for (int k = 1; k < nf; k++) { // DC is skipped
+				double mag = response.mag(k);
+				responsePower[k] = mag * mag;
+			}
+			return true;
+		} catch (ChannelMetaException e) {
+			logger.error("ChannelMetaException:", e);
+			responseFailed = true;
+			return false;
+		}
+	}
+
+	private static short toShort(double powerDB) {
+		long scaled = Math.round(powerDB / POWER_SCALE);
+		if (scaled <= Short.MIN_VALUE) {
+			return (short) (Short.MIN_VALUE + 1);
+		}
+		if (scaled > Short.MAX_VALUE) {
+			return Short.MAX_VALUE;
+		}
+		return (short) scaled;
+	}
+
+	public double getPeriod(int iPeriod) {
+		return periodMin * Math.pow(2., (double) iPeriod / binsPerOctave);
+	}
+
+	public int getNumberOfRows() {
+		return rows.size();
+	}
+
+	/**
+	 * Write the rows to a file (one per channel-day, replacing the file of an
+	 * earlier scan of the day). Format (big endian):
+	 *
+	 * <pre>
+	 * int    magic = "SPGM"
+	 * short  version
+	 * double periodMin, int binsPerOctave, int nPeriods
+	 * records (until end of file) x {
+	 *     long  segment start time (millis)
+	 *     int   segment length (seconds)
+	 *     short nPeriods x power (POWER_SCALE dB or NO_DATA)
+	 * }
+	 * </pre>
+	 */
+	public void write(File file) throws IOException {
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			out.writeInt(MAGIC);
+			out.writeShort(FORMAT_VERSION);
+			out.writeDouble(periodMin);
+			out.writeInt(binsPerOctave);
+			out.writeInt(nPeriods);
+			for (Row row : rows) {
+				out.writeLong(row.startTime);
+				out.writeInt(row.length);
+				for (short power : row.powers) {
+					out.writeShort(power);
+				}
+			}
+		} finally {
+			if (out != null)
+				out.close();
+		}
+	}
+
+	/**
+	 * Read the rows of one or more files (e.g., the days of a month of a
+	 * station-channel), latest row winning for the same start time
+	 *
+	 * @return segment start time (millis) --> power (dB, NaN where there is
+	 *         no data) of each period of the PSDHistogram grid
+	 */
+	public static SortedMap<Long, double[]> read(File... files)
+			throws IOException {
+		TreeMap<Long, double[]> rows = new TreeMap<Long, double[]>();
+		for (File file : files) {
+			DataInputStream in = null;
+			try {
+				in = new DataInputStream(new BufferedInputStream(
+						new FileInputStream(file)));
+				if (in.readInt() != MAGIC) {
+					throw new IOException("read(): file=[" + file
+							+ "] is not a spectrogram file");
+				}
+				short version = in.readShort();
+				if (version != FORMAT_VERSION) {
+					throw new IOException("read(): file=[" + file
+							+ "] has unsupported version=" + version);
+				}
+				double filePeriodMin = in.readDouble();
+				int fileBinsPerOctave = in.readInt();
+				int fileNPeriods = in.readInt();
+				if (filePeriodMin != PSDHistogram.PERIOD_MIN
+						|| fileBinsPerOctave != PSDHistogram.BINS_PER_OCTAVE
+						|| fileNPeriods != PSDHistogram.N_PERIODS) {
+					throw new IOException("read(): file=[" + file
+							+ "] uses a different period grid");
+				}
+				try {
+					while (true) {
+						long startTime = in.readLong();
+						in.readInt(); // segment length
+						double[] powers = new double[fileNPeriods];
+						for (int i = 0; i < fileNPeriods; i++) {
+							short power = in.readShort();
+							powers[i] = (power == NO_DATA) ? Double.NaN
+									: power * POWER_SCALE;
+						}
+						rows.put(startTime, powers);
+					}
+				} catch (EOFException e) {
+					// End of the records (a partly written last record is
+					// left out)
+				}
+			} finally {
+				if (in != null)
+					in.close();
+			}
+		}
+		return rows;
+	}
+
+	private static class Row {
+		final long startTime;
+		final int length;
+		final short[] powers;
+
+		Row(long startTime, int length, short[] powers) {
+			this.startTime = startTime;
+			this.length = length;
+			this.powers = powers;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedscan.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.metadata.Channel;
+
+/**
+ * SpectrogramMetric - Write each channel's day spectrogram (the segments of
+ * its daily CrossPower spectrum, see Spectrogram) to a per
+ * station-channel-day file, e.g.,
+ * spectrograms/2012/2012160/2012160.IU_ANMO.00-LHZ.spgm
+ *
+ * A re-scan of the day replaces the file. The days are combined with
+ * Spectrogram.read().
+ *
+ * Like PSDHistogramMetric this uses the crossPowerMap shared with the other
+ * metrics of this station-day, so no additional FFTs are computed when it
+ * runs after e.g. NLNMDeviationMetric.
+ *
+ * Arguments (config.xml):
+ * spectrogram-dir - base directory of the spectrogram files (required)
+ * bands - comma separated band codes to write (default "LH")
+ *
+ * No metric values are stored in the database.
+ */
+public class SpectrogramMetric extends Metric {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedscan.metrics.SpectrogramMetric.class);
+
+	@Override
+	public long getVersion() {
+		return 1;
+	}
+
+	@Override
+	public String getName() {
+		return "SpectrogramMetric";
+	}
+
+	@Override
+	public boolean requiresSpectrograms() {
+		return true;
+	}
+
+	public SpectrogramMetric() {
+		super();
+		addArgument("spectrogram-dir");
+		addArgument("bands");
+	}
+
+	public void process() {
+		logger.info("-Enter- [ Station {} ] [ Day {} ]", getStation(), getDay());
+
+		String spectrogramDir = null;
+		String bands = null;
+		try {
+			spectrogramDir = get("spectrogram-dir");
+			bands = get("bands");
+		} catch (NoSuchFieldException e) {
+			logger.error("NoSuchFieldException:", e);
+		}
+		if (spectrogramDir == null) {
+			logger.error(
+					"station=[{}] day=[{}]: Failed to get spectrogram-dir from config.xml --> Skip Metric",
+					getStation(), getDay());
+			return;
+		}
+		if (bands == null) {
+			bands = "LH";
+		}
+
+		for (String band : bands.split(",")) {
+			List<Channel> channels = stationMeta.getChannelArray(band.trim());
+			if (channels == null || channels.size() == 0) {
+				logger.warn("No {}? channels found for station={} day={}",
+						band, getStation(), getDay());
+				continue;
+			}
+
+			for (Channel channel : channels) {
+				if (!metricData.hasChannelData(channel)) {
+					logger.warn(
+							"No data found for channel:[{}] day:[{}] --> Skip metric",
+							channel, getDay());
+					continue;
+				}
+
+				Spectrogram spectrogram = getCrossPower(channel, channel)
+						.getSpectrogram();
+				if (spectrogram == null || spectrogram.getNumberOfRows() == 0) {
+					continue;
+				}
+
+				File file = getSpectrogramFile(spectrogramDir, channel);
+				try {
+					spectrogram.write(file);
+				} catch (IOException e) {
+					logger.error("IOException:", e);
+				}
+			}
+		}
+	} // end process()
+
+	/**
+	 * e.g., spectrograms/2012/2012160/2012160.IU_ANMO.00-LHZ.spgm
+	 */
+	private File getSpectrogramFile(String spectrogramDir, Channel channel) {
+		return new File(String.format("%s/%4s/%4s%3s/%4s%3s.%s.%s-%s.spgm",
+				spectrogramDir, getYear(), getYear(), getDOY(), getYear(),
+				getDOY(), getStation(), channel.getLocation(),
+				channel.getChannel()));
+	}
+}
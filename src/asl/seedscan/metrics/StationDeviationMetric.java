@@ -38,6 +38,7 @@ import asl.metadata.Station;
 import asl.seedscan.ArchivePath;
 import asl.util.PlotMaker2;
 import asl.util.PlotMakerException;
+import asl.util.PlotService;
 import asl.util.Trace;
 import asl.util.TraceException;
 
@@ -145,7 +146,7 @@ public class StationDeviationMetric extends PowerBandMetric {
 			}
 			final String pngName = String.format("%s.%s.png", getOutputDir(),
 					"stn-dev");
-			plotMaker.writePlot(pngName);
+			PlotService.getInstance().writePlot(plotMaker, pngName);
 		}
 	} // end process()
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedsplitter;
+
+import java.util.ArrayList;
+
+/**
+ * SampleView - A window of samples over one or more Sequences (e.g., the end
+ * of a channel's DataSet for the day followed by the start of the next day's
+ * DataSet) that reads the samples from the Sequences' blocks when they are
+ * used, instead of copying the Sequences first.
+ *
+ * The view has a fixed length; the pieces of Sequences are laid out one after
+ * the other from position 0 and the positions after the last piece (if any)
+ * read as 0.
+ *
+ * A view is built with add() (see MetricData.getWindowedView()) and must not
+ * be changed once it has been handed out.
+ */
+public class SampleView {
+	private final int length;
+	private final ArrayList<Piece> pieces = new ArrayList<Piece>(2);
+	private int covered = 0;
+
+	/**
+	 * @param length
+	 *            the number of samples of the window
+	 */
+	public SampleView(int length) {
+		this.length = length;
+	}
+
+	/**
+	 * Append count samples of sequence (from index) to the view
+	 *
+	 * @return this view
+	 * @throws IndexOutOfBoundsException
+	 *             if sequence doesn't have count samples from index or they
+	 *             don't fit in the view
+	 */
+	public SampleView add(Sequence sequence, int index, int count)
+			throws IndexOutOfBoundsException {
+		if (count <= 0) {
+			return this;
+		}
+		if (index < 0 || index + count > sequence.getLength()
+				|| covered + count > length) {
+			throw new IndexOutOfBoundsException(String.format(
+					"add(): index=%d count=%d sequence length=%d view=%d/%d",
+					index, count, sequence.getLength(), covered, length));
+		}
+		pieces.add(new Piece(sequence, index, covered, count));
+		covered += count;
+		return this;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return The sample at position i of the window
+	 */
+	public int get(int i) throws IndexOutOfBoundsException {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException();
+		}
+		for (Piece piece : pieces) {
+			if (i < piece.position + piece.count) {
+				return piece.sequence.get(piece.index + (i - piece.position));
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Copy count samples of the window, from position from, into dest
+	 */
+	public void copyTo(int from, double[] dest, int destOffset, int count)
+			throws IndexOutOfBoundsException {
+		if (from < 0 || count < 0 || from + count > length) {
+			throw new IndexOutOfBoundsException();
+		}
+		int end = from + count;
+		for (Piece piece : pieces) {
+			int first = Math.max(from, piece.position);
+			int last = Math.min(end, piece.position + piece.count);
+			if (first >= last) {
+				continue;
+			}
+			try {
+				piece.sequence.copySeries(piece.index + (first - piece.position),
+						dest, destOffset + (first - from), last - first);
+			} catch (SequenceRangeException e) {
+				// The pieces were checked in add()
+				throw new IndexOutOfBoundsException(e.toString());
+			}
+		}
+		for (int i = Math.max(from, covered); i < end; i++) {
+			dest[destOffset + (i - from)] = 0.;
+		}
+	}
+
+	/**
+	 * @return A new array of the samples of the window
+	 */
+	public double[] toArray() {
+		double[] array = new double[length];
+		copyTo(0, array, 0, length);
+		return array;
+	}
+
+	private static class Piece {
+		final Sequence sequence;
+		final int index; // of the 1st sample in the sequence
+		final int position; // of the 1st sample in the view
+		final int count;
+
+		Piece(Sequence sequence, int index, int position, int count) {
+			this.sequence = sequence;
+			this.index = index;
+			this.position = position;
+			this.count = count;
+		}
+	}
+}
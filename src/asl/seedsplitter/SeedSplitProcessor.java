@@ -62,6 +62,7 @@ public class SeedSplitProcessor implements Runnable {
 	private boolean m_running;
 	private Hashtable<String, TreeSet<DataSet>> m_trees = null;
 	private Hashtable<String, ArrayList<DataSet>> m_table = null;
+	private Hashtable<String, SegmentIndex> m_indexTable = null;
 	private static TimeZone m_tz = TimeZone.getTimeZone("GMT");
 
 	// MTH:
@@ -121,6 +122,7 @@ public class SeedSplitProcessor implements Runnable {
 		m_progressQueue = progressQueue;
 		m_running = false;
 		m_table = table;
+		m_indexTable = new Hashtable<String, SegmentIndex>();
 		m_trees = new Hashtable<String, TreeSet<DataSet>>();
 
 	}
@@ -174,6 +176,16 @@ public class SeedSplitProcessor implements Runnable {
 		return m_table;
 	}
 
+	/**
+	 * Returns the segment index of each channel of the hash table (same
+	 * keys), built once the channel's DataSets have been merged.
+	 * 
+	 * @return The segment indexes.
+	 */
+	public Hashtable<String, SegmentIndex> getIndexTable() {
+		return m_indexTable;
+	}
+
 	public Hashtable<String, ArrayList<Integer>> getQualityTable() {
 		return m_qualityTable;
 	}
@@ -681,6 +693,7 @@ public class SeedSplitProcessor implements Runnable {
 				}
 				list.add(lastDataSet);
 				m_table.put(chanKey, list);
+				m_indexTable.put(chanKey, new SegmentIndex(list));
 			} else {
 				logger.debug("Empty tree for '" + chanKey + "'");
 			}
@@ -78,6 +78,7 @@ public class SeedSplitter extends
 	// MTH
 	private Hashtable<String, ArrayList<Integer>> m_qualityTable;
 	private Hashtable<String, ArrayList<Blockette320>> m_calTable;
+	private Hashtable<String, SegmentIndex> m_indexTable;
 
 	/**
 	 * Hidden initializer which is called by all constructors.
@@ -181,6 +182,15 @@ public class SeedSplitter extends
 		return m_table;
 	}
 
+	/**
+	 * Get the segment index of each channel of the table (same keys).
+	 * 
+	 * @return The segment indexes.
+	 */
+	public Hashtable<String, SegmentIndex> getIndexTable() {
+		return m_indexTable;
+	}
+
 	public Hashtable<String, ArrayList<Integer>> getQualityTable() {
 		return m_qualityTable;
 	}
@@ -310,6 +320,7 @@ public class SeedSplitter extends
 			// MTH:
 			m_qualityTable = processor.getQualityTable();
 			m_calTable = processor.getCalTable();
+			m_indexTable = processor.getIndexTable();
 			m_lastProgress = progress;
 			if (progress.errorOccurred()) {
 				m_table = null;
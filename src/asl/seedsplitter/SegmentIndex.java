@@ -0,0 +1,262 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package asl.seedsplitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SegmentIndex - An immutable index of the contiguous segments (DataSets) of
+ * one channel, e.g., the list SeedSplitProcessor produces for
+ * "IU_ANMO 00-BHZ (20.0 Hz)".
+ *
+ * The start/end times of the segments are kept in primitive arrays so window
+ * lookups are binary searches, and gap and multi-channel overlap queries are
+ * answered from the times alone, without copying any samples or running a
+ * BlockLocator.
+ *
+ * Times are in microseconds since the epoch, as in Sequence.
+ */
+public class SegmentIndex {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.seedsplitter.SegmentIndex.class);
+
+	private final List<DataSet> source;
+	private final DataSet[] dataSets;
+	private final long[] startTimes;
+	private final long[] endTimes;
+	// maxEndTimes[i] = max(endTimes[0..i]), to find segments that overlap
+	private final long[] maxEndTimes;
+	private final long interval;
+	private final long sampleCount;
+
+	/**
+	 * @param dataList
+	 *            the DataSets of one channel (not changed)
+	 */
+	public SegmentIndex(List<DataSet> dataList) {
+		source = dataList;
+		ArrayList<DataSet> sorted = new ArrayList<DataSet>(dataList);
+		Collections.sort(sorted, new SequenceComparator());
+
+		int n = sorted.size();
+		dataSets = sorted.toArray(new DataSet[n]);
+		startTimes = new long[n];
+		endTimes = new long[n];
+		maxEndTimes = new long[n];
+		long count = 0;
+		for (int i = 0; i < n; i++) {
+			startTimes[i] = dataSets[i].getStartTime();
+			endTimes[i] = dataSets[i].getEndTime();
+			maxEndTimes[i] = (i == 0) ? endTimes[i] : Math.max(
+					maxEndTimes[i - 1], endTimes[i]);
+			count += dataSets[i].getLength();
+		}
+		interval = (n > 0) ? dataSets[0].getInterval() : 0;
+		sampleCount = count;
+	}
+
+	/**
+	 * @return true if this index was built from dataList (the same list
+	 *         object)
+	 */
+	public boolean isIndexOf(List<DataSet> dataList) {
+		return source == dataList;
+	}
+
+	public int size() {
+		return dataSets.length;
+	}
+
+	public DataSet getDataSet(int i) {
+		return dataSets[i];
+	}
+
+	public long getStartTime(int i) {
+		return startTimes[i];
+	}
+
+	public long getEndTime(int i) {
+		return endTimes[i];
+	}
+
+	/**
+	 * @return The sample interval of the 1st segment (0 if there are none)
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return The number of samples of all the segments
+	 */
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * @return The number of samples of the segments with this sample rate
+	 */
+	public long getSampleCount(double sampleRate) {
+		long count = 0;
+		for (DataSet dataSet : dataSets) {
+			if (dataSet.getSampleRate() == sampleRate) {
+				count += dataSet.getLength();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return The index of the last segment starting at or before time, or -1
+	 *         if all segments start after it
+	 */
+	public int floorSegment(long time) {
+		int low = 0;
+		int high = startTimes.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (startTimes[mid] <= time) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * @return The index of the 1st segment containing [startTime, endTime]
+	 *         (see Sequence.containsRange()), or -1 if there is none
+	 */
+	public int findSegment(long startTime, long endTime) {
+		int found = -1;
+		for (int i = floorSegment(startTime); i >= 0
+				&& maxEndTimes[i] >= endTime; i--) {
+			if (endTimes[i] >= endTime) {
+				found = i;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return The 1st DataSet containing [startTime, endTime], or null if
+	 *         there is none
+	 */
+	public DataSet findDataSet(long startTime, long endTime) {
+		int i = findSegment(startTime, endTime);
+		return (i < 0) ? null : dataSets[i];
+	}
+
+	/**
+	 * The gaps of the channel within the window [windowStart, windowEnd]
+	 * (e.g., a day) are the gaps between consecutive segments, plus the gap
+	 * before the 1st segment and after the last segment if they are longer
+	 * than one sample interval.
+	 *
+	 * @return The number of gaps within [windowStart, windowEnd] (1 if there
+	 *         are no segments)
+	 */
+	public int getGapCount(long windowStart, long windowEnd) {
+		int n = dataSets.length;
+		if (n == 0) {
+			return 1;
+		}
+		int gapCount = n - 1;
+		if ((startTimes[0] - windowStart) > interval) {
+			gapCount++;
+		}
+		if ((windowEnd - endTimes[n - 1]) > interval) {
+			gapCount++;
+		}
+		return gapCount;
+	}
+
+	/**
+	 * Find the blocks of time covered by all the channels, as BlockLocator
+	 * does for their DataSet lists
+	 *
+	 * @return The blocks in time order, or null if the channels have
+	 *         different sample intervals
+	 */
+	public static ArrayList<ContiguousBlock> getOverlap(
+			SegmentIndex... indexes) {
+		ArrayList<ContiguousBlock> blocks = new ArrayList<ContiguousBlock>();
+		if (indexes.length == 0) {
+			return blocks;
+		}
+		SegmentIndex first = indexes[0];
+		for (int i = 0; i < first.size(); i++) {
+			blocks.add(new ContiguousBlock(first.startTimes[i],
+					first.endTimes[i], first.dataSets[i].getInterval()));
+		}
+		for (SegmentIndex index : indexes) {
+			blocks = index.intersect(blocks);
+			if (blocks == null) {
+				logger.warn("getOverlap(): Interval (sample rate) does not match across channels.");
+				return null;
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * The parts of blocks covered by this channel's segments. The segments
+	 * and blocks are walked from the start, as BlockLocator does, so the
+	 * intervals are checked for the same (segment, block) pairs.
+	 *
+	 * @return null if a segment's interval differs from a block's
+	 */
+	private ArrayList<ContiguousBlock> intersect(
+			ArrayList<ContiguousBlock> blocks) {
+		ArrayList<ContiguousBlock> result = new ArrayList<ContiguousBlock>();
+		int dataIndex = 0;
+		int blockIndex = 0;
+		while ((dataIndex < dataSets.length) && (blockIndex < blocks.size())) {
+			ContiguousBlock block = blocks.get(blockIndex);
+			if (dataSets[dataIndex].getInterval() != block.getInterval()) {
+				return null;
+			}
+			if (endTimes[dataIndex] <= block.getStartTime()) {
+				dataIndex++;
+			} else if (startTimes[dataIndex] >= block.getEndTime()) {
+				blockIndex++;
+			} else {
+				long startTime = Math.max(startTimes[dataIndex],
+						block.getStartTime());
+				long endTime;
+				if (endTimes[dataIndex] > block.getEndTime()) {
+					endTime = block.getEndTime();
+					blockIndex++;
+				} else {
+					endTime = endTimes[dataIndex];
+					dataIndex++;
+				}
+				result.add(new ContiguousBlock(startTime, endTime, block
+						.getInterval()));
+			}
+		}
+		return result;
+	}
+}
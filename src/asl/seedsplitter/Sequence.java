@@ -602,6 +602,67 @@ public class Sequence extends MemberDigest {
 		return series;
 	}
 
+	/**
+	 * Copies a subset of the data points in this sequence directly from the
+	 * internal blocks into a caller supplied double array. Unlike
+	 * getSeries(int, int) no intermediate int array is allocated.
+	 *
+	 * @param index
+	 *            The index of the first copied data point.
+	 * @param dest
+	 *            The array into which the data points are copied.
+	 * @param destOffset
+	 *            Offset within dest at which copying should begin.
+	 * @param count
+	 *            The number of data points to copy.
+	 */
+	public void copySeries(int index, double[] dest, int destOffset, int count)
+			throws IndexOutOfBoundsException, SequenceRangeException {
+		if (index < 0 || index >= m_length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if ((index + count) > m_length) {
+			throw new SequenceRangeException();
+		}
+
+		int numBlocks = m_blocks.size();
+		int finalBlock = numBlocks - 1;
+		int burn = index / BLOCK_SIZE;
+		int jump = index % BLOCK_SIZE;
+
+		for (int i = burn; (i < numBlocks) && (count > 0); i++) {
+			int[] block = m_blocks.get(i);
+			int blockLength = BLOCK_SIZE - jump;
+			if (i == finalBlock) {
+				blockLength = blockLength - m_remainder;
+			}
+			if (blockLength > count) {
+				blockLength = count;
+			}
+			for (int j = 0; j < blockLength; j++) {
+				dest[destOffset++] = block[jump + j];
+			}
+			count -= blockLength;
+			jump = 0;
+		}
+	}
+
+	/**
+	 * Returns a single data point, read directly from the internal blocks.
+	 *
+	 * @param index
+	 *            The index of the data point.
+	 * @return The data point.
+	 * @throws IndexOutOfBoundsException
+	 *             If index is not within this sequence.
+	 */
+	public int get(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= m_length) {
+			throw new IndexOutOfBoundsException();
+		}
+		return m_blocks.get(index / BLOCK_SIZE)[index % BLOCK_SIZE];
+	}
+
 	/**
 	 * Returns a new Array containing all of the data points in this sequence.
 	 * 
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+
+package asl.util;
+
+import org.jfree.data.xy.XYSeries;
+
+/**
+ * PlotDecimator - Reduces a trace to the points that can show up in a plot
+ * before it is handed to JFreeChart.
+ *
+ * Each point falls in the pixel column of its x value on the horizontal axis
+ * (on a log scale for a logarithmic axis, e.g., the period axis of the PSD
+ * and coherence plots, whose x = 1/f points are far from evenly spaced).
+ * Consecutive points of the same column are reduced to their minimum and
+ * maximum (in their sample order), so a trace is drawn with the same
+ * envelope from at most about 2 points per pixel whatever its sample rate.
+ * Traces with no more than 2 points per pixel are kept whole.
+ */
+public class PlotDecimator {
+
+	private PlotDecimator() {
+	}
+
+	/**
+	 * @param x
+	 *            the x values
+	 * @param y
+	 *            the samples
+	 * @param n
+	 *            the number of samples to use (y[0] .. y[n-1])
+	 * @param nBins
+	 *            the number of bins (pixel columns) of the axis
+	 * @param xLow
+	 *            the x value at the left edge of the axis
+	 * @param xHigh
+	 *            the x value at the right edge of the axis
+	 * @param logScale
+	 *            true if the axis is logarithmic
+	 * @return The indices of the samples to plot, in increasing order: the
+	 *         first and last sample and the min and max of each run of
+	 *         samples in the same bin (or all n indices if n <= 2 * nBins)
+	 */
+	public static int[] minMaxIndices(double[] x, double[] y, int n,
+			int nBins, double xLow, double xHigh, boolean logScale) {
+		if (nBins < 1 || n <= 2 * nBins) {
+			int[] all = new int[n];
+			for (int k = 0; k < n; k++) {
+				all[k] = k;
+			}
+			return all;
+		}
+		double low = logScale ? Math.log10(xLow) : xLow;
+		double high = logScale ? Math.log10(xHigh) : xHigh;
+		double scale = (high > low) ? nBins / (high - low) : 0.;
+
+		int[] indices = new int[n];
+		int count = 0;
+		indices[count++] = 0;
+		int first = 0;
+		int bin = getBin(x[0], low, scale, nBins, logScale);
+		for (int k = 1; k <= n; k++) {
+			int nextBin = (k < n) ? getBin(x[k], low, scale, nBins, logScale)
+					: bin + 1;
+			if (nextBin == bin) {
+				continue;
+			}
+			// Samples [first, k) are in the same bin
+			int iMin = -1;
+			int iMax = -1;
+			for (int j = first; j < k; j++) {
+				if (Double.isNaN(y[j])) {
+					continue;
+				}
+				if (iMin < 0 || y[j] < y[iMin]) {
+					iMin = j;
+				}
+				if (iMax < 0 || y[j] > y[iMax]) {
+					iMax = j;
+				}
+			}
+			if (iMin < 0) { // All NaN: keep one so the gap is drawn
+				iMin = first;
+				iMax = first;
+			}
+			int i1 = Math.min(iMin, iMax);
+			int i2 = Math.max(iMin, iMax);
+			if (i1 > indices[count - 1]) {
+				indices[count++] = i1;
+			}
+			if (i2 > indices[count - 1]) {
+				indices[count++] = i2;
+			}
+			first = k;
+			bin = nextBin;
+		}
+		if (indices[count - 1] < n - 1) {
+			indices[count++] = n - 1;
+		}
+		int[] kept = new int[count];
+		System.arraycopy(indices, 0, kept, 0, count);
+		return kept;
+	}
+
+	/**
+	 * @return The bin of x, -1 or nBins if x is left or right of the axis
+	 *         (and -1 for x <= 0 on a log scale)
+	 */
+	private static int getBin(double x, double low, double scale, int nBins,
+			boolean logScale) {
+		if (logScale) {
+			if (!(x > 0.)) {
+				return -1;
+			}
+			x = Math.log10(x);
+		}
+		double bin = Math.floor((x - low) * scale);
+		if (bin < 0.) {
+			return -1;
+		} else if (bin >= nBins) {
+			return nBins;
+		}
+		return (int) bin;
+	}
+
+	/**
+	 * @param name
+	 *            the series key (trace name)
+	 * @param x
+	 *            the x values (at least n)
+	 * @param y
+	 *            the y values (at least n)
+	 * @param n
+	 *            the number of points to use
+	 * @param width
+	 *            the width of the plot in pixels (the point budget is about 2
+	 *            * width)
+	 * @param xLow
+	 *            the x value at the left edge of the horizontal axis
+	 * @param xHigh
+	 *            the x value at the right edge of the horizontal axis
+	 * @param logScale
+	 *            true if the horizontal axis is logarithmic
+	 * @return A series of the decimated points
+	 */
+	public static XYSeries createSeries(String name, double[] x, double[] y,
+			int n, int width, double xLow, double xHigh, boolean logScale) {
+		XYSeries series = new XYSeries(name);
+		for (int k : minMaxIndices(x, y, n, width, xLow, xHigh, logScale)) {
+			series.add(x[k], y[k], false);
+		}
+		series.fireSeriesChanged();
+		return series;
+	}
+
+	/**
+	 * Decimate a trace for a linear horizontal axis spanning its x values
+	 * (see createSeries(String, double[], double[], int, int, double, double,
+	 * boolean))
+	 */
+	public static XYSeries createSeries(String name, double[] x, double[] y,
+			int n, int width) {
+		double xLow = Double.POSITIVE_INFINITY;
+		double xHigh = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < n; k++) {
+			xLow = Math.min(xLow, x[k]);
+			xHigh = Math.max(xHigh, x[k]);
+		}
+		return createSeries(name, x, y, n, width, xLow, xHigh, false);
+	}
+}
@@ -62,6 +62,10 @@ public class PlotMaker {
 	private String datestr;
 	private final String outputDir = "outputs";
 
+	/** Size of the plotZNE_3x3 images in pixels */
+	private static final int ZNE_WIDTH = 1400;
+	private static final int ZNE_HEIGHT = 800;
+
 	// constructor(s)
 	public PlotMaker(Station station, Channel channel, Calendar date) {
 		this.station = station;
@@ -127,14 +131,12 @@ public class PlotMaker {
 			return;
 		}
 
+		// At most 2 points per pixel column (see PlotDecimator)
 		XYSeries[] series = new XYSeries[channels.length];
 		for (int i = 0; i < channels.length; i++) {
-			series[i] = new XYSeries(channels[i].toString());
 			double[] data = channelData.get(i);
-			// for (int k = 0; k < xsecs.length; k++){
-			for (int k = 0; k < data.length; k++) {
-				series[i].add(xsecs[k], data[k]);
-			}
+			series[i] = PlotDecimator.createSeries(channels[i].toString(),
+					xsecs, data, data.length, ZNE_WIDTH);
 		}
 
 		// I. Panel I = Verticals
@@ -241,7 +243,8 @@ public class PlotMaker {
 		chart.setTitle(new TextTitle(plotTitle));
 
 		try {
-			ChartUtilities.saveChartAsPNG(outputFile, chart, 1400, 800);
+			ChartUtilities.saveChartAsPNG(outputFile, chart, ZNE_WIDTH,
+					ZNE_HEIGHT);
 		} catch (IOException e) {
 			// System.err.println("Problem occurred creating chart.");
 			logger.error("IOException:", e);
@@ -51,6 +51,11 @@ import org.slf4j.LoggerFactory;
 public class PlotMaker2 {
 	private static final Logger logger = LoggerFactory
 			.getLogger(asl.util.PlotMaker2.class);
+
+	/** Size of the plot images in pixels */
+	public static final int WIDTH = 1400;
+	public static final int HEIGHT = 1400;
+
 	private String plotTitle;
 
 	private ArrayList<Panel> panels;
@@ -163,13 +168,15 @@ public class PlotMaker2 {
 			int iTrace = 0;
 			for (Trace trace : panel.getTraces()) {
 
-				XYSeries series = new XYSeries(trace.getName());
-
+				// About 2 points per pixel column of the horizontal axis (see
+				// PlotDecimator)
 				double xdata[] = trace.getxData();
 				double ydata[] = trace.getyData();
-				for (int k = 0; k < xdata.length; k++) {
-					series.add(xdata[k], ydata[k]);
-				}
+				XYSeries series = PlotDecimator.createSeries(trace.getName(),
+						xdata, ydata, xdata.length, WIDTH,
+						horizontalAxis.getLowerBound(),
+						horizontalAxis.getUpperBound(),
+						horizontalAxis instanceof LogarithmicAxis);
 
 				renderer.setSeriesPaint(iTrace, trace.getColor());
 				renderer.setSeriesStroke(iTrace, trace.getStroke());
@@ -253,7 +260,7 @@ public class PlotMaker2 {
 		chart.removeLegend();
 
 		try {
-			ChartUtilities.saveChartAsPNG(outputFile, chart, 1400, 1400);
+			ChartUtilities.saveChartAsPNG(outputFile, chart, WIDTH, HEIGHT);
 		} catch (IOException e) {
 			// System.err.println("Problem occurred creating chart.");
 			logger.error("IOException:", e);
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+
+package asl.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * PlotService - Renders metric plots (JFreeChart + PNG encoding + file I/O)
+ * off the Scanner threads.
+ *
+ * Metrics build the plot (e.g., a PlotMaker2 of Traces, which copy their x/y
+ * arrays and hold no reference to the MetricData) and submit it; the plot is
+ * written by one of a small, fixed number of plot threads. At most queueLimit
+ * plots wait to be written. When the queue is full the submitting thread
+ * either writes the plot itself (backpressure: the scan slows down to the
+ * rate plots can be written, default) or the plot is dropped.
+ */
+public class PlotService {
+	private static final Logger logger = LoggerFactory
+			.getLogger(asl.util.PlotService.class);
+
+	public static final int DEFAULT_THREADS = 2;
+	public static final int DEFAULT_QUEUE_LIMIT = 32;
+	public static final long SHUTDOWN_TIMEOUT = 600; // seconds
+
+	private static PlotService instance = null;
+
+	private final ThreadPoolExecutor executor;
+	private final boolean dropWhenFull;
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong callerWritten = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * @param nThreads
+	 *            the number of plot threads
+	 * @param queueLimit
+	 *            the number of plots that may wait for a plot thread
+	 * @param dropWhenFull
+	 *            drop plots submitted while the queue is full instead of
+	 *            writing them on the submitting thread
+	 */
+	public PlotService(int nThreads, int queueLimit, boolean dropWhenFull) {
+		this.dropWhenFull = dropWhenFull;
+		executor = new ThreadPoolExecutor(nThreads, nThreads, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						queueLimit), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "PlotService-"
+								+ count.incrementAndGet());
+						thread.setPriority(Thread.NORM_PRIORITY - 1);
+						return thread;
+					}
+				}, new RejectedExecutionHandler() {
+					public void rejectedExecution(Runnable r,
+							ThreadPoolExecutor executor) {
+						reject(r, executor);
+					}
+				});
+	}
+
+	/**
+	 * @return The service shared by all metrics (DEFAULT_THREADS,
+	 *         DEFAULT_QUEUE_LIMIT, backpressure when full)
+	 */
+	public static synchronized PlotService getInstance() {
+		if (instance == null) {
+			instance = new PlotService(DEFAULT_THREADS, DEFAULT_QUEUE_LIMIT,
+					false);
+		}
+		return instance;
+	}
+
+	/**
+	 * Wait for the plots of the shared service (if it was used) to be written
+	 * and stop its threads.
+	 */
+	public static synchronized void shutdownInstance() {
+		if (instance != null) {
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Write a PlotMaker2 plot to fileName (see PlotMaker2.writePlot()). The
+	 * plotMaker must not be changed after it is submitted.
+	 */
+	public void writePlot(final PlotMaker2 plotMaker, final String fileName) {
+		submit(new Runnable() {
+			public void run() {
+				plotMaker.writePlot(fileName);
+			}
+		}, fileName);
+	}
+
+	/**
+	 * Run a plot task (e.g., a call to one of the PlotMaker.plot*() methods
+	 * with arrays the caller won't change).
+	 *
+	 * @param name
+	 *            the plot name for the log
+	 */
+	public void submit(Runnable plot, String name) {
+		submitted.incrementAndGet();
+		executor.execute(new PlotTask(plot, name));
+	}
+
+	private void reject(Runnable r, ThreadPoolExecutor executor) {
+		String name = (r instanceof PlotTask) ? ((PlotTask) r).name : "?";
+		if (executor.isShutdown() || dropWhenFull) {
+			dropped.incrementAndGet();
+			logger.warn("Plot queue is full or shut down --> drop plot=[{}]",
+					name);
+			return;
+		}
+		callerWritten.incrementAndGet();
+		r.run();
+	}
+
+	/**
+	 * Wait for the queued plots to be written and stop the plot threads.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				logger.warn("Plots still being written after {} seconds --> give up",
+						SHUTDOWN_TIMEOUT);
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			logger.warn("PlotService interrupted while waiting for plots:", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		logger.info("PlotService finished: {}", getStats());
+	}
+
+	/**
+	 * @return Counters for the log, e.g., "submitted=12 written=12 ..."
+	 */
+	public String getStats() {
+		return String.format(
+				"submitted=%d written=%d (by submitter=%d) dropped=%d failed=%d queued=%d",
+				submitted.get(), written.get(), callerWritten.get(),
+				dropped.get(), failed.get(), executor.getQueue().size());
+	}
+
+	private class PlotTask implements Runnable {
+		private final Runnable plot;
+		private final String name;
+
+		PlotTask(Runnable plot, String name) {
+			this.plot = plot;
+			this.name = name;
+		}
+
+		public void run() {
+			try {
+				plot.run();
+				written.incrementAndGet();
+			} catch (RuntimeException e) {
+				failed.incrementAndGet();
+				logger.error(String.format("Could not write plot=[%s]", name),
+						e);
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package freq;
+
+/**
+ * ComplexArray - An array of complex numbers stored as two primitive double[]
+ * arrays (real, imag) instead of one Cmplx object per element.
+ *
+ * A Cmplx[] spectrum costs an object header plus a reference per element
+ * (~40 bytes/element vs 16 here) and every Cmplx.mul()/div() allocates. The
+ * methods below work in place on the primitive arrays so the loops are
+ * allocation free and can be vectorized by the JIT.
+ *
+ * The arithmetic is the same as Cmplx (incl. the scaled division of
+ * Cmplx.div), so results agree with the old Cmplx[] code.
+ */
+public class ComplexArray {
+	private final double[] re;
+	private final double[] im;
+
+	public ComplexArray(int n) {
+		re = new double[n];
+		im = new double[n];
+	}
+
+	public ComplexArray(double[] re, double[] im)
+			throws IllegalArgumentException {
+		if (re.length != im.length) {
+			throw new IllegalArgumentException(
+					"real and imag arrays must have same length: " + re.length
+							+ " " + im.length);
+		}
+		this.re = re;
+		this.im = im;
+	}
+
+	public static ComplexArray valueOf(Cmplx[] cdata) {
+		ComplexArray c = new ComplexArray(cdata.length);
+		for (int k = 0; k < cdata.length; k++) {
+			c.re[k] = cdata[k].real();
+			c.im[k] = cdata[k].imag();
+		}
+		return c;
+	}
+
+	public Cmplx[] toCmplx() {
+		Cmplx[] cdata = new Cmplx[re.length];
+		for (int k = 0; k < re.length; k++) {
+			cdata[k] = new Cmplx(re[k], im[k]);
+		}
+		return cdata;
+	}
+
+	public ComplexArray copy() {
+		return new ComplexArray(re.clone(), im.clone());
+	}
+
+	public final int length() {
+		return re.length;
+	}
+
+	public final double real(int k) {
+		return re[k];
+	}
+
+	public final double imag(int k) {
+		return im[k];
+	}
+
+	/**
+	 * @return The backing real array (not a copy)
+	 */
+	public final double[] getReal() {
+		return re;
+	}
+
+	/**
+	 * @return The backing imaginary array (not a copy)
+	 */
+	public final double[] getImag() {
+		return im;
+	}
+
+	public final Cmplx get(int k) {
+		return new Cmplx(re[k], im[k]);
+	}
+
+	public final void set(int k, double real, double imag) {
+		re[k] = real;
+		im[k] = imag;
+	}
+
+	public final void set(int k, Cmplx c) {
+		re[k] = c.real();
+		im[k] = c.imag();
+	}
+
+	public final double mag(int k) {
+		return Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+	}
+
+	/**
+	 * Same as Cmplx.phs()
+	 */
+	public final double phs(int k) {
+		if (re[k] == 0.0) {
+			if (im[k] == 0.0)
+				return (0.0);
+			else
+				return ((im[k] / Math.abs(im[k])) * 2.0 * Math.atan(1.0));
+		} else {
+			return (Math.atan2(im[k], re[k]));
+		}
+	}
+
+	/**
+	 * @return |c[k]| for all k
+	 */
+	public double[] magnitude() {
+		double[] mag = new double[re.length];
+		for (int k = 0; k < re.length; k++) {
+			mag[k] = Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+		}
+		return mag;
+	}
+
+	/** this[k] = conjg(this[k]) */
+	public void conjugate() {
+		for (int k = 0; k < im.length; k++) {
+			im[k] = -im[k];
+		}
+	}
+
+	/** this[k] *= a */
+	public void scale(double a) {
+		for (int k = 0; k < re.length; k++) {
+			re[k] *= a;
+			im[k] *= a;
+		}
+	}
+
+	/** this[k] *= a[k] (e.g., a taper) */
+	public void scale(double[] a) {
+		for (int k = 0; k < re.length; k++) {
+			re[k] *= a[k];
+			im[k] *= a[k];
+		}
+	}
+
+	/** this[k] *= b[k] */
+	public void mul(ComplexArray b) {
+		for (int k = 0; k < re.length; k++) {
+			double r = re[k] * b.re[k] - im[k] * b.im[k];
+			im[k] = im[k] * b.re[k] + re[k] * b.im[k];
+			re[k] = r;
+		}
+	}
+
+	/** this[k] *= conjg(b[k]) */
+	public void mulConj(ComplexArray b) {
+		for (int k = 0; k < re.length; k++) {
+			double r = re[k] * b.re[k] + im[k] * b.im[k];
+			im[k] = im[k] * b.re[k] - re[k] * b.im[k];
+			re[k] = r;
+		}
+	}
+
+	/**
+	 * this[k] += x[k] * conjg(y[k]) - the cross-spectrum accumulation of the
+	 * PSD segment loop
+	 */
+	public void addMulConj(ComplexArray x, ComplexArray y) {
+		for (int k = 0; k < re.length; k++) {
+			re[k] += x.re[k] * y.re[k] + x.im[k] * y.im[k];
+			im[k] += x.im[k] * y.re[k] - x.re[k] * y.im[k];
+		}
+	}
+
+	/** this[k] /= b[k] */
+	public void divInPlace(ComplexArray b) {
+		divInPlace(b, false);
+	}
+
+	/** this[k] /= conjg(b[k]) */
+	public void divConjInPlace(ComplexArray b) {
+		divInPlace(b, true);
+	}
+
+	/**
+	 * Same scaled division as Cmplx.div() (avoids overflow of |b|^2)
+	 */
+	private void divInPlace(ComplexArray b, boolean conjugate) {
+		for (int k = 0; k < re.length; k++) {
+			double br = b.re[k];
+			double bi = conjugate ? -b.im[k] : b.im[k];
+			double ar = re[k];
+			double ai = im[k];
+			double r, den;
+			if (Math.abs(br) >= Math.abs(bi)) {
+				r = bi / br;
+				den = br + r * bi;
+				re[k] = (ar + r * ai) / den;
+				im[k] = (ai - r * ar) / den;
+			} else {
+				r = br / bi;
+				den = bi + r * br;
+				re[k] = (ar * r + ai) / den;
+				im[k] = (ai * r - ar) / den;
+			}
+		}
+	}
+
+	/**
+	 * Forward FFT of real data, zero padded to the next power of 2 (nfft).
+	 * Like Cmplx.fft2() only the nfft/2 + 1 positive frequencies (incl. DC +
+	 * Nyquist) are returned.
+	 */
+	public static ComplexArray fft(double[] data) {
+		int nfft = 1;
+		while (nfft < data.length)
+			nfft *= 2;
+		double[] buffer = new double[2 * nfft];
+		for (int i = 0, j = 0; i < data.length; i++, j += 2) {
+			buffer[j] = data[i];
+		}
+		Cmplx.four1(buffer, 1);
+
+		int nf = nfft / 2 + 1;
+		ComplexArray c = new ComplexArray(nf);
+		for (int k = 0, j = 0; k < nf; k++, j += 2) {
+			c.re[k] = buffer[j];
+			c.im[k] = buffer[j + 1];
+		}
+		return c;
+	}
+
+	/**
+	 * Inverse of fft(): Treat this as the nf = nfft/2 + 1 positive
+	 * frequencies of a real series, reflect about the Nyquist to get the
+	 * negative frequencies (DC is set to 0 as in the old bandpass code) and
+	 * return the first npts points of the inverse FFT.
+	 */
+	public double[] inverseFFT(int npts) {
+		int nf = re.length;
+		int nfft = 2 * (nf - 1);
+		double[] buffer = new double[2 * nfft];
+		// DC stays 0
+		buffer[2 * (nf - 1)] = re[nf - 1]; // Nyq
+		buffer[2 * (nf - 1) + 1] = im[nf - 1];
+		for (int k = 1; k < nf - 1; k++) {
+			buffer[2 * k] = re[k];
+			buffer[2 * k + 1] = im[k];
+			buffer[2 * (nfft - k)] = re[k];
+			buffer[2 * (nfft - k) + 1] = -im[k];
+		}
+		Cmplx.four1(buffer, -1);
+
+		double[] data = new double[npts];
+		for (int i = 0, j = 0; i < npts; i++, j += 2) {
+			data[i] = buffer[j];
+		}
+		return data;
+	}
+}
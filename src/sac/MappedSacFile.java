@@ -0,0 +1,132 @@
+package sac;
+
+import static sac.SacConstants.FALSE;
+import static sac.SacConstants.IAMPH;
+import static sac.SacConstants.IRLIM;
+import static sac.SacConstants.NPTS_OFFSET;
+import static sac.SacConstants.NVHDR_OFFSET;
+import static sac.SacConstants.data_offset;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A sac file mapped into memory, so SyntheticCache can keep files without
+ * holding decoded copies. Nothing is decoded up front: the byte order and
+ * npts are read directly from the mapped header, and toSacTimeSeries() bulk
+ * copies the samples instead of decoding them float by float as
+ * SacTimeSeries.read() does.
+ */
+public class MappedSacFile {
+
+	private static final int IFTYPE_OFFSET = 85 * 4;
+	private static final int LEVEN_OFFSET = 105 * 4;
+
+	private final String name;
+	private final ByteBuffer buffer;
+
+	public MappedSacFile(File sacFile) throws IOException {
+		name = sacFile.getName();
+		RandomAccessFile file = new RandomAccessFile(sacFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() < data_offset) {
+				throw new IOException(name
+						+ " does not appear to be a sac file! File size ("
+						+ channel.size() + " is less than sac's header size ("
+						+ data_offset + ")");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			file.close();
+		}
+		setByteOrder();
+	}
+
+	/**
+	 * Set the buffer's byte order from NVHDR, which is always 6 (see
+	 * SacHeader.readHeader())
+	 */
+	private void setByteOrder() throws IOException {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		if (buffer.getInt(NVHDR_OFFSET) != 6) {
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.getInt(NVHDR_OFFSET) != 6) {
+				throw new IOException(name
+						+ " does not appear to be a sac file! NVHDR != 6");
+			}
+		}
+		int npts = getNpts();
+		int values = isEvenTimeSeries() ? 1 : 2;
+		if (npts < 0 || buffer.capacity() < data_offset + 4L * values * npts) {
+			throw new IOException(name + " does not appear to be a sac file! npts("
+					+ npts + ") * 4 * " + values + " + header(" + data_offset
+					+ ") > file length=" + buffer.capacity());
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The size of the file in bytes
+	 */
+	public int getLength() {
+		return buffer.capacity();
+	}
+
+	public int getNpts() {
+		return buffer.getInt(NPTS_OFFSET);
+	}
+
+	public boolean isEvenTimeSeries() {
+		int iftype = buffer.getInt(IFTYPE_OFFSET);
+		return buffer.getInt(LEVEN_OFFSET) != FALSE && iftype != IRLIM
+				&& iftype != IAMPH;
+	}
+
+	/**
+	 * @return A SacTimeSeries with its own copy of the header and samples
+	 *         (as SacTimeSeries.read() would return)
+	 */
+	public SacTimeSeries toSacTimeSeries() throws IOException {
+		SacTimeSeries sac = new SacTimeSeries();
+		sac.read(new DataInputStream(new ByteArrayInputStream(headerCopy())),
+				this);
+		return sac;
+	}
+
+	private byte[] headerCopy() {
+		byte[] headerBytes = new byte[data_offset];
+		ByteBuffer view = buffer.duplicate();
+		view.position(0);
+		view.get(headerBytes);
+		return headerBytes;
+	}
+
+	/**
+	 * Copy samples [first, first + count) into y (bulk copy, no per sample
+	 * decoding)
+	 */
+	void readSamples(int first, float[] y) throws IOException {
+		ByteBuffer view = buffer.duplicate();
+		view.order(buffer.order());
+		view.position(data_offset + 4 * first);
+		view.slice().order(buffer.order()).asFloatBuffer().get(y);
+	}
+
+	/**
+	 * Copy the second (x) array of uneven or spectral files
+	 */
+	void readSecondArray(float[] x) throws IOException {
+		readSamples(getNpts(), x);
+	}
+}
@@ -267,6 +267,30 @@ public class SacTimeSeries {
 		readData(dis);
 	}
 
+	/**
+	 * read the header from headerIn and copy the data from the mapped file
+	 * (see MappedSacFile.toSacTimeSeries())
+	 */
+	void read(DataInput headerIn, MappedSacFile mapped) throws IOException {
+		header = new SacHeader(headerIn);
+		y = new float[header.getNpts()];
+		mapped.readSamples(0, y);
+		if (header.getLeven() == FALSE || header.getIftype() == IRLIM
+				|| header.getIftype() == IAMPH) {
+			x = new float[header.getNpts()];
+			mapped.readSecondArray(x);
+			if (header.getIftype() == IRLIM) {
+				real = y;
+				imaginary = x;
+			}
+			if (header.getIftype() == IAMPH) {
+				amp = y;
+				phase = x;
+			}
+		}
+		numPtsRead = header.getNpts();
+	}
+
 	/** read the data portion of the given File */
 	protected void readData(DataInput fis) throws IOException {
 		y = new float[header.getNpts()];
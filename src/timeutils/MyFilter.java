@@ -18,17 +18,33 @@
  */
 package timeutils;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sac.SacHeader;
 import sac.SacTimeSeries;
 import freq.Cmplx;
+import freq.ComplexArray;
 
 public class MyFilter {
 	private static final Logger logger = LoggerFactory
 			.getLogger(timeutils.MyFilter.class);
 
+	private static final int MAX_FILTERS = 16;
+	private static final LinkedHashMap<String, OverlapSaveFilter> bandpassFilters = new LinkedHashMap<String, OverlapSaveFilter>(
+			MAX_FILTERS, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<String, OverlapSaveFilter> eldest) {
+			return size() > MAX_FILTERS;
+		}
+	};
+
 	public static void bandpass(SacTimeSeries sacSeries, double f1, double f2,
 			double f3, double f4) {
 		SacHeader hdr = sacSeries.getHeader();
@@ -80,9 +96,6 @@ public class MyFilter {
 		Timeseries.debias(data);
 		Timeseries.costaper(data, .01);
 
-		// fft2 returns just the (nf = nfft/2 + 1) positive frequencies
-		Cmplx[] xfft = Cmplx.fft2(data);
-
 		double fNyq = (double) (nf - 1) * df;
 
 		if (f4 > fNyq) {
@@ -93,26 +106,55 @@ public class MyFilter {
 		int k3 = (int) (f3 / df);
 		int k4 = (int) (f4 / df);
 
-		for (int k = 0; k < nf; k++) {
-			double taper = bpass(k, k1, k2, k3, k4);
-			xfft[k] = Cmplx.mul(xfft[k], taper); // Bandpass
+		// Filter block by block if that stays within
+		// OverlapSaveFilter.TOLERANCE of the whole window FFT below
+		OverlapSaveFilter filter = getBandpassFilter(ndata, nf, k1, k2, k3,
+				k4);
+		if (filter != null) {
+			filter.filter(data, timeseries);
+			return;
 		}
 
-		Cmplx[] cfft = new Cmplx[nfft];
-		cfft[0] = new Cmplx(0.0, 0.0); // DC
-		cfft[nf - 1] = xfft[nf - 1]; // Nyq
-		for (int k = 1; k < nf - 1; k++) { // Reflect spec about the Nyquist to
-											// get -ve freqs
-			cfft[k] = xfft[k];
-			cfft[2 * nf - 2 - k] = xfft[k].conjg();
-		}
-		float[] foo = Cmplx.fftInverse(cfft, ndata);
+		double[] taper = getTaper(nf, k1, k2, k3, k4);
+
+		// fft returns just the (nf = nfft/2 + 1) positive frequencies
+		ComplexArray xfft = ComplexArray.fft(data);
+		xfft.scale(taper); // Bandpass
+
+		// Reflect spec about the Nyquist to get -ve freqs and invert
+		double[] foo = xfft.inverseFFT(ndata);
 		for (int i = 0; i < ndata; i++) {
-			timeseries[i] = (double) foo[i];
+			timeseries[i] = foo[i];
 		}
 
 	}
 
+	private static double[] getTaper(int nf, int k1, int k2, int k3, int k4) {
+		double[] taper = new double[nf];
+		for (int k = 0; k < nf; k++) {
+			taper[k] = bpass(k, k1, k2, k3, k4);
+		}
+		return taper;
+	}
+
+	/**
+	 * @return The block filter of the bandpass taper (k1, k2, k3, k4 on the
+	 *         nf point grid) for ndata samples or null if the whole window
+	 *         FFT must be used. The filters of the last MAX_FILTERS tapers are
+	 *         kept (e.g., the synthetics of all the events of a day).
+	 */
+	private static synchronized OverlapSaveFilter getBandpassFilter(
+			int ndata, int nf, int k1, int k2, int k3, int k4) {
+		String key = String.format("%d:%d:%d:%d:%d:%d", ndata, nf, k1, k2,
+				k3, k4);
+		if (!bandpassFilters.containsKey(key)) {
+			double[] taper = getTaper(nf, k1, k2, k3, k4);
+			bandpassFilters.put(key, OverlapSaveFilter.create(new ComplexArray(
+					taper, new double[nf]), ndata));
+		}
+		return bandpassFilters.get(key);
+	}
+
 	/**
 	 * Return val of cos taper at point n where taper is flat between n2 --- n3
 	 * and applies cos between n1-n2 and n3-n4 (i.e., it is zero for n<=n1 and
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012, United States Geological Survey or
+ * third-party contributors as indicated by the @author tags.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/  >.
+ *
+ */
+package timeutils;
+
+import freq.Cmplx;
+import freq.ComplexArray;
+
+/**
+ * OverlapSaveFilter - Applies a frequency response the way
+ * MyFilter.bandpass() and MetricData.removeInstrumentAndFilter() do, but
+ * block by block with FFT overlap-save instead of one FFT of the whole window
+ * zero padded to nfft.
+ *
+ * The reference multiplies the nfft point FFT of the window by a response H
+ * and inverts it (see ComplexArray.inverseFFT()). That is exactly the
+ * circular convolution of the window with g = inverseFFT(H), i.e., the linear
+ * convolution with g[d mod nfft] over the lags -ndata < d < ndata. This
+ * filter keeps the lags -nAcausal <= d <= nCausal of that kernel and drops the
+ * rest (the decayed tails and the coefficients the reference wraps around
+ * the ends of the window). The lags are chosen so the dropped coefficients
+ * sum (in absolute value) to at most TOLERANCE * sum(|g|), which bounds the
+ * difference from the reference:
+ *
+ * <pre>
+ * max|y - yRef| <= TOLERANCE * sum(|g|) * max|x|
+ * </pre>
+ *
+ * (plus FFT roundoff). create() returns null if no such kernel is short
+ * enough to be worth it; then the caller uses the reference.
+ *
+ * The working memory is a few arrays of the block FFT length instead of the
+ * nfft length arrays of the reference.
+ */
+public class OverlapSaveFilter {
+	/**
+	 * Allowed sum of the dropped kernel coefficients relative to sum(|g|)
+	 */
+	public static final double TOLERANCE = 1.e-4;
+
+	/**
+	 * The kernel must be at most 1/MIN_BLOCKS of the window
+	 */
+	private static final int MIN_BLOCKS = 4;
+
+	private final int nCausal;
+	private final int nAcausal;
+	private final int nkernel; // nAcausal + 1 + nCausal taps
+	private final int nfft; // block FFT length
+	private final int nstep; // new samples per block = nfft - nkernel + 1
+	private final double[] kernelFFT; // interleaved re,im of FFT(kernel)
+	private final double droppedFraction;
+
+	private OverlapSaveFilter(double[] g, int nCausal, int nAcausal,
+			double droppedFraction) {
+		this.nCausal = nCausal;
+		this.nAcausal = nAcausal;
+		this.droppedFraction = droppedFraction;
+		nkernel = nAcausal + 1 + nCausal;
+		int n = 1;
+		while (n < 2 * nkernel)
+			n = (n << 1);
+		nfft = Math.max(n, 64);
+		nstep = nfft - nkernel + 1;
+
+		// kernel[i] is the coefficient of lag i - nAcausal
+		kernelFFT = new double[2 * nfft];
+		int period = g.length;
+		for (int i = 0; i < nkernel; i++) {
+			int lag = i - nAcausal;
+			kernelFFT[2 * i] = g[(lag + period) % period];
+		}
+		Cmplx.four1(kernelFFT, 1);
+	}
+
+	/**
+	 * @param response
+	 *            H at the nf = nfft/2 + 1 positive frequencies of the
+	 *            reference FFT (DC is ignored, as in
+	 *            ComplexArray.inverseFFT())
+	 * @param ndata
+	 *            the number of samples of the windows to filter (<= nfft)
+	 * @return The filter or null if the dropped coefficients can't be kept
+	 *         within TOLERANCE by a kernel of at most ndata/4 taps (or the
+	 *         response isn't finite)
+	 */
+	public static OverlapSaveFilter create(ComplexArray response, int ndata) {
+		int period = 2 * (response.length() - 1);
+		if (ndata < 1 || ndata > period) {
+			return null;
+		}
+		double[] g = response.inverseFFT(period);
+
+		double total = 0.;
+		for (int i = 0; i < period; i++) {
+			total += Math.abs(g[i]);
+		}
+		if (!(total > 0.) || Double.isInfinite(total)) {
+			return null;
+		}
+
+		// The reference uses the lags -ndata < d < ndata. Keep the shortest
+		// causal and acausal parts whose dropped lags sum to at most half
+		// of the allowed error each.
+		double allowed = 0.5 * TOLERANCE * total;
+		int nCausal = shortestSide(g, ndata, 1, allowed);
+		int nAcausal = shortestSide(g, ndata, -1, allowed);
+		if (MIN_BLOCKS * (nCausal + nAcausal + 1) > ndata) {
+			return null;
+		}
+		double dropped = 0.;
+		for (int d = nCausal + 1; d < ndata; d++) {
+			dropped += Math.abs(g[d % period]);
+		}
+		for (int d = nAcausal + 1; d < ndata; d++) {
+			dropped += Math.abs(g[(period - d % period) % period]);
+		}
+		return new OverlapSaveFilter(g, nCausal, nAcausal, dropped / total);
+	}
+
+	/**
+	 * @return The smallest K such that the lags sign*(K+1 .. ndata-1) sum to
+	 *         at most allowed
+	 */
+	private static int shortestSide(double[] g, int ndata, int sign,
+			double allowed) {
+		int period = g.length;
+		double tail = 0.;
+		for (int d = ndata - 1; d > 0; d--) {
+			int i = (sign > 0) ? d % period : (period - d % period) % period;
+			tail += Math.abs(g[i]);
+			if (tail > allowed) {
+				return d;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return The number of kernel taps
+	 */
+	public int getLength() {
+		return nkernel;
+	}
+
+	/**
+	 * @return The sum of the dropped coefficients relative to sum(|g|) (at
+	 *         most TOLERANCE)
+	 */
+	public double getDroppedFraction() {
+		return droppedFraction;
+	}
+
+	/**
+	 * Filter in[] into out[] (in.length samples, the samples outside of in[]
+	 * are 0 as in the zero padded reference). in and out must not be the same
+	 * array.
+	 */
+	public void filter(double[] in, double[] out) {
+		int ndata = in.length;
+		double[] buffer = new double[2 * nfft];
+		// Block outputs z[first + i], i = nkernel-1 .. nfft-1, with
+		// y[k] = z[k + nAcausal]
+		for (int start = nAcausal; start < nAcausal + ndata; start += nstep) {
+			int first = start - nkernel + 1;
+			for (int i = 0, j = first; i < nfft; i++, j++) {
+				buffer[2 * i] = (j >= 0 && j < ndata) ? in[j] : 0.;
+				buffer[2 * i + 1] = 0.;
+			}
+			Cmplx.four1(buffer, 1);
+			for (int i = 0; i < 2 * nfft; i += 2) {
+				double re = buffer[i];
+				double im = buffer[i + 1];
+				buffer[i] = re * kernelFFT[i] - im * kernelFFT[i + 1];
+				buffer[i + 1] = re * kernelFFT[i + 1] + im * kernelFFT[i];
+			}
+			// (four1() scales the real part of the inverse by 1/nfft)
+			Cmplx.four1(buffer, -1);
+			int end = Math.min(nfft, ndata + nAcausal - first);
+			for (int i = nkernel - 1; i < end; i++) {
+				out[first + i - nAcausal] = buffer[2 * i];
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"OverlapSaveFilter: taps=%d (lags %d..%d) blockFFT=%d dropped=%.2e",
+				nkernel, -nAcausal, nCausal, nfft, droppedFraction);
+	}
+}
@@ -3,7 +3,7 @@ package timeutils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import freq.Cmplx;
+import freq.ComplexArray;
 
 /**
  * @author Mike Hagerty <hagertmb@bc.edu>
@@ -11,7 +11,7 @@ import freq.Cmplx;
 public class PSD {
 	private static final Logger logger = LoggerFactory
 			.getLogger(timeutils.PSD.class);
-	Cmplx[] psd = null;
+	ComplexArray psd = null;
 	double[] freq = null;
 	double[] dataX = null;
 	double[] dataY = null;
@@ -36,7 +36,7 @@ public class PSD {
 		computePSD();
 	}
 
-	public final Cmplx[] getSpectrum() {
+	public final ComplexArray getSpectrum() {
 		return psd;
 	}
 
@@ -49,11 +49,7 @@ public class PSD {
 	}
 
 	public double[] getMagnitude() {
-		double[] specMag = new double[freq.length];
-		for (int k = 0; k < freq.length; k++) {
-			specMag[k] = psd[k].mag();
-		}
-		return specMag;
+		return psd.magnitude();
 	}
 
 	/**
@@ -102,9 +98,9 @@ public class PSD {
 		double[] xseg = new double[nseg_pnts];
 		double[] yseg = new double[nseg_pnts];
 
-		Cmplx[] xfft = null;
-		Cmplx[] yfft = null;
-		psd = new Cmplx[nf];
+		ComplexArray xfft = null;
+		ComplexArray yfft = null;
+		psd = new ComplexArray(nf); // Initialized to 0
 		double wss = 0.;
 
 		int iwin = 0;
@@ -112,11 +108,6 @@ public class PSD {
 		int ilst = nseg_pnts - 1;
 		int offset = 0;
 
-		// Initialize the Cmplx PSD
-		for (int k = 0; k < nf; k++) {
-			psd[k] = new Cmplx(0., 0.);
-		}
-
 		while (ilst < ndata) // ndata needs to come from largest dataset
 		{
 			for (int k = 0; k < nseg_pnts; k++) { // Load current window
@@ -132,14 +123,12 @@ public class PSD {
 			// MTH: Maybe want to assert here that wss > 0 to avoid
 			// divide-by-zero below ??
 
-			// fft2 returns just the (nf = nfft/2 + 1) positive frequencies
-			xfft = Cmplx.fft2(xseg);
-			yfft = Cmplx.fft2(yseg);
+			// fft returns just the (nf = nfft/2 + 1) positive frequencies
+			xfft = ComplexArray.fft(xseg);
+			yfft = ComplexArray.fft(yseg);
 
 			// Load up the 1-sided PSD:
-			for (int k = 0; k < nf; k++) {
-				psd[k] = Cmplx.add(psd[k], Cmplx.mul(xfft[k], yfft[k].conjg()));
-			}
+			psd.addMulConj(xfft, yfft);
 
 			iwin++;
 			offset += noff;
@@ -154,30 +143,56 @@ public class PSD {
 		// At same time, correct for loss of power in window due to 10% cosine
 		// taper
 
+		freq = normalize(psd, dt, nfft, wss, nseg_pnts, nwin);
+		smooth(psd);
+
+	} // end computePSD
+
+	/**
+	 * Divide the summed psd[]'s by the number of windows (=13) AND Normalize
+	 * the PSD ala Bendat & Piersol, to units of (time series)^2 / Hz AND At
+	 * same time, correct for loss of power in window due to 10% cosine taper
+	 * 
+	 * @return freq[k] - The frequencies of the nf = nfft/2 + 1 spectral points
+	 */
+	static double[] normalize(ComplexArray psd, double dt, int nfft,
+			double wss, int nseg_pnts, int nwin) {
+		int nf = psd.length();
+		double df = 1. / (nfft * dt);
+
 		double psdNormalization = 2.0 * dt / (double) nfft;
 		double windowCorrection = wss / (double) nseg_pnts; // =.875 for 10%
 															// cosine taper
 		psdNormalization = psdNormalization / windowCorrection;
 		psdNormalization = psdNormalization / (double) nwin;
 
-		freq = new double[nf];
+		double[] freq = new double[nf];
 
+		psd.scale(psdNormalization);
 		for (int k = 0; k < nf; k++) {
-			psd[k] = Cmplx.mul(psd[k], psdNormalization);
 			freq[k] = (double) k * df;
 		}
+		return freq;
+	}
 
-		// We have psdC[f] so this is a good point to do any smoothing over
-		// neighboring frequencies:
+	/**
+	 * We have psdC[f] so this is a good point to do any smoothing over
+	 * neighboring frequencies. The smoothed spectrum is copied back into psd[].
+	 */
+	static void smooth(ComplexArray psd) {
+		int nf = psd.length();
 		int nsmooth = 11;
 		int nhalf = 5;
-		int nw = nf - nsmooth;
-		Cmplx[] psdCFsmooth = new Cmplx[nf];
+		double[] re = psd.getReal();
+		double[] im = psd.getImag();
+		double[] reSmooth = new double[nf];
+		double[] imSmooth = new double[nf];
 
 		int iw = 0;
 
 		for (iw = 0; iw < nhalf; iw++) {
-			psdCFsmooth[iw] = psd[iw];
+			reSmooth[iw] = re[iw];
+			imSmooth[iw] = im[iw];
 		}
 
 		// iw is really icenter of nsmooth point window
@@ -185,27 +200,28 @@ public class PSD {
 			int k1 = iw - nhalf;
 			int k2 = iw + nhalf;
 
-			Cmplx sumC = new Cmplx(0., 0.);
+			double sumRe = 0.;
+			double sumIm = 0.;
 			for (int k = k1; k < k2; k++) {
-				sumC = Cmplx.add(sumC, psd[k]);
+				sumRe += re[k];
+				sumIm += im[k];
 			}
-			psdCFsmooth[iw] = Cmplx.div(sumC, (double) nsmooth);
+			reSmooth[iw] = sumRe / (double) nsmooth;
+			imSmooth[iw] = sumIm / (double) nsmooth;
 		}
 
 		// Copy the remaining point into the smoothed array
 		for (; iw < nf; iw++) {
-			psdCFsmooth[iw] = psd[iw];
+			reSmooth[iw] = re[iw];
+			imSmooth[iw] = im[iw];
 		}
 
 		// Copy Frequency smoothed spectrum back into psd[f] and proceed as
 		// before
-		for (int k = 0; k < nf; k++) {
-			// psd[k] = psdCFsmooth[k].mag();
-			psd[k] = psdCFsmooth[k];
-		}
+		System.arraycopy(reSmooth, 0, re, 0, nf);
+		System.arraycopy(imSmooth, 0, im, 0, nf);
 		// psd[0]=0; // Reset DC
-
-	} // end computePSD
+	}
 
 } // end class
 
@@ -0,0 +1,300 @@
+package timeutils;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import asl.seedsplitter.DataSet;
+import asl.seedsplitter.SequenceRangeException;
+import freq.ComplexArray;
+
+/**
+ * Welch cross-power estimator that reads its overlapping segments directly
+ * out of a channel's DataSets instead of from a zero padded full day array.
+ *
+ * The segmentation (13 segments of ndata/4 points with 75% overlap),
+ * detrend/debias/taper, normalization and frequency smoothing are identical
+ * to {@link PSD}, so on a day without gaps the two produce the same spectrum.
+ * Only one segment buffer per channel is held in memory, which matters for
+ * HH? channels where a padded day is hundreds of MB.
+ *
+ * Segments are positioned on the same day grid that
+ * MetricData.getPaddedDayData() uses. How segments that touch a gap are
+ * treated is controlled by the {@link GapPolicy}.
+ */
+public class StreamingPSD {
+	private static final Logger logger = LoggerFactory
+			.getLogger(timeutils.StreamingPSD.class);
+
+	/**
+	 * SKIP - Segments that are not completely covered by data are left out of
+	 * the average. If no complete segment exists the day falls back to
+	 * ZERO_FILL.
+	 *
+	 * ZERO_FILL - Samples missing from a segment are set to 0, which
+	 * reproduces the old padded day behavior.
+	 */
+	public enum GapPolicy {
+		SKIP, ZERO_FILL
+	}
+
+	/**
+	 * Receives the spectrum of each segment that goes into the average, e.g.,
+	 * to build a spectrogram without computing any more FFTs.
+	 */
+	public interface SegmentListener {
+		/**
+		 * @param offset
+		 *            index of the first sample of the segment on the day grid
+		 * @param nseg_pnts
+		 *            number of samples in the segment
+		 * @param df
+		 *            frequency spacing of power[]
+		 * @param power
+		 *            |X(f) Y*(f)| of this segment alone, normalized like the
+		 *            averaged spectrum (but not smoothed); power[k] is for f
+		 *            = k * df. The array is reused for the next segment.
+		 */
+		void segment(int offset, int nseg_pnts, double df, double[] power);
+	}
+
+	private ComplexArray psd = null;
+	private double[] freq = null;
+	private double df;
+	private double dt;
+	private int nwin;
+	private int nskipped;
+
+	private SegmentReader readerX = null;
+	private SegmentReader readerY = null;
+	private SegmentListener listener = null;
+
+	// constructor(s)
+	public StreamingPSD(List<DataSet> dataX, List<DataSet> dataY,
+			long dayStartTime, GapPolicy gapPolicy) throws RuntimeException {
+		this(dataX, dataY, dayStartTime, gapPolicy, null);
+	}
+
+	/**
+	 * @param listener
+	 *            is handed the spectrum of every segment used in the
+	 *            average (may be null)
+	 */
+	public StreamingPSD(List<DataSet> dataX, List<DataSet> dataY,
+			long dayStartTime, GapPolicy gapPolicy, SegmentListener listener)
+			throws RuntimeException {
+		this.listener = listener;
+		if (dataX == null || dataY == null || dataX.size() == 0
+				|| dataY.size() == 0) {
+			throw new RuntimeException(
+					"== No DataSets --> Can't create new StreamingPSD");
+		}
+		long interval = dataX.get(0).getInterval();
+		if (interval <= 0 || interval != dataY.get(0).getInterval()) {
+			throw new RuntimeException(
+					"== Invalid interval --> Can't create new StreamingPSD");
+		}
+		this.dt = interval / 1000000.;
+
+		// ndata is the number of points in the (virtual) padded day
+		int ndata = (int) (86400000000L / interval);
+		readerX = new SegmentReader(dataX, dayStartTime, interval);
+		readerY = new SegmentReader(dataY, dayStartTime, interval);
+
+		computePSD(ndata, gapPolicy);
+		if (nwin == 0 && gapPolicy == GapPolicy.SKIP) {
+			logger.warn("== StreamingPSD: No gap free segments found --> fall back to ZERO_FILL");
+			computePSD(ndata, GapPolicy.ZERO_FILL);
+		}
+	}
+
+	public final ComplexArray getSpectrum() {
+		return psd;
+	}
+
+	public final double[] getFreq() {
+		return freq;
+	}
+
+	public final double getDeltaF() {
+		return df;
+	}
+
+	/**
+	 * @return The number of segments that went into the average
+	 */
+	public final int getNumberOfSegments() {
+		return nwin;
+	}
+
+	/**
+	 * @return The number of segments left out because they touched a gap
+	 */
+	public final int getNumberOfSkippedSegments() {
+		return nskipped;
+	}
+
+	public double[] getMagnitude() {
+		return psd.magnitude();
+	}
+
+	/**
+	 * Same loop as PSD.computePSD() except each window is loaded from the
+	 * SegmentReaders rather than from a padded day array.
+	 */
+	private void computePSD(int ndata, GapPolicy gapPolicy) {
+		int nseg_pnts = ndata / 4;
+		int noff = nseg_pnts / 4;
+
+		// Find smallest power of 2 >= nseg_pnts:
+		int nfft = 1;
+		while (nfft < nseg_pnts)
+			nfft = (nfft << 1);
+
+		int nf = nfft / 2 + 1;
+		df = 1. / (nfft * dt);
+
+		double[] xseg = new double[nseg_pnts];
+		double[] yseg = new double[nseg_pnts];
+
+		ComplexArray xfft = null;
+		ComplexArray yfft = null;
+		psd = new ComplexArray(nf);
+		double wss = 0.;
+		double[] segPower = (listener == null) ? null : new double[nf];
+
+		nwin = 0;
+		nskipped = 0;
+		int ilst = nseg_pnts - 1;
+		int offset = 0;
+
+		while (ilst < ndata) {
+			boolean completeX = readerX.read(offset, xseg);
+			boolean completeY = readerY.read(offset, yseg);
+
+			if (gapPolicy == GapPolicy.SKIP && !(completeX && completeY)) {
+				nskipped++;
+			} else {
+				Timeseries.detrend(xseg);
+				Timeseries.detrend(yseg);
+				Timeseries.debias(xseg);
+				Timeseries.debias(yseg);
+				wss = Timeseries.costaper(xseg, .10);
+				wss = Timeseries.costaper(yseg, .10);
+
+				xfft = ComplexArray.fft(xseg);
+				yfft = ComplexArray.fft(yseg);
+
+				psd.addMulConj(xfft, yfft);
+				nwin++;
+
+				if (listener != null) {
+					segmentPower(xfft, yfft, 2.0 * dt / nfft * nseg_pnts / wss,
+							segPower);
+					listener.segment(offset, nseg_pnts, df, segPower);
+				}
+			}
+
+			offset += noff;
+			ilst += noff;
+		}
+
+		if (nwin == 0) {
+			return;
+		}
+
+		freq = PSD.normalize(psd, dt, nfft, wss, nseg_pnts, nwin);
+		PSD.smooth(psd);
+	}
+
+	/**
+	 * power[k] = |x[k] * conjg(y[k])| * normalization
+	 */
+	private static void segmentPower(ComplexArray x, ComplexArray y,
+			double normalization, double[] power) {
+		double[] xre = x.getReal();
+		double[] xim = x.getImag();
+		double[] yre = y.getReal();
+		double[] yim = y.getImag();
+		for (int k = 0; k < power.length; k++) {
+			double re = xre[k] * yre[k] + xim[k] * yim[k];
+			double im = xim[k] * yre[k] - xre[k] * yim[k];
+			power[k] = Math.sqrt(re * re + im * im) * normalization;
+		}
+	}
+
+	/**
+	 * Maps indices on the padded day grid onto the DataSets of one channel.
+	 * The start index of each DataSet is computed exactly the way
+	 * MetricData.getPaddedDayData() lays the DataSets out.
+	 */
+	private static class SegmentReader {
+		private final List<DataSet> datasets;
+		private final int[] starts;
+		private final int[] lengths;
+
+		SegmentReader(List<DataSet> datasets, long dayStartTime, long interval) {
+			this.datasets = datasets;
+			starts = new int[datasets.size()];
+			lengths = new int[datasets.size()];
+
+			long lastEndTime = dayStartTime;
+			int k = 0;
+			for (int i = 0; i < datasets.size(); i++) {
+				DataSet dataset = datasets.get(i);
+				int npad = (int) ((dataset.getStartTime() - lastEndTime) / interval) - 1;
+				if (npad > 0) {
+					k += npad;
+				}
+				starts[i] = k;
+				lengths[i] = dataset.getLength();
+				k += lengths[i];
+				lastEndTime = dataset.getEndTime();
+			}
+		}
+
+		/**
+		 * Fill seg[] with the samples starting at day index offset. Samples
+		 * not covered by any DataSet are set to 0.
+		 *
+		 * @return true if every sample of the segment was covered by data
+		 */
+		boolean read(int offset, double[] seg) {
+			int nseg = seg.length;
+			int end = offset + nseg;
+			int covered = 0;
+			int next = offset; // first index not yet written
+
+			for (int i = 0; i < starts.length && next < end; i++) {
+				int dsStart = starts[i];
+				int dsEnd = dsStart + lengths[i];
+				if (dsEnd <= next) {
+					continue;
+				}
+				if (dsStart >= end) {
+					break;
+				}
+				int from = Math.max(dsStart, next);
+				int to = Math.min(dsEnd, end);
+				for (int j = next; j < from; j++) {
+					seg[j - offset] = 0.;
+				}
+				try {
+					datasets.get(i).copySeries(from - dsStart, seg,
+							from - offset, to - from);
+				} catch (SequenceRangeException e) {
+					logger.error("SequenceRangeException:", e);
+					return false;
+				}
+				covered += to - from;
+				next = to;
+			}
+			for (int j = next; j < end; j++) {
+				seg[j - offset] = 0.;
+			}
+			return covered == nseg;
+		}
+	}
+
+} // end class
@@ -323,6 +323,26 @@ public class Timeseries {
 	public static void rotate_xy_to_ne(double az1, double az2, double[] x,
 			double[] y, double[] n, double[] e) {
 
+		double[] c = rotationCoefficients(az1, az2);
+
+		for (int i = 0; i < x.length; i++) {
+			n[i] = x[i] * c[0] - y[i] * c[1];
+			e[i] = x[i] * c[2] + y[i] * c[3];
+		}
+
+	} // end rotate_xy_to_ne
+
+	/**
+	 * The coefficients c of the rotation of horizontals x (azimuth az1) and y
+	 * (azimuth az2) to north and east:
+	 * 
+	 * n = x * c[0] - y * c[1], e = x * c[2] + y * c[3]
+	 * 
+	 * (the signs of the channels are folded into c, so this gives the same n,
+	 * e as applying them to x and y)
+	 */
+	public static double[] rotationCoefficients(double az1, double az2) {
+
 		// INITIALLY: Lets assume the horizontal channels are PERPENDICULAR and
 		// use a single azimuth to rotate
 		// We'll check the azimuths and flip signs to put channel1 to +N half
@@ -366,11 +386,8 @@ public class Timeseries {
 		double cosAz = Math.cos(azimuth * Math.PI / 180);
 		double sinAz = Math.sin(azimuth * Math.PI / 180);
 
-		for (int i = 0; i < x.length; i++) {
-			n[i] = sign1 * x[i] * cosAz - sign2 * y[i] * sinAz;
-			e[i] = sign1 * x[i] * sinAz + sign2 * y[i] * cosAz;
-		}
-
-	} // end rotate_xy_to_ne
+		return new double[] { sign1 * cosAz, sign2 * sinAz, sign1 * sinAz,
+				sign2 * cosAz };
+	}
 
 }